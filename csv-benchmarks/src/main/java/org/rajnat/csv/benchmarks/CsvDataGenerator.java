@@ -0,0 +1,173 @@
+package org.rajnat.csv.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Writes synthetic CSV files for the benchmarks.
+ * <p>
+ * The same parameters and seed always produce the same file, so results of different runs and
+ * branches compare the same input. Files have a header line, the eight columns {@code c0} to
+ * {@code c7} of a {@link Shape} and an enum column {@code code}, and end every row with {@code \n}.
+ */
+public final class CsvDataGenerator {
+    static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ";
+
+    /**
+     * The type of a column.
+     */
+    public enum Kind {
+        INT,
+        LONG,
+        DOUBLE,
+        STRING
+    }
+
+    /**
+     * The mix of numeric and String columns of a file, and the class its rows map to.
+     */
+    public enum Shape {
+        NUMERIC(NumericRow.class, Kind.INT, Kind.LONG, Kind.DOUBLE, Kind.INT, Kind.LONG, Kind.DOUBLE, Kind.INT, Kind.DOUBLE),
+        MIXED(MixedRow.class, Kind.INT, Kind.LONG, Kind.DOUBLE, Kind.DOUBLE, Kind.STRING, Kind.STRING, Kind.STRING, Kind.STRING),
+        TEXT(TextRow.class, Kind.STRING, Kind.STRING, Kind.STRING, Kind.STRING, Kind.STRING, Kind.STRING, Kind.STRING, Kind.STRING);
+
+        private final Class<?> rowType;
+        private final Kind[] columns;
+
+        Shape(Class<?> rowType, Kind... columns) {
+            this.rowType = rowType;
+            this.columns = columns;
+        }
+
+        public Class<?> rowType() {
+            return rowType;
+        }
+
+        public Kind[] columns() {
+            return columns.clone();
+        }
+    }
+
+    private final Shape shape;
+    private final int width;
+    private final double quoteRatio;
+    private final int enumCardinality;
+    private final SplittableRandom random;
+
+    /**
+     * @param shape the columns of the file
+     * @param width the number of characters of every String field
+     * @param quoteRatio the share of String fields containing a delimiter and a quote, which are
+     *                   written quoted with the quote escaped
+     * @param enumCardinality the number of distinct values of the enum column
+     * @param seed the seed of the values
+     * @throws IllegalArgumentException if a parameter is out of range
+     */
+    public CsvDataGenerator(Shape shape, int width, double quoteRatio, int enumCardinality, long seed) {
+        if (width < 2) {
+            throw new IllegalArgumentException("width must be at least 2: " + width);
+        }
+        if (quoteRatio < 0 || quoteRatio > 1) {
+            throw new IllegalArgumentException("quoteRatio must be between 0 and 1: " + quoteRatio);
+        }
+        if (enumCardinality <= 0 || enumCardinality > Code.values().length) {
+            throw new IllegalArgumentException("enumCardinality must be between 1 and " + Code.values().length + ": " + enumCardinality);
+        }
+        this.shape = shape;
+        this.width = width;
+        this.quoteRatio = quoteRatio;
+        this.enumCardinality = enumCardinality;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Writes a file, replacing its content.
+     *
+     * @param file the file
+     * @param rows the number of rows after the header line
+     * @throws IOException if writing fails
+     */
+    public void write(Path file, int rows) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < shape.columns.length; i++) {
+                out.write("c" + i);
+                out.write(',');
+            }
+            out.write("code\n");
+            StringBuilder row = new StringBuilder();
+            for (int r = 0; r < rows; r++) {
+                row.setLength(0);
+                for (Kind kind : shape.columns) {
+                    appendField(row, kind);
+                    row.append(',');
+                }
+                row.append(Code.values()[random.nextInt(enumCardinality)].name()).append('\n');
+                out.append(row);
+            }
+        }
+    }
+
+    /**
+     * Generates field values as they appear in a file, without the quotes of quoted Strings.
+     *
+     * @param kind the type of the values
+     * @param count the number of values
+     * @return the values
+     */
+    public String[] fields(Kind kind, int count) {
+        String[] fields = new String[count];
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            field.setLength(0);
+            if (kind == Kind.STRING) {
+                appendText(field, random.nextDouble() < quoteRatio);
+            } else {
+                appendField(field, kind);
+            }
+            fields[i] = field.toString();
+        }
+        return fields;
+    }
+
+    private void appendField(StringBuilder row, Kind kind) {
+        switch (kind) {
+            case INT -> row.append(random.nextInt(-1_000_000, 1_000_000));
+            case LONG -> row.append(random.nextLong(-1_000_000_000_000_000L, 1_000_000_000_000_000L));
+            case DOUBLE -> row.append(random.nextInt(-10_000_000, 10_000_000) / 100.0);
+            case STRING -> {
+                if (random.nextDouble() < quoteRatio) {
+                    int start = row.length();
+                    appendText(row, true);
+                    String text = row.substring(start).replace("\"", "\"\"");
+                    row.setLength(start);
+                    row.append('"').append(text).append('"');
+                } else {
+                    appendText(row, false);
+                }
+            }
+        }
+    }
+
+    private void appendText(StringBuilder text, boolean special) {
+        char[] chars = new char[width];
+        for (int i = 0; i < width; i++) {
+            chars[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        }
+        if (special) {
+            chars[random.nextInt(width)] = ',';
+            chars[random.nextInt(width)] = '"';
+        }
+        text.append(chars);
+    }
+
+    @Override
+    public String toString() {
+        return "CsvDataGenerator[shape=" + shape + ", width=" + width + ", quoteRatio=" + quoteRatio
+                + ", enumCardinality=" + enumCardinality + ", columns=" + Arrays.toString(shape.columns) + "]";
+    }
+}
@@ -0,0 +1,72 @@
+package org.rajnat.csv.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A generated input file shared by the threads of a benchmark, and a scratch file for outputs.
+ * Override the parameters with {@code -p}, for example {@code -p shape=TEXT -p quoteRatio=0.5}.
+ */
+@State(Scope.Benchmark)
+public class CsvFileState {
+    static final long SEED = 42;
+
+    @Param("100000")
+    public int rows;
+
+    @Param({"NUMERIC", "MIXED", "TEXT"})
+    public CsvDataGenerator.Shape shape;
+
+    @Param("16")
+    public int width;
+
+    @Param("0.1")
+    public double quoteRatio;
+
+    @Param("8")
+    public int enumCardinality;
+
+    public Path directory;
+    public String input;
+    public String output;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        directory = Files.createTempDirectory("csv-benchmarks");
+        Path file = directory.resolve("input.csv");
+        generator().write(file, rows);
+        input = file.toString();
+        output = directory.resolve("output.csv").toString();
+    }
+
+    /**
+     * @return a generator of values like those of the input file
+     */
+    public CsvDataGenerator generator() {
+        return new CsvDataGenerator(shape, width, quoteRatio, enumCardinality, SEED);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Class<T> rowType() {
+        return (Class<T>) shape.rowType();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
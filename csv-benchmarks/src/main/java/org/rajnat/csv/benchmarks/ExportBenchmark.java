@@ -0,0 +1,49 @@
+package org.rajnat.csv.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rajnat.csv.parser.CsvExporter;
+import org.rajnat.csv.parser.CsvImporter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports the rows of the generated file to a scratch file; one operation is one file.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExportBenchmark {
+    private final CsvExporter exporter = new CsvExporter();
+    private List<Object> rows;
+    private Class<Object> rowType;
+
+    @Setup(Level.Trial)
+    public void load(CsvFileState file) throws Exception {
+        rowType = file.rowType();
+        rows = new CsvImporter().importFromCsvAsync(file.input, rowType).get();
+    }
+
+    @Benchmark
+    public Object exportList(CsvFileState file) throws Exception {
+        return exporter.exportToCsv(rows, file.output).get();
+    }
+
+    @Benchmark
+    public Object exportStream(CsvFileState file) throws Exception {
+        return exporter.exportToCsv(rows.stream(), rowType, file.output).get();
+    }
+}
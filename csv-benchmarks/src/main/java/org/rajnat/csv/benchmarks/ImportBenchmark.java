@@ -0,0 +1,42 @@
+package org.rajnat.csv.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.rajnat.csv.parser.CsvImporter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Imports the whole generated file; one operation is one file.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImportBenchmark {
+    private final CsvImporter importer = new CsvImporter();
+
+    @Benchmark
+    public List<?> importFromCsvAsync(CsvFileState file) throws Exception {
+        return importer.importFromCsvAsync(file.input, file.rowType()).get();
+    }
+
+    @Benchmark
+    public void importFromCsvStream(CsvFileState file, Blackhole blackhole) throws Exception {
+        try (Stream<?> rows = importer.importFromCsvStream(file.input, file.rowType()).get()) {
+            rows.forEach(blackhole::consume);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.rajnat.csv.benchmarks;
+
+import org.rajnat.csv.parser.CsvField;
+
+/**
+ * A benchmark row of four numeric and four String columns.
+ */
+public class MixedRow {
+
+    @CsvField(name = "c0", order = 0)
+    int c0;
+
+    @CsvField(name = "c1", order = 1)
+    long c1;
+
+    @CsvField(name = "c2", order = 2)
+    double c2;
+
+    @CsvField(name = "c3", order = 3)
+    double c3;
+
+    @CsvField(name = "c4", order = 4)
+    String c4;
+
+    @CsvField(name = "c5", order = 5)
+    String c5;
+
+    @CsvField(name = "c6", order = 6)
+    String c6;
+
+    @CsvField(name = "c7", order = 7)
+    String c7;
+
+    @CsvField(name = "code", order = 8)
+    Code code;
+}
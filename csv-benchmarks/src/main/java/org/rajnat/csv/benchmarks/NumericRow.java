@@ -0,0 +1,36 @@
+package org.rajnat.csv.benchmarks;
+
+import org.rajnat.csv.parser.CsvField;
+
+/**
+ * A benchmark row of numeric columns only.
+ */
+public class NumericRow {
+
+    @CsvField(name = "c0", order = 0)
+    int c0;
+
+    @CsvField(name = "c1", order = 1)
+    long c1;
+
+    @CsvField(name = "c2", order = 2)
+    double c2;
+
+    @CsvField(name = "c3", order = 3)
+    int c3;
+
+    @CsvField(name = "c4", order = 4)
+    long c4;
+
+    @CsvField(name = "c5", order = 5)
+    double c5;
+
+    @CsvField(name = "c6", order = 6)
+    int c6;
+
+    @CsvField(name = "c7", order = 7)
+    double c7;
+
+    @CsvField(name = "code", order = 8)
+    Code code;
+}
@@ -0,0 +1,36 @@
+package org.rajnat.csv.benchmarks;
+
+import org.rajnat.csv.parser.CsvField;
+
+/**
+ * A benchmark row of String columns only.
+ */
+public class TextRow {
+
+    @CsvField(name = "c0", order = 0)
+    String c0;
+
+    @CsvField(name = "c1", order = 1)
+    String c1;
+
+    @CsvField(name = "c2", order = 2)
+    String c2;
+
+    @CsvField(name = "c3", order = 3)
+    String c3;
+
+    @CsvField(name = "c4", order = 4)
+    String c4;
+
+    @CsvField(name = "c5", order = 5)
+    String c5;
+
+    @CsvField(name = "c6", order = 6)
+    String c6;
+
+    @CsvField(name = "c7", order = 7)
+    String c7;
+
+    @CsvField(name = "code", order = 8)
+    Code code;
+}
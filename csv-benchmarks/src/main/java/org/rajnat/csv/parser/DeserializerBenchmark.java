@@ -0,0 +1,92 @@
+package org.rajnat.csv.parser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.rajnat.csv.benchmarks.CsvDataGenerator;
+import org.rajnat.csv.benchmarks.CsvFileState;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps and converts fields without reading the file, isolating {@link Deserializer} from the
+ * tokenizer. It lives in the parser package to reach the package-private deserializer; one
+ * operation is one row or one value.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DeserializerBenchmark {
+    static final int RECORDS = 10_000;
+
+    private final Deserializer deserializer = new Deserializer();
+    private HeaderBinding<?> binding;
+    private CsvRecord[] records;
+    private String[] ints;
+    private String[] doubles;
+    private String[] strings;
+
+    @Setup(Level.Trial)
+    public void tokenize(CsvFileState file) throws IOException {
+        records = new CsvRecord[Math.min(RECORDS, file.rows)];
+        try (CsvTokenizer tokenizer = new CsvTokenizer(new FileInputStream(file.input), CsvFormat.DEFAULT)) {
+            CsvRecord record = new CsvRecord();
+            tokenizer.next(record);
+            binding = deserializer.bindHeaders(record.toArray(), file.rowType());
+            for (int i = 0; i < records.length && tokenizer.next(record); i++) {
+                records[i] = record.copy();
+            }
+        }
+        CsvDataGenerator generator = file.generator();
+        ints = generator.fields(CsvDataGenerator.Kind.INT, RECORDS);
+        doubles = generator.fields(CsvDataGenerator.Kind.DOUBLE, RECORDS);
+        strings = generator.fields(CsvDataGenerator.Kind.STRING, RECORDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void mapCsvToObject(Blackhole blackhole) {
+        for (CsvRecord record : records) {
+            blackhole.consume(deserializer.mapCsvToObject(record, binding));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void convertInt(Blackhole blackhole) {
+        convert(ints, int.class, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void convertDouble(Blackhole blackhole) {
+        convert(doubles, double.class, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void convertString(Blackhole blackhole) {
+        convert(strings, String.class, blackhole);
+    }
+
+    private void convert(String[] values, Class<?> type, Blackhole blackhole) {
+        for (String value : values) {
+            blackhole.consume(deserializer.convertValue(value, type));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.rajnat.csv.api;
+
+import java.util.List;
+
+/**
+ * Receives the rows of a batched import one batch at a time, for example to hand them to a JDBC
+ * batch insert or a message producer.
+ * <p>
+ * The importer reuses the same list for the following batches, so a consumer must copy what it
+ * needs instead of keeping a reference to the list. The rows themselves are new objects.
+ *
+ * @param <T> the type of the rows
+ */
+@FunctionalInterface
+public interface BatchConsumer<T> {
+
+    /**
+     * Processes one batch. Reading the file pauses until this method returns.
+     *
+     * @param batch the rows of the batch in file order, never empty, valid until this method returns
+     */
+    void accept(List<? extends T> batch);
+}
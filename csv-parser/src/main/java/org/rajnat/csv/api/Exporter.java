@@ -11,5 +11,9 @@ import java.util.stream.Stream;
 public interface Exporter {
 
     public <T> CompletableFuture<?> exportToCsv(List<T> data, String fileName);
+    public <T> CompletableFuture<?> exportToCsv(List<T> data, Class<T> clazz, String fileName);
     public <T> CompletableFuture<?> exportToCsv(Stream<T> dataStream, String fileName);
+    public <T> CompletableFuture<?> exportToCsv(Stream<T> dataStream, Class<T> clazz, String fileName);
+    public <T> CompletableFuture<?> exportToCsvParallel(List<T> data, String fileName);
+    public <T> CompletableFuture<?> exportToCsvParallel(List<T> data, Class<T> clazz, String fileName);
 }
@@ -7,4 +7,12 @@ import java.util.stream.Stream;
 public interface Importer {
     <T> CompletableFuture<List<T>> importFromCsvAsync(String fileName, Class<T> clazz);
     <T> CompletableFuture<Stream<T>> importFromCsvStream(String filename, Class<T> clazz);
+    <T> CompletableFuture<Stream<T>> importFromCsvStream(String filename, Class<T> clazz, long fromRow);
+    <T> CompletableFuture<List<T>> importRange(String fileName, Class<T> clazz, long fromRow, long toRow);
+    <T> CompletableFuture<List<T>> importFromCsvParallel(String fileName, Class<T> clazz);
+    <T> CompletableFuture<Stream<T>> importFromCsvParallelStream(String fileName, Class<T> clazz);
+    <T> CompletableFuture<Long> forEach(String fileName, Class<T> clazz, RowConsumer<? super T> consumer);
+    <T> CompletableFuture<Long> forEachParallel(String fileName, Class<T> clazz, RowConsumer<? super T> consumer);
+    <T> CompletableFuture<Long> forEachBatch(String fileName, Class<T> clazz, int batchSize, BatchConsumer<? super T> consumer);
+    <T> CompletableFuture<Stream<List<T>>> importBatches(String fileName, Class<T> clazz, int batchSize);
 }
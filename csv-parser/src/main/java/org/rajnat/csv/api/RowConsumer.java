@@ -0,0 +1,20 @@
+package org.rajnat.csv.api;
+
+/**
+ * Receives the rows of a visitor import one at a time.
+ * <p>
+ * The importer reuses the same object for the following rows, so a consumer must copy what it needs
+ * instead of keeping a reference to the row.
+ *
+ * @param <T> the type of the rows
+ */
+@FunctionalInterface
+public interface RowConsumer<T> {
+
+    /**
+     * Processes one row.
+     *
+     * @param row the row, valid until this method returns
+     */
+    void accept(T row);
+}
@@ -0,0 +1,16 @@
+package org.rajnat.csv.exception;
+
+/**
+ * Thrown when an import fails because too many of its rows could not be converted.
+ */
+public class CsvErrorLimitException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public CsvErrorLimitException(String message) {
+        super(message);
+    }
+
+    public CsvErrorLimitException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,457 @@
+package org.rajnat.csv.parser;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Parsers reading values straight from a range of UTF-8 bytes.
+ * <p>
+ * The common shapes of each type are parsed without creating a String; anything else (for example
+ * exponents out of the exact range or non-ISO dates) falls back to the JDK parser on a decoded String,
+ * so results always match {@link Integer#parseInt}, {@link Double#parseDouble} and friends. Values
+ * that cannot be parsed throw a {@link NumberFormatException} or {@link IllegalArgumentException}
+ * without a stack trace, also when the JDK parser rejected them.
+ */
+final class ByteParsers {
+    private static final long EXACT_DOUBLE_MANTISSA = 1L << 53;
+    private static final long EXACT_FLOAT_MANTISSA = 1L << 24;
+    private static final int MAX_MANTISSA_DIGITS = 18;
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    private ByteParsers() {
+    }
+
+    static String decode(byte[] bytes, int offset, int length) {
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+
+    static int parseInt(byte[] bytes, int offset, int length) {
+        long value = parseLong(bytes, offset, length, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        return (int) value;
+    }
+
+    static short parseShort(byte[] bytes, int offset, int length) {
+        return (short) parseLong(bytes, offset, length, Short.MIN_VALUE, Short.MAX_VALUE);
+    }
+
+    static byte parseByte(byte[] bytes, int offset, int length) {
+        return (byte) parseLong(bytes, offset, length, Byte.MIN_VALUE, Byte.MAX_VALUE);
+    }
+
+    static long parseLong(byte[] bytes, int offset, int length) {
+        return parseLong(bytes, offset, length, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Parses a decimal integer, accumulating negatively like {@link Long#parseLong} so that the
+     * minimum value does not overflow.
+     */
+    private static long parseLong(byte[] bytes, int offset, int length, long min, long max) {
+        int i = offset;
+        int end = offset + length;
+        if (length == 0) {
+            throw numberFormat(bytes, offset, length);
+        }
+        boolean negative = false;
+        byte first = bytes[i];
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++i == end) {
+                throw numberFormat(bytes, offset, length);
+            }
+        }
+        long limit = negative ? min : -max;
+        long multiplyMin = limit / 10;
+        long result = 0;
+        while (i < end) {
+            int digit = bytes[i++] - '0';
+            if (digit < 0 || digit > 9 || result < multiplyMin) {
+                throw numberFormat(bytes, offset, length);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw numberFormat(bytes, offset, length);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses a double. Decimals with at most 18 significant digits whose power of ten is exactly
+     * representable are computed with a single correctly rounded operation; other inputs are parsed
+     * by {@link Double#parseDouble}.
+     */
+    static double parseDouble(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i++] == '-';
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int significant = 0;
+        int scale = 0;
+        boolean dot = false;
+        for (; i < end; i++) {
+            byte c = bytes[i];
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (dot) {
+                    scale++;
+                }
+                if (mantissa != 0 || c != '0') {
+                    if (++significant > MAX_MANTISSA_DIGITS) {
+                        return jdkDouble(bytes, offset, length);
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        int exponent = 0;
+        if (i < end && digits > 0 && (bytes[i] == 'e' || bytes[i] == 'E')) {
+            int exponentEnd = i + 1;
+            boolean negativeExponent = false;
+            if (exponentEnd < end && (bytes[exponentEnd] == '-' || bytes[exponentEnd] == '+')) {
+                negativeExponent = bytes[exponentEnd++] == '-';
+            }
+            int exponentStart = exponentEnd;
+            while (exponentEnd < end && bytes[exponentEnd] >= '0' && bytes[exponentEnd] <= '9' && exponentEnd - exponentStart < 4) {
+                exponent = exponent * 10 + (bytes[exponentEnd++] - '0');
+            }
+            if (exponentEnd > exponentStart) {
+                exponent = negativeExponent ? -exponent : exponent;
+                i = exponentEnd;
+            }
+        }
+        if (i != end || digits == 0) {
+            // Whitespace, NaN, Infinity, hexadecimal and type suffixes are left to the JDK
+            return jdkDouble(bytes, offset, length);
+        }
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        int power = exponent - scale;
+        if (mantissa < EXACT_DOUBLE_MANTISSA && power >= -22 && power <= 22) {
+            double value = power >= 0
+                    ? (double) mantissa * DOUBLE_POWERS_OF_TEN[power]
+                    : (double) mantissa / DOUBLE_POWERS_OF_TEN[-power];
+            return negative ? -value : value;
+        }
+        return jdkDouble(bytes, offset, length);
+    }
+
+    /**
+     * Parses a float, with a fast path for mantissas and powers of ten that are exact in single precision.
+     */
+    static float parseFloat(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i++] == '-';
+        }
+        long mantissa = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean dot = false;
+        for (; i < end; i++) {
+            byte c = bytes[i];
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (dot) {
+                    scale++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa >= EXACT_FLOAT_MANTISSA) {
+                    break;
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (i != end || digits == 0 || scale > 10) {
+            return jdkFloat(bytes, offset, length);
+        }
+        float value = (float) mantissa / FLOAT_POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses {@code true}/{@code false} (ignoring case) or {@code 1}/{@code 0}.
+     */
+    static boolean parseBoolean(byte[] bytes, int offset, int length) {
+        if (length == 1) {
+            if (bytes[offset] == '1') return true;
+            if (bytes[offset] == '0') return false;
+        } else if (length == 4 && equalsIgnoreCase(bytes, offset, "true")) {
+            return true;
+        } else if (length == 5 && equalsIgnoreCase(bytes, offset, "false")) {
+            return false;
+        }
+        throw invalid("Invalid boolean value: " + decode(bytes, offset, length));
+    }
+
+    static char parseChar(byte[] bytes, int offset, int length) {
+        if (length == 1 && bytes[offset] >= 0) {
+            return (char) bytes[offset];
+        }
+        String value = decode(bytes, offset, length);
+        if (value.length() != 1) {
+            throw invalid("Invalid char value: " + value);
+        }
+        return value.charAt(0);
+    }
+
+    /**
+     * Parses a BigDecimal, building plain decimals of up to 18 digits from their unscaled value.
+     */
+    static BigDecimal parseBigDecimal(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i++] == '-';
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean dot = false;
+        for (; i < end && digits <= MAX_MANTISSA_DIGITS; i++) {
+            byte c = bytes[i];
+            if (c >= '0' && c <= '9') {
+                unscaled = unscaled * 10 + (c - '0');
+                digits++;
+                if (dot) {
+                    scale++;
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (i != end || digits == 0 || digits > MAX_MANTISSA_DIGITS) {
+            return jdkBigDecimal(bytes, offset, length);
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+    }
+
+    /**
+     * Parses an ISO-8601 date, reading {@code yyyy-MM-dd} directly.
+     */
+    static LocalDate parseLocalDate(byte[] bytes, int offset, int length) {
+        if (length == 10 && bytes[offset + 4] == '-' && bytes[offset + 7] == '-') {
+            int year = digits(bytes, offset, 4);
+            int month = digits(bytes, offset + 5, 2);
+            int day = digits(bytes, offset + 8, 2);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                if (month < 1 || month > 12 || day < 1 || day > 31) {
+                    throw invalid("Invalid date value: " + decode(bytes, offset, length));
+                }
+                try {
+                    return LocalDate.of(year, month, day);
+                } catch (DateTimeException e) {
+                    throw invalid(e.getMessage()); // A day past the end of the month
+                }
+            }
+        }
+        try {
+            return LocalDate.parse(decode(bytes, offset, length));
+        } catch (DateTimeException e) {
+            throw invalid(e.getMessage());
+        }
+    }
+
+    /**
+     * Parses an ISO-8601 time, reading {@code HH:mm:ss} directly.
+     */
+    static LocalTime parseLocalTime(byte[] bytes, int offset, int length) {
+        if (length == 8 && bytes[offset + 2] == ':' && bytes[offset + 5] == ':') {
+            int hour = digits(bytes, offset, 2);
+            int minute = digits(bytes, offset + 3, 2);
+            int second = digits(bytes, offset + 6, 2);
+            if (hour >= 0 && minute >= 0 && second >= 0) {
+                if (hour > 23 || minute > 59 || second > 59) {
+                    throw invalid("Invalid time value: " + decode(bytes, offset, length));
+                }
+                return LocalTime.of(hour, minute, second);
+            }
+        }
+        try {
+            return LocalTime.parse(decode(bytes, offset, length));
+        } catch (DateTimeException e) {
+            throw invalid(e.getMessage());
+        }
+    }
+
+    /**
+     * Parses an ISO-8601 date-time, reading {@code yyyy-MM-ddTHH:mm:ss} directly.
+     */
+    static LocalDateTime parseLocalDateTime(byte[] bytes, int offset, int length) {
+        if (length == 19 && bytes[offset + 10] == 'T') {
+            return LocalDateTime.of(parseLocalDate(bytes, offset, 10), parseLocalTime(bytes, offset + 11, 8));
+        }
+        try {
+            return LocalDateTime.parse(decode(bytes, offset, length));
+        } catch (DateTimeException e) {
+            throw invalid(e.getMessage());
+        }
+    }
+
+    /*
+     * The JDK parsers of the shapes the fast paths do not handle. Their exceptions are replaced by
+     * ones without a stack trace, so that rejected values do not keep a trace alive in error reports.
+     */
+
+    private static double jdkDouble(byte[] bytes, int offset, int length) {
+        if (!floatingPointBytes(bytes, offset, length)) {
+            throw numberFormat(bytes, offset, length);
+        }
+        try {
+            return Double.parseDouble(decode(bytes, offset, length));
+        } catch (NumberFormatException e) {
+            throw numberFormat(bytes, offset, length);
+        }
+    }
+
+    private static float jdkFloat(byte[] bytes, int offset, int length) {
+        if (!floatingPointBytes(bytes, offset, length)) {
+            throw numberFormat(bytes, offset, length);
+        }
+        try {
+            return Float.parseFloat(decode(bytes, offset, length));
+        } catch (NumberFormatException e) {
+            throw numberFormat(bytes, offset, length);
+        }
+    }
+
+    private static BigDecimal jdkBigDecimal(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            byte c = bytes[i];
+            if (!(c >= '0' && c <= '9' || c == '.' || c == '-' || c == '+' || c == 'e' || c == 'E')) {
+                throw numberFormat(bytes, offset, length); // Rejected without building the JDK exception
+            }
+        }
+        try {
+            return new BigDecimal(decode(bytes, offset, length));
+        } catch (NumberFormatException e) {
+            throw numberFormat(bytes, offset, length);
+        }
+    }
+
+    /**
+     * @return the value of a run of ASCII digits, or -1 if a byte is not a digit
+     */
+    private static int digits(byte[] bytes, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * @return false if a byte can appear in no value {@link Double#parseDouble} accepts, that is
+     * outside of whitespace, signs, decimal and hexadecimal digits, exponents, type suffixes,
+     * {@code NaN} and {@code Infinity}, so that such values are rejected without building the JDK
+     * exception
+     */
+    private static boolean floatingPointBytes(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            byte c = bytes[i];
+            if (c >= 0 && c <= ' ' || c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F') {
+                continue;
+            }
+            switch (c) {
+                case '+', '-', '.', 'x', 'X', 'p', 'P', 'N', 'I', 'i', 'n', 't', 'y' -> {
+                }
+                default -> {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsIgnoreCase(byte[] bytes, int offset, String ascii) {
+        for (int i = 0; i < ascii.length(); i++) {
+            if ((bytes[offset + i] | 0x20) != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static NumberFormatException numberFormat(byte[] bytes, int offset, int length) {
+        return new InvalidNumber("For input string: \"" + decode(bytes, offset, length) + "\"");
+    }
+
+    /**
+     * Creates the exception of a field that cannot be converted. Files with many bad rows throw it
+     * for every one of them and the import reports the row and offset itself, so it has no stack trace.
+     *
+     * @param message the description of the value
+     * @return the exception to throw
+     */
+    static IllegalArgumentException invalid(String message) {
+        return new InvalidValue(message);
+    }
+
+    private static final class InvalidValue extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        InvalidValue(String message) {
+            super(message);
+        }
+
+        @Override
+        public String toString() {
+            return IllegalArgumentException.class.getName() + ": " + getMessage();
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private static final class InvalidNumber extends NumberFormatException {
+        private static final long serialVersionUID = 1L;
+
+        InvalidNumber(String message) {
+            super(message);
+        }
+
+        @Override
+        public String toString() {
+            return NumberFormatException.class.getName() + ": " + getMessage();
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
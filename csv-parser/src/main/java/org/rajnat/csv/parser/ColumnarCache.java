@@ -0,0 +1,735 @@
+package org.rajnat.csv.parser;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import static java.lang.String.format;
+
+/**
+ * Binary columnar images of the objects imported from CSV files.
+ * <p>
+ * The first list import of a file with {@link CsvImporter#withCache(Path)} records every field it
+ * converts and writes an image of the file for the imported class. Fields of primitive columns are
+ * stored as arrays of their parsed values; the other columns store a dictionary of their distinct
+ * field texts and one dictionary id per row. An image is keyed on the size, modification time and
+ * CRC-32C of the file, the format and a hash of the {@link CsvField} schema of the class and of how
+ * each column is converted. Later imports of the unchanged file memory-map the image and assign the
+ * fields straight from the columns, without tokenizing the file or parsing numbers. Strings, enums
+ * and the other built-in immutable types are converted once per distinct text and shared between
+ * rows; values of custom converters are converted per row from their dictionary text.
+ * <p>
+ * Fields are assigned directly, as by the reflective codec, and rows that could not be converted
+ * are cached as null rows.
+ */
+final class ColumnarCache {
+    private static final Logger log = LoggerFactory.getLogger(ColumnarCache.class);
+
+    static final String SUFFIX = ".cols";
+    private static final int MAGIC = 0x43535643; // "CSVC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 8 + 2 * 3 + 4 + 4;
+    private static final int CHECKSUM_WINDOW = 1 << 26;
+
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte FLOAT = 4;
+    private static final byte SHORT = 5;
+    private static final byte BYTE = 6;
+    private static final byte BOOLEAN = 7;
+    private static final byte CHAR = 8;
+    /** Dictionary column whose values are converted once per entry and shared. */
+    private static final byte SHARED = 9;
+    /** Dictionary column whose values are converted for every row. */
+    private static final byte CONVERTED = 10;
+
+    /** Marks a dictionary entry that failed to convert; only rows cached as null refer to it. */
+    private static final Object FAILED = new Object();
+
+    private final Path directory;
+
+    /**
+     * @param directory the directory holding the images
+     */
+    ColumnarCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Loads the objects of a file from its image.
+     *
+     * @param <T> the type of objects
+     * @param fileName the name of the CSV file
+     * @param format the format the file is read with
+     * @param type the class of the objects
+     * @param registry the converters of the importer
+     * @return the objects in file order, or null if there is no valid image
+     */
+    <T> List<T> load(String fileName, CsvFormat format, Class<T> type, ConverterRegistry registry) {
+        Path image = imageOf(fileName, type);
+        if (!Files.isRegularFile(image)) {
+            return null;
+        }
+        try {
+            Layout<T> layout = Layout.of(type, registry);
+            if (layout == null) {
+                return null;
+            }
+            ByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(image, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    return null;
+                }
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            }
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            Path source = Path.of(fileName);
+            BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+            long fileSize = buffer.getLong();
+            long lastModified = buffer.getLong();
+            long checksum = buffer.getLong();
+            long schemaHash = buffer.getLong();
+            CsvFormat imageFormat = CsvFormat.of(buffer.getChar(), buffer.getChar(), buffer.getChar());
+            int rows = buffer.getInt();
+            int columns = buffer.getInt();
+            if (fileSize != attributes.size() || lastModified != attributes.lastModifiedTime().toMillis()
+                    || schemaHash != layout.hash || !imageFormat.equals(format) || columns != layout.columns.length) {
+                return null;
+            }
+            byte[] kinds = new byte[columns];
+            buffer.get(kinds);
+            if (!Arrays.equals(kinds, layout.kinds) || checksum != checksum(source)) {
+                return null;
+            }
+            return read(buffer, rows, layout);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring the unreadable columnar image of {}: {}", fileName, e.toString());
+            return null;
+        }
+    }
+
+    private static <T> List<T> read(ByteBuffer buffer, int rows, Layout<T> layout) {
+        long[] failed = readBitmap(buffer);
+        ColumnReader[] readers = new ColumnReader[layout.columns.length];
+        for (int c = 0; c < readers.length; c++) {
+            readers[c] = ColumnReader.of(buffer, rows, layout, c);
+        }
+        List<T> objects = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            if (isSet(failed, row)) {
+                objects.add(null);
+                continue;
+            }
+            T object = layout.schema.newInstance();
+            for (ColumnReader reader : readers) {
+                if (reader != null) {
+                    reader.assign(object, row);
+                }
+            }
+            objects.add(object);
+        }
+        return objects;
+    }
+
+    /**
+     * Starts recording the rows of a file as they are imported.
+     *
+     * @param <T> the type of objects
+     * @param fileName the name of the CSV file
+     * @param format the format the file is read with
+     * @param binding the binding of the header of the file
+     * @param registry the converters of the importer
+     * @return the builder, or null if the file or class cannot be cached
+     */
+    <T> Builder<T> builder(String fileName, CsvFormat format, HeaderBinding<T> binding, ConverterRegistry registry) throws IOException {
+        Layout<T> layout = Layout.of(binding.type(), registry);
+        if (layout == null || !binding.codec().headers().equals(Arrays.asList(layout.schema.headerNames()))) {
+            return null;
+        }
+        return new Builder<>(fileName, format, layout, binding.columns(), imageOf(fileName, binding.type()));
+    }
+
+    private Path imageOf(String fileName, Class<?> type) {
+        Path source = Path.of(fileName).toAbsolutePath();
+        return directory.resolve(format("%s.%08x.%s%s", source.getFileName(), source.toString().hashCode(), type.getSimpleName(), SUFFIX));
+    }
+
+    private static long checksum(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += CHECKSUM_WINDOW) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHECKSUM_WINDOW, size - position)));
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static long[] readBitmap(ByteBuffer buffer) {
+        long[] words = new long[buffer.getInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = buffer.getLong();
+        }
+        return words;
+    }
+
+    private static boolean isSet(long[] bitmap, int row) {
+        int word = row >>> 6;
+        return word < bitmap.length && (bitmap[word] & 1L << row) != 0;
+    }
+
+    private static int width(byte kind) {
+        return switch (kind) {
+            case LONG, DOUBLE -> 8;
+            case INT, FLOAT -> 4;
+            case SHORT, CHAR -> 2;
+            case BYTE, BOOLEAN -> 1;
+            default -> 0;
+        };
+    }
+
+    /**
+     * How the columns of a class are converted by a registry.
+     */
+    private static final class Layout<T> {
+        final CsvSchema<T> schema;
+        final CsvSchema.Column[] columns;
+        final byte[] kinds;
+        final CsvConverter<?>[] converters;
+        final long hash;
+
+        private Layout(CsvSchema<T> schema, byte[] kinds, CsvConverter<?>[] converters) {
+            this.schema = schema;
+            this.columns = schema.columns().toArray(new CsvSchema.Column[0]);
+            this.kinds = kinds;
+            this.converters = converters;
+            StringBuilder signature = new StringBuilder(schema.type().getName());
+            for (int c = 0; c < columns.length; c++) {
+                signature.append('|').append(columns[c].name()).append(':').append(columns[c].type().getName())
+                        .append(':').append(kinds[c]);
+                if (converters[c] != null) {
+                    signature.append(':').append(converters[c].getClass().getName());
+                }
+            }
+            byte[] bytes = signature.toString().getBytes(StandardCharsets.UTF_8);
+            long h = 0xcbf29ce484222325L; // 64-bit FNV-1a
+            for (byte b : bytes) {
+                h = (h ^ (b & 0xFF)) * 0x100000001b3L;
+            }
+            this.hash = h;
+        }
+
+        /**
+         * @return the layout, or null if some column cannot be assigned
+         */
+        static <T> Layout<T> of(Class<T> type, ConverterRegistry registry) {
+            CsvSchema<T> schema = CsvSchema.of(type);
+            List<CsvSchema.Column> columns = schema.columns();
+            byte[] kinds = new byte[columns.size()];
+            CsvConverter<?>[] converters = new CsvConverter<?>[kinds.length];
+            for (int c = 0; c < kinds.length; c++) {
+                CsvSchema.Column column = columns.get(c);
+                if (column.exactSetter() == null) {
+                    return null;
+                }
+                if (FieldBinder.isPrimitive(column, registry)) {
+                    kinds[c] = primitiveKind(column.type());
+                } else {
+                    CsvConverter<?> converter;
+                    try {
+                        converter = FieldBinder.converter(column, registry);
+                    } catch (IllegalArgumentException e) {
+                        return null;
+                    }
+                    converters[c] = converter;
+                    // Built-in types are immutable, so one value can be shared by all rows with the same text
+                    kinds[c] = converter instanceof EnumCodec || registry.isBuiltIn(column.type()) ? SHARED : CONVERTED;
+                }
+            }
+            return new Layout<>(schema, kinds, converters);
+        }
+
+        private static byte primitiveKind(Class<?> type) {
+            if (type == int.class) return INT;
+            if (type == long.class) return LONG;
+            if (type == double.class) return DOUBLE;
+            if (type == float.class) return FLOAT;
+            if (type == short.class) return SHORT;
+            if (type == byte.class) return BYTE;
+            if (type == boolean.class) return BOOLEAN;
+            return CHAR;
+        }
+    }
+
+    /**
+     * Records the converted fields of the rows of a file and writes its image.
+     */
+    static final class Builder<T> {
+        private final Path source;
+        private final CsvFormat format;
+        private final Layout<T> layout;
+        private final int[] fileColumns;
+        private final Path image;
+        private final long fileSize;
+        private final long lastModified;
+        private final ColumnBuilder[] columns;
+        private long[] failed = new long[1];
+        private int rows;
+
+        private Builder(String fileName, CsvFormat format, Layout<T> layout, int[] fileColumns, Path image) throws IOException {
+            this.source = Path.of(fileName);
+            this.format = format;
+            this.layout = layout;
+            this.fileColumns = fileColumns;
+            this.image = image;
+            BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+            this.fileSize = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+            this.columns = new ColumnBuilder[layout.kinds.length];
+            for (int c = 0; c < columns.length; c++) {
+                if (fileColumns[c] >= 0) {
+                    columns[c] = width(layout.kinds[c]) > 0 ? new PrimitiveColumnBuilder(layout.kinds[c]) : new DictionaryColumnBuilder();
+                }
+            }
+        }
+
+        /**
+         * Records the fields of the next row, before it is mapped.
+         */
+        void add(CsvRecord record) {
+            int size = record.size();
+            byte[] buffer = record.buffer();
+            for (int c = 0; c < columns.length; c++) {
+                if (columns[c] != null) {
+                    int field = fileColumns[c];
+                    if (field < size) {
+                        columns[c].add(rows, buffer, record.start(field), record.length(field));
+                    } else {
+                        columns[c].absent(rows);
+                    }
+                }
+            }
+            rows++;
+        }
+
+        /**
+         * Marks the last added row as one that could not be converted.
+         */
+        void failed() {
+            failed = set(failed, rows - 1);
+        }
+
+        /**
+         * Writes the image, unless the file changed while it was read.
+         */
+        void write() throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+            if (attributes.size() != fileSize || attributes.lastModifiedTime().toMillis() != lastModified) {
+                return;
+            }
+            long checksum = checksum(source);
+            Files.createDirectories(image.toAbsolutePath().getParent());
+            Path temporary = image.resolveSibling(image.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                Output out = new Output(channel);
+                out.putInt(MAGIC).putInt(VERSION).putLong(fileSize).putLong(lastModified).putLong(checksum).putLong(layout.hash);
+                out.putChar(format.delimiter()).putChar(format.quote()).putChar(format.escape());
+                out.putInt(rows).putInt(columns.length);
+                for (byte kind : layout.kinds) {
+                    out.put(kind);
+                }
+                writeBitmap(out, failed);
+                for (ColumnBuilder column : columns) {
+                    if (column == null) {
+                        out.putInt(-1); // Not in the file
+                    } else {
+                        column.write(out, rows);
+                    }
+                }
+                out.flush();
+            }
+            Files.move(temporary, image, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private abstract static class ColumnBuilder {
+        long[] absent = new long[0];
+
+        abstract void add(int row, byte[] bytes, int offset, int length);
+
+        void absent(int row) {
+            absent = set(absent, row);
+        }
+
+        void write(Output out, int rows) throws IOException {
+            writeBitmap(out, absent);
+        }
+    }
+
+    private static final class PrimitiveColumnBuilder extends ColumnBuilder {
+        private final byte kind;
+        private long[] values = new long[1024];
+
+        PrimitiveColumnBuilder(byte kind) {
+            this.kind = kind;
+        }
+
+        @Override
+        void add(int row, byte[] bytes, int offset, int length) {
+            grow(row);
+            try {
+                values[row] = switch (kind) {
+                    case INT -> ByteParsers.parseInt(bytes, offset, length);
+                    case LONG -> ByteParsers.parseLong(bytes, offset, length);
+                    case DOUBLE -> Double.doubleToRawLongBits(ByteParsers.parseDouble(bytes, offset, length));
+                    case FLOAT -> Float.floatToRawIntBits(ByteParsers.parseFloat(bytes, offset, length));
+                    case SHORT -> ByteParsers.parseShort(bytes, offset, length);
+                    case BYTE -> ByteParsers.parseByte(bytes, offset, length);
+                    case BOOLEAN -> ByteParsers.parseBoolean(bytes, offset, length) ? 1 : 0;
+                    default -> ByteParsers.parseChar(bytes, offset, length);
+                };
+            } catch (RuntimeException e) {
+                values[row] = 0; // The row fails to map and is cached as null
+            }
+        }
+
+        @Override
+        void absent(int row) {
+            super.absent(row);
+            grow(row);
+        }
+
+        private void grow(int row) {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, row << 1);
+            }
+        }
+
+        @Override
+        void write(Output out, int rows) throws IOException {
+            super.write(out, rows);
+            for (int row = 0; row < rows; row++) {
+                long value = values[row];
+                switch (width(kind)) {
+                    case 8 -> out.putLong(value);
+                    case 4 -> out.putInt((int) value);
+                    case 2 -> out.putChar((char) value);
+                    default -> out.put((byte) value);
+                }
+            }
+        }
+    }
+
+    private static final class DictionaryColumnBuilder extends ColumnBuilder {
+        private final Map<Entry, Integer> dictionary = new HashMap<>();
+        private byte[] entries = new byte[1024];
+        private int entriesSize;
+        private int[] offsets = new int[64];
+        private int[] ids = new int[1024];
+
+        @Override
+        void add(int row, byte[] bytes, int offset, int length) {
+            grow(row);
+            Entry key = new Entry(bytes, offset, length);
+            Integer id = dictionary.get(key);
+            if (id == null) {
+                id = dictionary.size();
+                if (entriesSize + length > entries.length) {
+                    entries = Arrays.copyOf(entries, Math.max(entries.length << 1, entriesSize + length));
+                }
+                System.arraycopy(bytes, offset, entries, entriesSize, length);
+                if (id + 1 >= offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length << 1);
+                }
+                offsets[id] = entriesSize;
+                entriesSize += length;
+                offsets[id + 1] = entriesSize;
+                dictionary.put(new Entry(Arrays.copyOfRange(bytes, offset, offset + length), 0, length), id);
+            }
+            ids[row] = id;
+        }
+
+        @Override
+        void absent(int row) {
+            super.absent(row);
+            grow(row);
+        }
+
+        private void grow(int row) {
+            if (row == ids.length) {
+                ids = Arrays.copyOf(ids, row << 1);
+            }
+        }
+
+        @Override
+        void write(Output out, int rows) throws IOException {
+            super.write(out, rows);
+            int count = dictionary.size();
+            out.putInt(count);
+            for (int i = 0; i <= count; i++) {
+                out.putInt(offsets[i]);
+            }
+            out.put(entries, entriesSize);
+            for (int row = 0; row < rows; row++) {
+                out.putInt(ids[row]);
+            }
+        }
+    }
+
+    /**
+     * A dictionary key over a byte range.
+     */
+    private static final class Entry {
+        private final byte[] bytes;
+        private final int offset;
+        private final int length;
+        private final int hash;
+
+        Entry(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+            int h = 1;
+            for (int i = offset; i < offset + length; i++) {
+                h = 31 * h + bytes[i];
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry e && Arrays.equals(bytes, offset, offset + length, e.bytes, e.offset, e.offset + e.length);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Assigns one column of the cached rows to objects.
+     */
+    private abstract static class ColumnReader {
+        final CsvSchema.Column column;
+        final MethodHandle setter;
+        final long[] absent;
+
+        ColumnReader(CsvSchema.Column column, long[] absent) {
+            this.column = column;
+            this.setter = column.exactSetter();
+            this.absent = absent;
+        }
+
+        /**
+         * Reads the column at the position of the buffer.
+         *
+         * @return the reader, or null if the file does not have the column
+         */
+        static ColumnReader of(ByteBuffer buffer, int rows, Layout<?> layout, int c) {
+            int words = buffer.getInt(buffer.position());
+            if (words < 0) {
+                buffer.getInt();
+                return null;
+            }
+            long[] absent = readBitmap(buffer);
+            byte kind = layout.kinds[c];
+            CsvSchema.Column column = layout.columns[c];
+            int width = width(kind);
+            if (width > 0) {
+                ByteBuffer values = buffer.slice(buffer.position(), rows * width).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.position(buffer.position() + rows * width);
+                return new PrimitiveColumnReader(column, absent, kind, values);
+            }
+            int count = buffer.getInt();
+            int[] offsets = new int[count + 1];
+            buffer.asIntBuffer().get(offsets);
+            buffer.position(buffer.position() + 4 * (count + 1));
+            byte[] entries = new byte[offsets[count]];
+            buffer.get(entries);
+            int[] ids = new int[rows];
+            buffer.asIntBuffer().get(ids);
+            buffer.position(buffer.position() + 4 * rows);
+            return new DictionaryColumnReader(column, absent, layout.converters[c], kind == SHARED, entries, offsets, ids);
+        }
+
+        final void assign(Object target, int row) {
+            if (isSet(absent, row)) {
+                return;
+            }
+            try {
+                set(target, row);
+            } catch (Throwable t) {
+                throw FieldBinder.propagate(t);
+            }
+        }
+
+        abstract void set(Object target, int row) throws Throwable;
+    }
+
+    private static final class PrimitiveColumnReader extends ColumnReader {
+        private final byte kind;
+        private final ByteBuffer values;
+
+        PrimitiveColumnReader(CsvSchema.Column column, long[] absent, byte kind, ByteBuffer values) {
+            super(column, absent);
+            this.kind = kind;
+            this.values = values;
+        }
+
+        @Override
+        void set(Object target, int row) throws Throwable {
+            switch (kind) {
+                case INT -> setter.invokeExact(target, values.getInt(row << 2));
+                case LONG -> setter.invokeExact(target, values.getLong(row << 3));
+                case DOUBLE -> setter.invokeExact(target, values.getDouble(row << 3));
+                case FLOAT -> setter.invokeExact(target, values.getFloat(row << 2));
+                case SHORT -> setter.invokeExact(target, values.getShort(row << 1));
+                case BYTE -> setter.invokeExact(target, values.get(row));
+                case BOOLEAN -> setter.invokeExact(target, values.get(row) != 0);
+                default -> setter.invokeExact(target, values.getChar(row << 1));
+            }
+        }
+    }
+
+    private static final class DictionaryColumnReader extends ColumnReader {
+        private final CsvConverter<?> converter;
+        private final byte[] entries;
+        private final int[] offsets;
+        private final int[] ids;
+        private final Object[] values;
+
+        DictionaryColumnReader(CsvSchema.Column column, long[] absent, CsvConverter<?> converter, boolean shared,
+                               byte[] entries, int[] offsets, int[] ids) {
+            super(column, absent);
+            this.converter = converter;
+            this.entries = entries;
+            this.offsets = offsets;
+            this.ids = ids;
+            if (shared) {
+                values = new Object[offsets.length - 1];
+                for (int i = 0; i < values.length; i++) {
+                    try {
+                        values[i] = converter.parse(entries, offsets[i], offsets[i + 1] - offsets[i]);
+                    } catch (RuntimeException e) {
+                        values[i] = FAILED;
+                    }
+                }
+            } else {
+                values = null;
+            }
+        }
+
+        @Override
+        void set(Object target, int row) {
+            int id = ids[row];
+            Object value = values != null ? values[id] : converter.parse(entries, offsets[id], offsets[id + 1] - offsets[id]);
+            if (value == FAILED) {
+                throw new IllegalStateException(format("The cached value of %s cannot be converted", column.field()));
+            }
+            column.set(target, value);
+        }
+    }
+
+    /**
+     * Buffered little-endian output to a channel.
+     */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        Output put(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+            return this;
+        }
+
+        Output putChar(char value) throws IOException {
+            ensure(2);
+            buffer.putChar(value);
+            return this;
+        }
+
+        Output putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+            return this;
+        }
+
+        Output putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+            return this;
+        }
+
+        void put(byte[] bytes, int length) throws IOException {
+            for (int written = 0; written < length; ) {
+                ensure(1);
+                int n = Math.min(buffer.remaining(), length - written);
+                buffer.put(bytes, written, n);
+                written += n;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+
+    private static void writeBitmap(Output out, long[] bitmap) throws IOException {
+        int words = bitmap.length;
+        while (words > 0 && bitmap[words - 1] == 0) {
+            words--;
+        }
+        out.putInt(words);
+        for (int i = 0; i < words; i++) {
+            out.putLong(bitmap[i]);
+        }
+    }
+
+    private static long[] set(long[] bitmap, int row) {
+        int word = row >>> 6;
+        if (word >= bitmap.length) {
+            bitmap = Arrays.copyOf(bitmap, Math.max(bitmap.length << 1, word + 1));
+        }
+        bitmap[word] |= 1L << row;
+        return bitmap;
+    }
+}
@@ -0,0 +1,159 @@
+package org.rajnat.csv.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compression of CSV files.
+ * <p>
+ * Files are written compressed when their name ends with {@code .gz} (gzip) or with {@code .zz} or
+ * {@code .deflate} (zlib). On input, gzip is detected from its magic bytes whatever the file is
+ * called, while zlib, which has no reliable signature, is detected from the extension. Compressed
+ * input is inflated on its own virtual thread by a {@link ReadAheadInputStream}, so decompression
+ * overlaps with tokenizing.
+ */
+enum Compression {
+    NONE,
+    GZIP,
+    DEFLATE;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int GZIP_MAGIC_1 = 0x1F;
+    private static final int GZIP_MAGIC_2 = 0x8B;
+
+    /**
+     * @param fileName the name of the file
+     * @return the compression implied by the extension of the file
+     */
+    static Compression forFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) {
+            return GZIP;
+        }
+        if (name.endsWith(".zz") || name.endsWith(".deflate")) {
+            return DEFLATE;
+        }
+        return NONE;
+    }
+
+    /**
+     * Detects the compression of an existing file from its first bytes, or its extension for zlib.
+     *
+     * @param fileName the name of the file
+     * @return the compression of the file
+     * @throws IOException if the file cannot be read
+     */
+    static Compression detect(String fileName) throws IOException {
+        try (InputStream in = new FileInputStream(fileName)) {
+            if (in.read() == GZIP_MAGIC_1 && in.read() == GZIP_MAGIC_2) {
+                return GZIP;
+            }
+        }
+        return forFileName(fileName) == DEFLATE ? DEFLATE : NONE;
+    }
+
+    /**
+     * Opens a file for reading, inflating it on a read-ahead thread if it is compressed.
+     *
+     * @param fileName the name of the file
+     * @return the uncompressed content of the file
+     * @throws IOException if the file cannot be opened
+     */
+    static InputStream openInput(String fileName) throws IOException {
+        return detect(fileName).open(fileName);
+    }
+
+    /**
+     * Opens a file for writing, replacing its content and compressing it as implied by its extension.
+     *
+     * @param fileName the name of the file
+     * @return the channel receiving the uncompressed content
+     * @throws IOException if the file cannot be opened
+     */
+    static WritableByteChannel openOutput(String fileName) throws IOException {
+        return forFileName(fileName).create(fileName);
+    }
+
+    /**
+     * Opens a file for reading, inflating it on the calling thread if it is compressed. Used by
+     * readers that read ahead themselves, such as {@link CsvPipeline}.
+     *
+     * @param fileName the name of the file
+     * @return the uncompressed content of the file
+     * @throws IOException if the file cannot be opened
+     */
+    static ReadableByteChannel openChannel(String fileName) throws IOException {
+        Compression compression = detect(fileName);
+        if (compression == NONE) {
+            return FileChannel.open(Path.of(fileName), StandardOpenOption.READ);
+        }
+        InputStream file = new FileInputStream(fileName);
+        try {
+            return Channels.newChannel(compression.inflate(file));
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private InputStream open(String fileName) throws IOException {
+        InputStream file = new FileInputStream(fileName);
+        try {
+            return switch (this) {
+                case NONE -> file;
+                case GZIP -> new ReadAheadInputStream(inflate(file), "csv-gunzip");
+                case DEFLATE -> new ReadAheadInputStream(inflate(file), "csv-inflate");
+            };
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private InputStream inflate(InputStream file) throws IOException {
+        return switch (this) {
+            case NONE -> file;
+            case GZIP -> new GZIPInputStream(file, BUFFER_SIZE);
+            case DEFLATE -> new InflaterInputStream(new BufferedInputStream(file, BUFFER_SIZE));
+        };
+    }
+
+    /**
+     * Creates a file for writing with this compression, ignoring its extension.
+     *
+     * @param fileName the name of the file
+     * @return the channel receiving the uncompressed content
+     * @throws IOException if the file cannot be opened
+     */
+    WritableByteChannel create(String fileName) throws IOException {
+        Path path = Path.of(fileName);
+        if (this == NONE) {
+            return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+        OutputStream file = Files.newOutputStream(path);
+        try {
+            return Channels.newChannel(this == GZIP
+                    ? new GZIPOutputStream(file, BUFFER_SIZE)
+                    : new DeflaterOutputStream(new BufferedOutputStream(file, BUFFER_SIZE)));
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package org.rajnat.csv.parser;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static java.lang.String.format;
+
+/**
+ * Registry of the {@link CsvConverter}s used to import field values.
+ * <p>
+ * The default registry covers Strings, all primitives and their wrappers, {@link BigDecimal},
+ * {@link BigInteger}, {@link UUID}, the ISO-8601 {@code java.time} types and enums. Primitive fields
+ * are parsed straight from the field bytes and written through exact method handles, so they are
+ * neither boxed nor decoded to a String. Empty fields convert to {@code null} for object types other
+ * than String. Registries are immutable; {@link #with(Class, CsvConverter)} returns a copy with an
+ * additional converter, which also replaces the built-in handling of a primitive type.
+ */
+public final class ConverterRegistry {
+    private static final Map<Class<?>, CsvConverter<?>> BUILT_INS = builtIns();
+    private static final ConverterRegistry DEFAULTS = new ConverterRegistry(BUILT_INS);
+
+    private final Map<Class<?>, CsvConverter<?>> converters;
+    private final boolean overridesBuiltIns;
+    private final ClassValue<CsvCodec<?>> codecs = new ClassValue<>() {
+        @Override
+        protected CsvCodec<?> computeValue(Class<?> type) {
+            return createCodec(type);
+        }
+    };
+
+    private ConverterRegistry(Map<Class<?>, CsvConverter<?>> converters) {
+        this.converters = converters;
+        this.overridesBuiltIns = converters.entrySet().stream()
+                .anyMatch(e -> e.getKey().isEnum() || BUILT_INS.containsKey(e.getKey()) && e.getValue() != BUILT_INS.get(e.getKey()));
+    }
+
+    /**
+     * @return the registry with the built-in converters
+     */
+    public static ConverterRegistry defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Returns a copy of this registry that converts the given type with a custom converter.
+     *
+     * @param <V> the converted type
+     * @param type the field type, which may be primitive
+     * @param converter the converter for the type
+     * @return a new registry
+     */
+    public <V> ConverterRegistry with(Class<V> type, CsvConverter<? extends V> converter) {
+        Map<Class<?>, CsvConverter<?>> copy = new HashMap<>(converters);
+        copy.put(type, converter);
+        return new ConverterRegistry(Map.copyOf(copy));
+    }
+
+    /**
+     * Finds the converter of a type.
+     *
+     * @param <V> the converted type
+     * @param type the field type
+     * @return the converter, or null if the type is not supported
+     */
+    @SuppressWarnings("unchecked")
+    public <V> CsvConverter<V> find(Class<V> type) {
+        CsvConverter<?> converter = converters.get(type);
+        if (converter == null && type.isEnum()) {
+            converter = EnumCodec.forType(type);
+        }
+        return (CsvConverter<V>) converter;
+    }
+
+    /**
+     * Finds the converter of a type that must be supported.
+     *
+     * @param <V> the converted type
+     * @param type the field type
+     * @return the converter
+     * @throws IllegalArgumentException if the type has no converter
+     */
+    public <V> CsvConverter<V> require(Class<V> type) {
+        CsvConverter<V> converter = find(type);
+        if (converter == null) {
+            throw new IllegalArgumentException(format("No converter registered for type %s", type.getName()));
+        }
+        return converter;
+    }
+
+    /**
+     * Creates the converter of an enum column.
+     *
+     * @param <E> the enum type
+     * @param type the enum class
+     * @param labels the CSV text of each constant in ordinal order, or none to use the constant names
+     * @return the converter
+     * @throws IllegalArgumentException if the number of labels does not match the constants
+     */
+    @SuppressWarnings("unchecked")
+    public static <E extends Enum<E>> CsvConverter<E> enumConverter(Class<E> type, String... labels) {
+        return (CsvConverter<E>) (labels.length == 0 ? EnumCodec.forType(type) : EnumCodec.create(type, labels));
+    }
+
+    /**
+     * Returns a new String converter that shares repeated values through a bounded dictionary, as
+     * used for the columns of {@link CsvDedup}. Generated codecs create one per deduplicated column.
+     *
+     * @param maxEntries the number of distinct values kept before falling back to plain Strings
+     * @return the converter
+     */
+    public static CsvConverter<String> stringDictionary(int maxEntries) {
+        return new StringDictionary(maxEntries);
+    }
+
+    /**
+     * @return true if the type is converted by the built-in converter rather than a custom one
+     */
+    boolean isBuiltIn(Class<?> type) {
+        CsvConverter<?> converter = converters.get(type);
+        return converter != null && converter == BUILT_INS.get(type);
+    }
+
+    /**
+     * Returns the codec importing a class, built once per class and registry, or once per call for
+     * classes with deduplicated String columns.
+     * <p>
+     * The generated codec of the class is used unless this registry replaces the conversion of a
+     * primitive, String or enum type; the fields are bound reflectively otherwise.
+     *
+     * @param <T> the imported type
+     * @param type the imported class
+     * @return the codec
+     * @throws IllegalArgumentException if a field has no converter
+     */
+    @SuppressWarnings("unchecked")
+    <T> CsvCodec<T> codec(Class<T> type) {
+        // Codecs holding String dictionaries are created per file, so that every import starts with empty dictionaries
+        return (CsvCodec<T>) (CsvSchema.of(type).deduplicates() ? createCodec(type) : codecs.get(type));
+    }
+
+    /**
+     * Returns the codec importing a class, built once per class and registry even for classes with
+     * deduplicated String columns, for callers that map single rows without a file to scope it to.
+     * Its dictionaries are shared by all such calls and stop growing once full.
+     *
+     * @param <T> the imported type
+     * @param type the imported class
+     * @return the codec
+     * @throws IllegalArgumentException if a field has no converter
+     */
+    @SuppressWarnings("unchecked")
+    <T> CsvCodec<T> sharedCodec(Class<T> type) {
+        return (CsvCodec<T>) codecs.get(type);
+    }
+
+    private CsvCodec<?> createCodec(Class<?> type) {
+        // Generated codecs parse primitives, Strings and enums themselves
+        CsvCodec<?> generated = overridesBuiltIns ? null : GeneratedCodecs.find(type, this);
+        if (generated != null) {
+            return generated;
+        }
+        CsvSchema<?> schema = CsvSchema.of(type);
+        FieldBinder[] binders = schema.columns().stream()
+                .map(column -> FieldBinder.of(column, this))
+                .toArray(FieldBinder[]::new);
+        return new ReflectiveCodec<>(schema, binders);
+    }
+
+    private static Map<Class<?>, CsvConverter<?>> builtIns() {
+        Map<Class<?>, CsvConverter<?>> builtIns = new HashMap<>();
+        builtIns.put(String.class, new CsvConverter<String>() {
+            @Override
+            public String parse(byte[] bytes, int offset, int length) {
+                return ByteParsers.decode(bytes, offset, length);
+            }
+
+            @Override
+            public String parse(String value) {
+                return value;
+            }
+        });
+        register(builtIns, int.class, Integer.class, builtIn(ByteParsers::parseInt, Integer::valueOf));
+        register(builtIns, long.class, Long.class, builtIn(ByteParsers::parseLong, Long::valueOf));
+        register(builtIns, short.class, Short.class, builtIn(ByteParsers::parseShort, Short::valueOf));
+        register(builtIns, byte.class, Byte.class, builtIn(ByteParsers::parseByte, Byte::valueOf));
+        register(builtIns, double.class, Double.class, builtIn(ByteParsers::parseDouble, Double::valueOf));
+        register(builtIns, float.class, Float.class, builtIn(ByteParsers::parseFloat, Float::valueOf));
+        register(builtIns, boolean.class, Boolean.class, fromBytes(ByteParsers::parseBoolean));
+        register(builtIns, char.class, Character.class, fromBytes(ByteParsers::parseChar));
+        builtIns.put(BigDecimal.class, builtIn(ByteParsers::parseBigDecimal, BigDecimal::new));
+        builtIns.put(BigInteger.class, fromString(BigInteger::new));
+        builtIns.put(UUID.class, fromString(UUID::fromString));
+        builtIns.put(LocalDate.class, builtIn(ByteParsers::parseLocalDate, LocalDate::parse));
+        builtIns.put(LocalTime.class, builtIn(ByteParsers::parseLocalTime, LocalTime::parse));
+        builtIns.put(LocalDateTime.class, builtIn(ByteParsers::parseLocalDateTime, LocalDateTime::parse));
+        builtIns.put(Instant.class, fromString(Instant::parse));
+        builtIns.put(OffsetDateTime.class, fromString(OffsetDateTime::parse));
+        builtIns.put(ZonedDateTime.class, fromString(ZonedDateTime::parse));
+        return Map.copyOf(builtIns);
+    }
+
+    private static <V> void register(Map<Class<?>, CsvConverter<?>> builtIns, Class<?> primitive, Class<V> wrapper, CsvConverter<V> converter) {
+        builtIns.put(primitive, converter);
+        builtIns.put(wrapper, converter);
+    }
+
+    /**
+     * A converter for types that are parsed from a String by the JDK.
+     */
+    private static <V> CsvConverter<V> fromString(Function<String, V> parser) {
+        return builtIn((bytes, offset, length) -> parser.apply(ByteParsers.decode(bytes, offset, length)), parser);
+    }
+
+    /**
+     * A converter for types that are parsed from bytes only.
+     */
+    private static <V> CsvConverter<V> fromBytes(CsvConverter<V> parser) {
+        return builtIn(parser, parser::parse);
+    }
+
+    /**
+     * A converter that maps empty fields to null and parses decoded Strings without re-encoding them.
+     */
+    private static <V> CsvConverter<V> builtIn(CsvConverter<V> fromBytes, Function<String, V> fromString) {
+        return new CsvConverter<>() {
+            @Override
+            public V parse(byte[] bytes, int offset, int length) {
+                return length == 0 ? null : fromBytes.parse(bytes, offset, length);
+            }
+
+            @Override
+            public V parse(String value) {
+                return value.isEmpty() ? null : fromString.apply(value);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return format("ConverterRegistry%s", converters.keySet());
+    }
+}
@@ -0,0 +1,36 @@
+package org.rajnat.csv.parser;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for a batch of rows processed by one stage, committed by {@link CsvMeter}
+ * once the stage is done with the batch.
+ */
+@Name("org.rajnat.csv.Batch")
+@Label("CSV Batch")
+@Description("Batch of rows processed by a stage of a CSV import or export")
+@Category("CSV")
+@StackTrace(false)
+final class CsvBatchEvent extends Event {
+    @Label("File")
+    String fileName;
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Busy Time")
+    @Timespan
+    long busyTime;
+
+    @Label("Queue Depth")
+    int queueDepth;
+}
@@ -0,0 +1,109 @@
+package org.rajnat.csv.parser;
+
+/**
+ * The size of the batches of a batched import, as a number of rows, a budget of bytes, or both.
+ * <p>
+ * A batch ends once it holds the maximum number of rows or once the field bytes of its records reach
+ * the budget, whichever comes first, so a batch always holds at least one row. The budget counts the
+ * UTF-8 bytes of the fields as read, which bounds the size of text-heavy batches better than a row
+ * count. Sizes are immutable; every method returns a copy.
+ * <pre>{@code
+ * CsvBatchSize size = CsvBatchSize.rows(1000).withMaxBytes(4 << 20);
+ * }</pre>
+ */
+public final class CsvBatchSize {
+    /** The largest initial capacity of batch lists, which grow past it as rows are added. */
+    private static final int DEFAULT_CAPACITY = 1 << 10;
+
+    private final int maxRows;
+    private final long maxBytes;
+
+    private CsvBatchSize(int maxRows, long maxBytes) {
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param rows the number of rows of a batch
+     * @return the size of batches of a number of rows
+     * @throws IllegalArgumentException if {@code rows} is not positive
+     */
+    public static CsvBatchSize rows(int rows) {
+        return new CsvBatchSize(checkRows(rows), Long.MAX_VALUE);
+    }
+
+    /**
+     * @param bytes the budget of field bytes of a batch
+     * @return the size of batches of a number of bytes
+     * @throws IllegalArgumentException if {@code bytes} is not positive
+     */
+    public static CsvBatchSize bytes(long bytes) {
+        return new CsvBatchSize(Integer.MAX_VALUE, checkBytes(bytes));
+    }
+
+    /**
+     * Returns a copy that also ends batches once they reach a budget of field bytes.
+     *
+     * @param bytes the budget of field bytes of a batch
+     * @return a new size
+     * @throws IllegalArgumentException if {@code bytes} is not positive
+     */
+    public CsvBatchSize withMaxBytes(long bytes) {
+        return new CsvBatchSize(maxRows, checkBytes(bytes));
+    }
+
+    /**
+     * Returns a copy that also ends batches once they hold a number of rows.
+     *
+     * @param rows the number of rows of a batch
+     * @return a new size
+     * @throws IllegalArgumentException if {@code rows} is not positive
+     */
+    public CsvBatchSize withMaxRows(int rows) {
+        return new CsvBatchSize(checkRows(rows), maxBytes);
+    }
+
+    public int maxRows() {
+        return maxRows;
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return the capacity to allocate batch lists with, small enough that a large maximum number of
+     * rows, which a byte budget may end batches well before, allocates nothing up front
+     */
+    int capacity() {
+        return Math.min(maxRows, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param rows the number of rows in a batch
+     * @param bytes the field bytes of the records of the batch
+     * @return whether the batch is complete
+     */
+    boolean isFull(int rows, long bytes) {
+        return rows >= maxRows || bytes >= maxBytes;
+    }
+
+    private static int checkRows(int rows) {
+        if (rows <= 0) {
+            throw new IllegalArgumentException("rows must be positive: " + rows);
+        }
+        return rows;
+    }
+
+    private static long checkBytes(long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("bytes must be positive: " + bytes);
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "CsvBatchSize[maxRows=" + maxRows + ", maxBytes=" + maxBytes + "]";
+    }
+}
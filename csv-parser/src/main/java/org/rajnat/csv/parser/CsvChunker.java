@@ -0,0 +1,277 @@
+package org.rajnat.csv.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Splits the records of a CSV file into chunks that can be parsed independently.
+ * <p>
+ * The file is cut right after line feeds roughly every {@code size / (parallelism * 4)} bytes. A cut
+ * may fall inside a quoted field, so every segment between two cuts is scanned in parallel with the
+ * record state machine of {@link CsvTokenizer} twice: once assuming the segment starts outside quotes
+ * and once assuming it starts inside a quoted field. After a line feed the tokenizer can only be in
+ * one of those two states, so chaining the end states of the segments from the header onward picks
+ * the right scan for each segment and yields the exact offset of its first record. The scan assuming
+ * quotes usually merges with the other one at the first closing quote and is then dropped.
+ * <p>
+ * Files that only use CR line endings are not cut and form a single chunk. A file with a valid
+ * {@link CsvIndex} is cut at its indexed rows instead, which are exact record starts.
+ */
+final class CsvChunker {
+    static final long MIN_CHUNK_SIZE = 1L << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int ESCAPED = 3;
+    private static final int QUOTE_SEEN = 4;
+
+    /**
+     * The records of a file starting at or after {@code start} and before {@code end}. The last record
+     * may extend past {@code end}.
+     *
+     * @param start the offset of the first record
+     * @param end the offset at which the next chunk starts
+     */
+    record Chunk(long start, long end) {
+    }
+
+    /**
+     * The end states of a segment scanned from both possible start states.
+     *
+     * @param outsideEnd the end state when the segment starts outside quotes
+     * @param insideEnd the end state when the segment starts inside a quoted field
+     * @param insideFirstRecord the offset of the first record when the segment starts inside a quoted field, or -1
+     */
+    private record Segment(int outsideEnd, int insideEnd, long insideFirstRecord) {
+    }
+
+    /**
+     * The progress of the state machine over one segment.
+     */
+    private static final class Run {
+        int state;
+        long firstRecordEnd = -1;
+
+        Run(int state) {
+            this.state = state;
+        }
+    }
+
+    private final FileChannel channel;
+    private final byte delimiter;
+    private final byte quote;
+    private final byte escape;
+    private final long delimiterMask;
+    private final long quoteMask;
+    private final long escapeMask;
+
+    private CsvChunker(FileChannel channel, CsvFormat format) {
+        this.channel = channel;
+        this.delimiter = (byte) format.delimiter();
+        this.quote = (byte) format.quote();
+        this.escape = (byte) format.escape();
+        this.delimiterMask = CsvTokenizer.broadcast(delimiter);
+        this.quoteMask = CsvTokenizer.broadcast(quote);
+        this.escapeMask = CsvTokenizer.broadcast(escape);
+    }
+
+    /**
+     * Splits the records of a file. Segments are scanned with a parallel stream, so they run in the
+     * fork-join pool of the calling thread.
+     *
+     * @param channel the channel of the file
+     * @param format the format of the file
+     * @param dataStart the offset of the first record after the header line
+     * @param parallelism the number of threads that will parse the chunks
+     * @return the non-empty chunks in file order
+     * @throws IOException if reading the file fails
+     */
+    static List<Chunk> split(FileChannel channel, CsvFormat format, long dataStart, int parallelism) throws IOException {
+        return new CsvChunker(channel, format).split(dataStart, parallelism);
+    }
+
+    /**
+     * Splits the records of a file at the rows recorded in its index, without reading the file.
+     *
+     * @param index a valid index of the file
+     * @param parallelism the number of threads that will parse the chunks
+     * @return the non-empty chunks in file order
+     */
+    static List<Chunk> split(CsvIndex index, int parallelism) {
+        long[] offsets = index.offsets();
+        long size = index.fileSize();
+        List<Chunk> chunks = new ArrayList<>();
+        if (offsets.length == 0) {
+            return chunks;
+        }
+        long chunkSize = Math.max(MIN_CHUNK_SIZE, (size - offsets[0]) / ((long) Math.max(parallelism, 1) * CHUNKS_PER_THREAD));
+        long start = offsets[0];
+        for (int i = 1; i < offsets.length; i++) {
+            if (offsets[i] - start >= chunkSize) {
+                chunks.add(new Chunk(start, offsets[i]));
+                start = offsets[i];
+            }
+        }
+        chunks.add(new Chunk(start, size));
+        return chunks;
+    }
+
+    private List<Chunk> split(long dataStart, int parallelism) throws IOException {
+        long size = channel.size();
+        long chunkSize = Math.max(MIN_CHUNK_SIZE, (size - dataStart) / ((long) Math.max(parallelism, 1) * CHUNKS_PER_THREAD));
+        List<Long> cuts = new ArrayList<>();
+        cuts.add(dataStart);
+        for (long nominal = dataStart + chunkSize; nominal < size; ) {
+            long cut = nextLineStart(nominal, size);
+            if (cut >= size) {
+                break;
+            }
+            cuts.add(cut);
+            nominal = cut + chunkSize;
+        }
+        cuts.add(size);
+
+        List<Segment> segments;
+        try {
+            segments = IntStream.range(0, cuts.size() - 1).parallel()
+                    .mapToObj(i -> scan(cuts.get(i), cuts.get(i + 1)))
+                    .toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        boolean quoted = false;
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            long end = cuts.get(i + 1);
+            long start;
+            if (quoted) {
+                start = segment.insideFirstRecord() < 0 ? end : segment.insideFirstRecord();
+                quoted = segment.insideEnd() != FIELD_START;
+            } else {
+                start = cuts.get(i);
+                quoted = segment.outsideEnd() != FIELD_START;
+            }
+            if (start < end) {
+                chunks.add(new Chunk(start, end));
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * @return the offset after the first line feed at or after {@code from}, or {@code size}
+     */
+    private long nextLineStart(long from, long size) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        try (InputStream in = new MappedInputStream(channel, from, size)) {
+            long offset = from;
+            int n;
+            while ((n = in.readNBytes(buf, 0, buf.length)) > 0) {
+                int p = CsvTokenizer.scan(buf, 0, n, CsvTokenizer.LF_MASK);
+                if (p < n) {
+                    return offset + p + 1;
+                }
+                offset += n;
+            }
+        }
+        return size;
+    }
+
+    private Segment scan(long from, long to) {
+        Run outside = new Run(FIELD_START);
+        Run inside = new Run(QUOTED);
+        boolean merged = false;
+        byte[] buf = new byte[BUFFER_SIZE];
+        try (InputStream in = new MappedInputStream(channel, from, to)) {
+            long offset = from;
+            int n;
+            while ((n = in.readNBytes(buf, 0, buf.length)) > 0) {
+                run(outside, buf, n, offset);
+                if (!merged) {
+                    run(inside, buf, n, offset);
+                    // Once in the same state at the same offset, both scans continue identically
+                    merged = inside.state == outside.state && inside.firstRecordEnd >= 0;
+                }
+                offset += n;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Segment(outside.state, merged ? outside.state : inside.state, inside.firstRecordEnd);
+    }
+
+    /**
+     * Advances the state machine of the tokenizer over a buffer, recording where the first record ends.
+     */
+    private void run(Run run, byte[] buf, int length, long offset) {
+        int state = run.state;
+        int p = 0;
+        while (p < length) {
+            switch (state) {
+                case FIELD_START -> {
+                    byte b = buf[p++];
+                    if (b == quote) {
+                        state = QUOTED;
+                    } else if (b == '\n' || b == '\r') {
+                        recordEnd(run, offset + p);
+                    } else if (b != delimiter) {
+                        state = UNQUOTED;
+                    }
+                }
+                case UNQUOTED -> {
+                    // Also covers the characters after a closing quote, which the tokenizer keeps
+                    p = CsvTokenizer.scan(buf, p, length, delimiterMask, CsvTokenizer.LF_MASK, CsvTokenizer.CR_MASK);
+                    if (p < length) {
+                        if (buf[p++] != delimiter) {
+                            recordEnd(run, offset + p);
+                        }
+                        state = FIELD_START;
+                    }
+                }
+                case QUOTED -> {
+                    p = quote == escape
+                            ? CsvTokenizer.scan(buf, p, length, quoteMask)
+                            : CsvTokenizer.scan(buf, p, length, quoteMask, escapeMask);
+                    if (p < length) {
+                        if (buf[p++] != quote) {
+                            state = ESCAPED;
+                        } else {
+                            state = quote == escape ? QUOTE_SEEN : UNQUOTED;
+                        }
+                    }
+                }
+                case ESCAPED -> {
+                    p++;
+                    state = QUOTED;
+                }
+                case QUOTE_SEEN -> {
+                    // A doubled quote is escaped, anything else follows the closing quote
+                    if (buf[p] == quote) {
+                        p++;
+                        state = QUOTED;
+                    } else {
+                        state = UNQUOTED;
+                    }
+                }
+                default -> throw new IllegalStateException("Unknown state " + state);
+            }
+        }
+        run.state = state;
+    }
+
+    private static void recordEnd(Run run, long offset) {
+        if (run.firstRecordEnd < 0) {
+            run.firstRecordEnd = offset;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.rajnat.csv.parser;
+
+import java.util.List;
+
+/**
+ * Reads and writes the CSV columns of one type.
+ * <p>
+ * The {@code csv-processor} annotation processor generates a codec named {@code <Type>_CsvCodec} next
+ * to every class with {@link CsvField} annotated fields, accessing the fields directly or through
+ * their getters and setters. {@link CsvImporter} and {@link CsvExporter} use the generated codec when
+ * it is on the class path and bind fields reflectively otherwise. A generated codec has a public
+ * constructor taking the {@link ConverterRegistry} used to convert imported fields, or {@code null}
+ * for a codec that only writes.
+ *
+ * @param <T> the type of the rows
+ */
+public interface CsvCodec<T> {
+
+    /**
+     * @return the column names, sorted by {@link CsvField#order()}
+     */
+    List<String> headers();
+
+    /**
+     * Creates an object from a row.
+     *
+     * @param row the fields of the row
+     * @param columns for each column of {@link #headers()}, its field index in the row or -1 if the
+     *                file does not contain it
+     * @return the new object
+     */
+    T read(CsvRow row, int[] columns);
+
+    /**
+     * Populates an existing object from a row, so that one instance can be reused for many rows.
+     * <p>
+     * Only the columns present in the row are assigned; the other fields keep their current values.
+     * The default implementation cannot reuse objects and returns {@link #read(CsvRow, int[])}.
+     *
+     * @param row the fields of the row
+     * @param columns for each column of {@link #headers()}, its field index in the row or -1 if the
+     *                file does not contain it
+     * @param target the object to populate
+     * @return the populated object, {@code target} unless the codec creates a new one
+     */
+    default T read(CsvRow row, int[] columns, T target) {
+        return read(row, columns);
+    }
+
+    /**
+     * Writes the columns of an object, in the order of {@link #headers()}.
+     *
+     * @param value the object to write
+     * @param writer the writer receiving the fields
+     */
+    void write(T value, CsvRowWriter writer);
+}
@@ -0,0 +1,36 @@
+package org.rajnat.csv.parser;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts the raw UTF-8 bytes of a CSV field to a value of a field type.
+ * <p>
+ * Converters are registered per type in a {@link ConverterRegistry}. They receive the field as a
+ * range of a buffer that is reused for the next row, so they must not keep a reference to it.
+ *
+ * @param <V> the converted type
+ */
+@FunctionalInterface
+public interface CsvConverter<V> {
+
+    /**
+     * Converts a field.
+     *
+     * @param bytes the buffer holding the field
+     * @param offset the offset of the field in the buffer
+     * @param length the length of the field in bytes
+     * @return the converted value
+     */
+    V parse(byte[] bytes, int offset, int length);
+
+    /**
+     * Converts a field that is already decoded to a String.
+     *
+     * @param value the field value
+     * @return the converted value
+     */
+    default V parse(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return parse(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,24 @@
+package org.rajnat.csv.parser;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Shares the repeated values of every String column of a class through a bounded dictionary per
+ * column, so that a column holding a handful of distinct values keeps a handful of Strings alive
+ * instead of one per row. Single columns can opt in with {@link CsvField#dedup()} instead.
+ * <p>
+ * Values are looked up by the hash of their raw bytes, so repeated values are found without
+ * decoding them. Once a column has seen more than {@link #maxEntries()} distinct values it stops
+ * looking them up and decodes every value, so high-cardinality columns pay no lookups. Every import
+ * of a file starts with empty dictionaries, shared by the threads of a parallel import, so Strings
+ * are only kept alive by the imported objects.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CsvDedup {
+    int DEFAULT_MAX_ENTRIES = 4096;
+
+    int maxEntries() default DEFAULT_MAX_ENTRIES;  // Distinct values per column before falling back to plain Strings
+}
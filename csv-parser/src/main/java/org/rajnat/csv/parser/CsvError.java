@@ -0,0 +1,18 @@
+package org.rajnat.csv.parser;
+
+import java.util.List;
+
+/**
+ * A row that could not be converted to an object, reported to the sink of a {@link CsvErrorPolicy}.
+ *
+ * @param fileName the name of the file
+ * @param row the number of the row, counted from 0 after the header line as in row ranges, or -1
+ *            when the row was read by a parallel reader that does not count the rows before it
+ * @param offset the byte offset of the record in the file, or in the inflated content of a
+ *               compressed file
+ * @param fields the fields of the record; with a {@link CsvQuery} selecting columns, the fields that
+ *               are neither selected nor tested are empty
+ * @param cause the exception of the field that failed to convert
+ */
+public record CsvError(String fileName, long row, long offset, List<String> fields, Exception cause) {
+}
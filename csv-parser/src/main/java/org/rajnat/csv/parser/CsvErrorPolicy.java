@@ -0,0 +1,178 @@
+package org.rajnat.csv.parser;
+
+import org.rajnat.csv.exception.CsvErrorLimitException;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * What an import does with rows that cannot be converted to objects.
+ * <p>
+ * By default a failed row is a null entry of list imports and streams and is skipped by visitors,
+ * and only the first failures of every file are logged, followed by a count of the others once the
+ * file has been read. A policy may also drop failed rows from lists and streams, hand every failure
+ * to a sink, write the failed records to a dead-letter file next to the input, and abort imports
+ * with a {@link CsvErrorLimitException} once a number or share of the rows failed. Policies are
+ * immutable; every method returns a copy.
+ * <pre>{@code
+ * List<CsvError> errors = new ArrayList<>();
+ * CsvErrorPolicy policy = CsvErrorPolicy.defaults()
+ *         .skipFailed()
+ *         .onError(errors::add)
+ *         .abortAbove(0.01, 1000);
+ * }</pre>
+ * Fields of the built-in types that fail to convert throw exceptions without a stack trace, also
+ * when their value was handed to a JDK parser, so files with many bad rows cost little more to
+ * import than valid ones as long as nothing is logged per row.
+ */
+public final class CsvErrorPolicy {
+    private static final CsvErrorPolicy DEFAULTS = new CsvErrorPolicy(false, null, false, Long.MAX_VALUE, 1, Long.MAX_VALUE, 10);
+
+    /** The suffix appended to the name of a file to name its dead-letter file. */
+    public static final String DEAD_LETTER_SUFFIX = ".rejected.csv";
+
+    private final boolean skipFailed;
+    private final Consumer<? super CsvError> sink;
+    private final boolean deadLetter;
+    private final long maxErrors;
+    private final double maxRate;
+    private final long minRows;
+    private final int logLimit;
+
+    private CsvErrorPolicy(boolean skipFailed, Consumer<? super CsvError> sink, boolean deadLetter, long maxErrors,
+                           double maxRate, long minRows, int logLimit) {
+        this.skipFailed = skipFailed;
+        this.sink = sink;
+        this.deadLetter = deadLetter;
+        this.maxErrors = maxErrors;
+        this.maxRate = maxRate;
+        this.minRows = minRows;
+        this.logLimit = logLimit;
+    }
+
+    /**
+     * @return the policy keeping failed rows as null entries, logging the first 10 of every file
+     */
+    public static CsvErrorPolicy defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Returns a copy that drops failed rows from list imports and streams instead of returning null
+     * for them.
+     *
+     * @return a new policy
+     */
+    public CsvErrorPolicy skipFailed() {
+        return new CsvErrorPolicy(true, sink, deadLetter, maxErrors, maxRate, minRows, logLimit);
+    }
+
+    /**
+     * Returns a copy that hands every failed row to a sink, for example {@code errors::add} to
+     * collect them. The sink is called on the thread that mapped the row, but never concurrently
+     * for the rows of one file. An exception thrown by the sink aborts the import.
+     *
+     * @param sink the receiver of the failures
+     * @return a new policy
+     */
+    public CsvErrorPolicy onError(Consumer<? super CsvError> sink) {
+        return new CsvErrorPolicy(skipFailed, Objects.requireNonNull(sink, "sink"), deadLetter, maxErrors, maxRate, minRows, logLimit);
+    }
+
+    /**
+     * Returns a copy that writes the failed records of every file to a dead-letter file named after
+     * it with {@link #DEAD_LETTER_SUFFIX}. The dead-letter file is RFC 4180 CSV with the columns
+     * {@code Row}, {@code Offset} and {@code Error} followed by the columns of the input, so that the
+     * rows can be fixed and imported again with the same class. It is replaced by every import of
+     * the file that has failed rows and deleted by every complete import that has none.
+     *
+     * @return a new policy
+     */
+    public CsvErrorPolicy deadLetter() {
+        return new CsvErrorPolicy(skipFailed, sink, true, maxErrors, maxRate, minRows, logLimit);
+    }
+
+    /**
+     * Returns a copy that aborts the import of a file as soon as more than a number of its rows failed.
+     *
+     * @param maxErrors the number of failed rows tolerated, 0 to abort on the first one
+     * @return a new policy
+     * @throws IllegalArgumentException if {@code maxErrors} is negative
+     */
+    public CsvErrorPolicy abortAfter(long maxErrors) {
+        if (maxErrors < 0) {
+            throw new IllegalArgumentException("maxErrors must not be negative: " + maxErrors);
+        }
+        return new CsvErrorPolicy(skipFailed, sink, deadLetter, maxErrors, maxRate, minRows, logLimit);
+    }
+
+    /**
+     * Returns a copy that aborts the import of a file when more than a share of the rows read so far
+     * failed, once at least {@code minRows} rows have been read. Sequential and pipelined imports
+     * check the share on every failure; parallel imports of uncompressed files, which do not know
+     * how many rows were read before a failure, check it once all chunks have been read.
+     *
+     * @param maxRate the share of failed rows tolerated, between 0 and 1
+     * @param minRows the number of rows to read before the share is checked
+     * @return a new policy
+     * @throws IllegalArgumentException if {@code maxRate} is not between 0 and 1 or {@code minRows} is not positive
+     */
+    public CsvErrorPolicy abortAbove(double maxRate, long minRows) {
+        if (!(maxRate >= 0 && maxRate <= 1)) {
+            throw new IllegalArgumentException("maxRate must be between 0 and 1: " + maxRate);
+        }
+        if (minRows <= 0) {
+            throw new IllegalArgumentException("minRows must be positive: " + minRows);
+        }
+        return new CsvErrorPolicy(skipFailed, sink, deadLetter, maxErrors, maxRate, minRows, logLimit);
+    }
+
+    /**
+     * Returns a copy that logs a number of failed rows of every file individually; the others are
+     * only counted in a summary logged once the file has been read.
+     *
+     * @param rows the number of failed rows logged per file, 0 to only log the summary
+     * @return a new policy
+     * @throws IllegalArgumentException if {@code rows} is negative
+     */
+    public CsvErrorPolicy logFirst(int rows) {
+        if (rows < 0) {
+            throw new IllegalArgumentException("rows must not be negative: " + rows);
+        }
+        return new CsvErrorPolicy(skipFailed, sink, deadLetter, maxErrors, maxRate, minRows, rows);
+    }
+
+    boolean skipsFailed() {
+        return skipFailed;
+    }
+
+    Consumer<? super CsvError> sink() {
+        return sink;
+    }
+
+    boolean writesDeadLetter() {
+        return deadLetter;
+    }
+
+    long maxErrors() {
+        return maxErrors;
+    }
+
+    double maxRate() {
+        return maxRate;
+    }
+
+    long minRows() {
+        return minRows;
+    }
+
+    int logLimit() {
+        return logLimit;
+    }
+
+    @Override
+    public String toString() {
+        return "CsvErrorPolicy[skipFailed=" + skipFailed + ", sink=" + (sink != null) + ", deadLetter=" + deadLetter
+                + ", maxErrors=" + maxErrors + ", maxRate=" + maxRate + ", minRows=" + minRows + ", logLimit=" + logLimit + "]";
+    }
+}
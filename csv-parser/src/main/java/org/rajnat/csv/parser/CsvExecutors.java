@@ -0,0 +1,108 @@
+package org.rajnat.csv.parser;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for the asynchronous methods of {@link CsvImporter} and {@link CsvExporter}.
+ * <p>
+ * Import and export block on file I/O, so running many of them on {@code ForkJoinPool.commonPool()}
+ * starves other users of the pool. {@link #virtualThreads(int)} runs every job on its own virtual
+ * thread instead and bounds how many jobs run at the same time, so hundreds of jobs can be submitted
+ * without tying up platform threads.
+ */
+public final class CsvExecutors {
+    private static final ThreadFactory VIRTUAL_THREADS = Thread.ofVirtual().name("csv-", 0).factory();
+    private static final Executor VIRTUAL_THREAD_PER_TASK = task -> VIRTUAL_THREADS.newThread(task).start();
+
+    private CsvExecutors() {
+    }
+
+    /**
+     * @return an executor starting a new virtual thread for every task; it needs no shutdown
+     */
+    public static Executor virtualThreads() {
+        return VIRTUAL_THREAD_PER_TASK;
+    }
+
+    /**
+     * @param maxConcurrency the maximum number of tasks running at the same time
+     * @return an executor starting a new virtual thread for every task, running at most
+     * {@code maxConcurrency} of them at a time
+     */
+    public static Executor virtualThreads(int maxConcurrency) {
+        return limited(VIRTUAL_THREAD_PER_TASK, maxConcurrency);
+    }
+
+    /**
+     * Bounds the number of tasks an executor runs at the same time.
+     * <p>
+     * Tasks over the limit are queued without blocking the submitting thread and handed to the
+     * executor as running tasks complete, in submission order.
+     *
+     * @param executor the executor running the tasks
+     * @param maxConcurrency the maximum number of tasks running at the same time
+     * @return the limited executor
+     * @throws IllegalArgumentException if {@code maxConcurrency} is not positive
+     */
+    public static Executor limited(Executor executor, int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        return new LimitedExecutor(Objects.requireNonNull(executor, "executor"), maxConcurrency);
+    }
+
+    private static final class LimitedExecutor implements Executor {
+        private final Executor executor;
+        private final int maxConcurrency;
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger running = new AtomicInteger();
+
+        LimitedExecutor(Executor executor, int maxConcurrency) {
+            this.executor = executor;
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            queue.add(Objects.requireNonNull(task, "task"));
+            drain();
+        }
+
+        private void drain() {
+            while (!queue.isEmpty()) {
+                int current = running.get();
+                if (current >= maxConcurrency) {
+                    return; // A running task drains the queue when it completes
+                }
+                if (!running.compareAndSet(current, current + 1)) {
+                    continue;
+                }
+                Runnable task = queue.poll();
+                if (task == null) {
+                    running.decrementAndGet();
+                    continue;
+                }
+                try {
+                    executor.execute(() -> run(task));
+                } catch (RuntimeException e) {
+                    running.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+
+        private void run(Runnable task) {
+            try {
+                task.run();
+            } finally {
+                running.decrementAndGet();
+                drain();
+            }
+        }
+    }
+}
@@ -4,23 +4,65 @@ import org.rajnat.csv.exception.CsvParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.lang.reflect.Field;
-import java.util.Arrays;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
-import static java.lang.String.format;
-
 public class CsvExporter implements Exporter {
     private static final Logger log = LoggerFactory.getLogger(CsvExporter.class);
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private final Executor executor;
+    private final CsvMetrics metrics;
+
+    /**
+     * Creates an exporter that runs on {@code ForkJoinPool.commonPool()}.
+     */
+    public CsvExporter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an exporter that runs its asynchronous methods on the given executor.
+     * <p>
+     * Use {@link CsvExecutors#virtualThreads(int)} to keep blocking file writes off the common
+     * fork-join pool.
+     *
+     * @param executor the executor running the exports
+     */
+    public CsvExporter(Executor executor) {
+        this(executor, CsvMetrics.NONE);
+    }
+
+    private CsvExporter(Executor executor, CsvMetrics metrics) {
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns a copy of this exporter that reports the rows, bytes and stage times of every exported
+     * file to a listener.
+     *
+     * @param metrics the thread-safe listener
+     * @return a new exporter
+     */
+    public CsvExporter withMetrics(CsvMetrics metrics) {
+        return new CsvExporter(executor, Objects.requireNonNull(metrics, "metrics"));
+    }
 
     /**
      * Exports a list of objects to a CSV file asynchronously.
+     * <p>
+     * The file is gzip-compressed when its name ends with {@code .gz} and zlib-compressed when it
+     * ends with {@code .zz} or {@code .deflate}; this applies to every export method. The header is
+     * derived from the class of the first element, so an empty list fails with a
+     * {@link CsvParseException}. Use {@link #exportToCsv(List, Class, String)} to also write the
+     * header of an empty list.
      *
      * @param <T>      the type of objects in the list
      * @param data     the list of objects to export
@@ -28,19 +70,86 @@ public class CsvExporter implements Exporter {
      * @return a CompletableFuture representing the asynchronous operation
      */
     public <T> CompletableFuture<?> exportToCsv(List<T> data, String fileName) {
+        return exportToCsv(data, null, fileName);
+    }
+
+    /**
+     * Exports a list of objects to a CSV file asynchronously, taking the header from the schema of
+     * {@code clazz}, so that an empty list is written as a file holding only the header.
+     *
+     * @param <T>      the type of objects in the list
+     * @param data     the list of objects to export
+     * @param clazz    the class whose annotated fields define the columns
+     * @param fileName the name of the output CSV file
+     * @return a CompletableFuture representing the asynchronous operation
+     */
+    public <T> CompletableFuture<?> exportToCsv(List<T> data, Class<T> clazz, String fileName) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                CsvExporter.writeDataToCsv(data, exportCodec(data, clazz), fileName, meter(fileName));
+                return "Export successful"; // return success message or status
+            } catch (IOException | CsvParseException e) {
+                CsvExporter.log.error("Failed to export data to CSV", e);
+                throw new RuntimeException(e); // Rethrow as unchecked exception
+            }
+        }, executor);
+    }
+
+    /**
+     * Exports a list of objects to a CSV file asynchronously, formatting the rows in parallel.
+     * <p>
+     * The list is split into chunks that are encoded on a fork-join pool, the executor when it is a
+     * {@link ForkJoinPool} and the common pool otherwise, while a single thread writes the encoded
+     * chunks to the file in list order. The file has the same content as with
+     * {@link #exportToCsv(List, String)}; this pays off for large lists, where formatting rather than
+     * writing dominates. A {@code .gz} file is written as a standard multi-member gzip file whose
+     * members are compressed in parallel with the encoding, like pigz. As with
+     * {@link #exportToCsv(List, String)}, an empty list fails with a {@link CsvParseException}; use
+     * {@link #exportToCsvParallel(List, Class, String)} to also write the header of an empty list.
+     *
+     * @param <T>      the type of objects in the list
+     * @param data     the list of objects to export, which must not change during the export
+     * @param fileName the name of the output CSV file
+     * @return a CompletableFuture representing the asynchronous operation
+     */
+    public <T> CompletableFuture<?> exportToCsvParallel(List<T> data, String fileName) {
+        return exportToCsvParallel(data, null, fileName);
+    }
+
+    /**
+     * Exports a list of objects to a CSV file asynchronously, formatting the rows in parallel as
+     * {@link #exportToCsvParallel(List, String)} does and taking the header from the schema of
+     * {@code clazz}, so that an empty list is written as a file holding only the header.
+     *
+     * @param <T>      the type of objects in the list
+     * @param data     the list of objects to export, which must not change during the export
+     * @param clazz    the class whose annotated fields define the columns
+     * @param fileName the name of the output CSV file
+     * @return a CompletableFuture representing the asynchronous operation
+     */
+    public <T> CompletableFuture<?> exportToCsvParallel(List<T> data, Class<T> clazz, String fileName) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                CsvExporter.writeDataToCsv(data, fileName);
+                CsvCodec<Object> codec = exportCodec(data, clazz);
+                CsvMeter meter = meter(fileName);
+                try {
+                    ParallelCsvWriter.write(codec, data, fileName, meter);
+                } finally {
+                    meter.finish();
+                }
                 return "Export successful"; // return success message or status
             } catch (IOException | CsvParseException e) {
                 CsvExporter.log.error("Failed to export data to CSV", e);
                 throw new RuntimeException(e); // Rethrow as unchecked exception
             }
-        });
+        }, executor);
     }
 
     /**
      * Exports a stream of objects to a CSV file asynchronously.
+     * <p>
+     * The stream is consumed in a single pass and the header is derived from the class of its first
+     * element. Use {@link #exportToCsv(Stream, Class, String)} to also write the header of an empty stream.
      *
      * @param <T>        the type of objects in the stream
      * @param dataStream the stream of objects to export
@@ -48,15 +157,32 @@ public class CsvExporter implements Exporter {
      * @return a CompletableFuture representing the asynchronous operation
      */
     public <T> CompletableFuture<?> exportToCsv(Stream<T> dataStream, String fileName) {
+        return exportToCsv(dataStream, null, fileName);
+    }
+
+    /**
+     * Exports a stream of objects to a CSV file asynchronously.
+     * <p>
+     * The header is taken from the schema of {@code clazz} and rows are written as the stream produces
+     * them, so memory use stays constant regardless of the number of rows. The stream is closed once
+     * it has been written.
+     *
+     * @param <T>        the type of objects in the stream
+     * @param dataStream the stream of objects to export
+     * @param clazz      the class whose annotated fields define the columns
+     * @param fileName   the name of the output CSV file
+     * @return a CompletableFuture representing the asynchronous operation
+     */
+    public <T> CompletableFuture<?> exportToCsv(Stream<T> dataStream, Class<T> clazz, String fileName) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                CsvExporter.writeDataToCsv(dataStream, fileName);
+                CsvExporter.writeDataToCsv(dataStream, clazz, fileName, meter(fileName));
                 return "Export successful"; // return success message or status
             } catch (IOException | CsvParseException e) {
                 CsvExporter.log.error("Failed to export data to CSV", e);
                 throw new RuntimeException(e); // Rethrow as unchecked exception
             }
-        });
+        }, executor);
     }
 
     /**
@@ -64,26 +190,38 @@ public class CsvExporter implements Exporter {
      *
      * @param <T> the type of objects in the stream
      * @param dataStream the stream of objects to export
+     * @param clazz the class defining the columns, or null to use the class of the first element
      * @param fileName the name of the output CSV file
+     * @param meter the meter of the file
      * @throws IOException if an I/O error occurs while writing to the file
+     * @throws CsvParseException if there is a problem parsing the CSV data
      */
-    private static <T> void writeDataToCsv(Stream<T> dataStream, String fileName) throws IOException, CsvParseException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
-            // Obtain a sample object for header generation
-            T firstObject = dataStream.findFirst().orElseThrow(() -> new RuntimeException("The stream is empty"));
-
-            // Write header
-            writer.write(getCsvHeader(firstObject));
-            writer.newLine();
-
-            // Reset the stream after finding the first element
-            Stream<T> remainingData = dataStream.skip(1);
+    private static <T> void writeDataToCsv(Stream<T> dataStream, Class<T> clazz, String fileName, CsvMeter meter) throws IOException, CsvParseException {
+        long begin = meter.clock();
+        try (dataStream; WritableByteChannel channel = openChannel(fileName)) {
+            Iterator<T> iterator = dataStream.iterator();
+            Class<?> type = clazz;
+            T firstObject = null;
+            if (type == null) {
+                // Only peek at the first element; it is written along with the rest below
+                if (!iterator.hasNext()) {
+                    throw new CsvParseException("The stream is empty");
+                }
+                firstObject = iterator.next();
+                type = firstObject.getClass();
+            }
 
-            // Write data rows
-            for (T object : remainingData.collect(Collectors.toList())) {
-                writer.write(getCsvRow(object));
-                writer.newLine();
+            CsvCodec<Object> codec = exportCodec(type);
+            Utf8RowWriter writer = new Utf8RowWriter(WRITE_BUFFER_SIZE);
+            writeHeader(writer, codec);
+            if (firstObject != null) {
+                writeRow(writer, codec, firstObject);
+                meter.rows(1);
             }
+            writeRows(channel, writer, codec, iterator, meter);
+            drain(channel, writer, meter);
+        } finally {
+            finish(meter, begin);
         }
     }
 
@@ -92,80 +230,122 @@ public class CsvExporter implements Exporter {
      *
      * @param <T> the type of objects in the list
      * @param data the list of objects to export
+     * @param codec the codec of the exported class
      * @param fileName the name of the output CSV file
+     * @param meter the meter of the file
      * @throws IOException if an I/O error occurs while writing to the file
      * @throws CsvParseException if there is a problem parsing the CSV data
      */
-    private static <T> void writeDataToCsv(List<T> data, String fileName) throws IOException, CsvParseException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
-            // Write header
-            writer.write(getCsvHeader(data.get(0)));
-            writer.newLine();
+    private static <T> void writeDataToCsv(List<T> data, CsvCodec<Object> codec, String fileName, CsvMeter meter) throws IOException, CsvParseException {
+        long begin = meter.clock();
+        try (WritableByteChannel channel = openChannel(fileName)) {
+            Utf8RowWriter writer = new Utf8RowWriter(WRITE_BUFFER_SIZE);
+            writeHeader(writer, codec);
+            writeRows(channel, writer, codec, data.iterator(), meter);
+            drain(channel, writer, meter);
+        } finally {
+            finish(meter, begin);
+        }
+    }
 
-            // Write data rows
-            for (T object : data) {
-                writer.write(getCsvRow(object));
-                writer.newLine();
-            }
+    private CsvMeter meter(String fileName) {
+        return CsvMeter.start(metrics, CsvStats.Operation.EXPORT, fileName);
+    }
+
+    /**
+     * Finishes the meter of a sequential export, whose time not spent writing was spent encoding,
+     * including the time the data stream took to produce the objects.
+     */
+    private static void finish(CsvMeter meter, long begin) {
+        meter.nanos(CsvStage.ENCODE, meter.clock() - begin - meter.nanos(CsvStage.WRITE));
+        meter.finish();
+    }
+
+    /**
+     * Opens the output file, replacing its content and compressing it when its name ends with
+     * {@code .gz}, {@code .zz} or {@code .deflate}. Rows are encoded into a buffer that is drained to
+     * the channel in fixed-size chunks, so they never accumulate in memory.
+     */
+    private static WritableByteChannel openChannel(String fileName) throws IOException {
+        return Compression.openOutput(fileName);
+    }
+
+    /**
+     * Returns the codec writing the annotated fields of a class, generated at compile time when the
+     * {@code csv-processor} annotation processor ran over the class.
+     */
+    @SuppressWarnings("unchecked")
+    private static CsvCodec<Object> exportCodec(Class<?> type) {
+        return (CsvCodec<Object>) GeneratedCodecs.exportCodec(type);
+    }
+
+    /**
+     * @param data the exported list
+     * @param clazz the class defining the columns, or null to use the class of the first element
+     * @return the codec of the exported class
+     * @throws CsvParseException if {@code clazz} is null and the list is empty
+     */
+    private static CsvCodec<Object> exportCodec(List<?> data, Class<?> clazz) throws CsvParseException {
+        if (clazz != null) {
+            return exportCodec(clazz);
+        }
+        if (data.isEmpty()) {
+            throw new CsvParseException("The list is empty");
         }
+        return exportCodec(data.get(0).getClass());
     }
 
     /**
-     * Generates the CSV header based on the fields of an object.
+     * Writes the CSV header based on the annotated fields of a class.
      *
-     * @param <T> the type of the object
-     * @param object the object to extract field names from
-     * @return a comma-separated string representing the CSV header
-     */
-    private static <T> String getCsvHeader(T object) {
-        StringBuilder header = new StringBuilder();
-        Field[] fields = object.getClass().getDeclaredFields();
-
-        // Sort fields based on 'order' value in CsvField
-        List<Field> sortedFields = Arrays.stream(fields)
-                .filter(f -> f.isAnnotationPresent(CsvField.class))
-                .sorted((f1, f2) -> Integer.compare(f1.getAnnotation(CsvField.class).order(),
-                        f2.getAnnotation(CsvField.class).order()))
-                .toList();
-
-        for (Field field : sortedFields) {
-            CsvField annotation = field.getAnnotation(CsvField.class);
-            header.append(annotation.name()).append(",");
+     * @param writer the writer encoding the rows
+     * @param codec the codec of the exported class
+     */
+    static void writeHeader(Utf8RowWriter writer, CsvCodec<?> codec) {
+        for (String header : codec.headers()) {
+            writer.write(header);
+        }
+        writer.endRow();
+    }
+
+    private static void writeRows(WritableByteChannel channel, Utf8RowWriter writer, CsvCodec<Object> codec, Iterator<?> rows,
+                                  CsvMeter meter) throws IOException, CsvParseException {
+        long count = 0;
+        try {
+            while (rows.hasNext()) {
+                writeRow(writer, codec, rows.next());
+                count++;
+                if (writer.size() >= WRITE_BUFFER_SIZE) {
+                    drain(channel, writer, meter);
+                }
+            }
+        } finally {
+            meter.rows(count);
         }
+    }
 
-        return header.toString().replaceAll(",$", ""); // Remove the trailing comma
+    private static void drain(WritableByteChannel channel, Utf8RowWriter writer, CsvMeter meter) throws IOException {
+        long begin = meter.clock();
+        meter.bytes(writer.size());
+        writer.drainTo(channel);
+        meter.nanos(CsvStage.WRITE, meter.clock() - begin);
     }
 
     /**
-     * Generates a CSV row for an object.
+     * Encodes a CSV row for an object.
      *
-     * @param <T> the type of the object
+     * @param writer the writer encoding the rows
+     * @param codec the codec of the exported class
      * @param object the object to extract field values from
-     * @return a comma-separated string representing the CSV row
      * @throws CsvParseException if there is a problem parsing the CSV data
      */
-    private static <T> String getCsvRow(T object) throws CsvParseException {
-        StringBuilder row = new StringBuilder();
-        Field[] fields = object.getClass().getDeclaredFields();
-
-        // Sort fields based on 'order' value in CsvField
-        List<Field> sortedFields = Arrays.stream(fields)
-                .filter(f -> f.isAnnotationPresent(CsvField.class))
-                .sorted((f1, f2) -> Integer.compare(f1.getAnnotation(CsvField.class).order(),
-                        f2.getAnnotation(CsvField.class).order()))
-                .toList();
-
-        for (Field field : sortedFields) {
-            try {
-                field.setAccessible(true); // Make the field accessible even if it's private
-                Object value = field.get(object);
-                row.append(value != null ? value.toString() : "").append(",");
-            } catch (IllegalAccessException e) {
-                log.error("Illegal access Exception while accessing field {}", field, e);
-                throw new CsvParseException(format("Failed to access field: %s", field), e);
-            }
+    static void writeRow(Utf8RowWriter writer, CsvCodec<Object> codec, Object object) throws CsvParseException {
+        try {
+            codec.write(object, writer);
+        } catch (IllegalStateException | ClassCastException e) {
+            log.error("Exception while accessing the fields of {}", object.getClass().getName(), e);
+            throw new CsvParseException(e.getMessage(), e);
         }
-
-        return row.toString().replaceAll(",$", ""); // Remove the trailing comma
+        writer.endRow();
     }
 }
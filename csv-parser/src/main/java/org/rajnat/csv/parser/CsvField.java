@@ -10,5 +10,11 @@ public @interface CsvField {
     String name() default "";  // The column name in the CSV
     int order() default Integer.MAX_VALUE;  // Column order for serialization
     Class<? extends Enum<?>> enumClass() default NoEnum.class;  // Enum class for translation
-    String[] enumValues() default {};  // Corresponding string values for enum constants
+    /**
+     * The CSV text of each enum constant in ordinal order; the constant names when empty. Labels are
+     * matched ignoring case. If the enum declares a static {@code fromString(String)}, it is asked
+     * first and the labels only decode the values it rejects with null or IllegalArgumentException.
+     */
+    String[] enumValues() default {};
+    boolean dedup() default false;  // Share repeated values of a String column, see CsvDedup
 }
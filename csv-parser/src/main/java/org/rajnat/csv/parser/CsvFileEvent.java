@@ -0,0 +1,59 @@
+package org.rajnat.csv.parser;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event spanning the import or export of one file, committed by {@link CsvMeter}.
+ */
+@Name("org.rajnat.csv.File")
+@Label("CSV File")
+@Description("Import or export of a CSV file")
+@Category("CSV")
+@StackTrace(false)
+final class CsvFileEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("File")
+    String fileName;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Failed Rows")
+    long failedRows;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Read Time")
+    @Timespan
+    long readTime;
+
+    @Label("Tokenize Time")
+    @Timespan
+    long tokenizeTime;
+
+    @Label("Map Time")
+    @Timespan
+    long mapTime;
+
+    @Label("Encode Time")
+    @Timespan
+    long encodeTime;
+
+    @Label("Write Time")
+    @Timespan
+    long writeTime;
+
+    @Label("Max Queue Depth")
+    int maxQueueDepth;
+}
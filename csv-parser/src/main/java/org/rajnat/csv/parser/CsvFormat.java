@@ -0,0 +1,90 @@
+package org.rajnat.csv.parser;
+
+import static java.lang.String.format;
+
+/**
+ * The dialect of a CSV file: its delimiter, quote and escape characters.
+ * <p>
+ * The default format follows RFC 4180: fields are separated by commas, may be enclosed in double
+ * quotes, and a double quote inside a quoted field is escaped by doubling it. A different escape
+ * character (for example a backslash) escapes the character that follows it inside quoted fields.
+ * All three characters must be ASCII, as the tokenizer scans raw UTF-8 bytes.
+ */
+public final class CsvFormat {
+    public static final CsvFormat DEFAULT = new CsvFormat(',', '"', '"');
+
+    private final char delimiter;
+    private final char quote;
+    private final char escape;
+
+    private CsvFormat(char delimiter, char quote, char escape) {
+        checkAscii("delimiter", delimiter);
+        checkAscii("quote", quote);
+        checkAscii("escape", escape);
+        if (delimiter == quote || delimiter == escape) {
+            throw new IllegalArgumentException(format("The delimiter '%c' must differ from the quote and escape characters", delimiter));
+        }
+        this.delimiter = delimiter;
+        this.quote = quote;
+        this.escape = escape;
+    }
+
+    /**
+     * Creates a format.
+     *
+     * @param delimiter the character separating fields
+     * @param quote the character enclosing fields that contain delimiters, quotes or line breaks
+     * @param escape the character escaping a quote inside a quoted field, usually the quote itself
+     * @return the format
+     * @throws IllegalArgumentException if a character is not ASCII, is a line break, or the delimiter clashes
+     */
+    public static CsvFormat of(char delimiter, char quote, char escape) {
+        return new CsvFormat(delimiter, quote, escape);
+    }
+
+    public CsvFormat withDelimiter(char delimiter) {
+        return new CsvFormat(delimiter, quote, escape);
+    }
+
+    public CsvFormat withQuote(char quote) {
+        return new CsvFormat(delimiter, quote, escape == this.quote ? quote : escape);
+    }
+
+    public CsvFormat withEscape(char escape) {
+        return new CsvFormat(delimiter, quote, escape);
+    }
+
+    public char delimiter() {
+        return delimiter;
+    }
+
+    public char quote() {
+        return quote;
+    }
+
+    public char escape() {
+        return escape;
+    }
+
+    private static void checkAscii(String role, char c) {
+        if (c >= 0x80 || c == '\n' || c == '\r') {
+            throw new IllegalArgumentException(format("Unsupported %s character: 0x%04x", role, (int) c));
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof CsvFormat other)) return false;
+        return delimiter == other.delimiter && quote == other.quote && escape == other.escape;
+    }
+
+    @Override
+    public int hashCode() {
+        return (delimiter << 16) | (quote << 8) | escape;
+    }
+
+    @Override
+    public String toString() {
+        return format("CsvFormat[delimiter='%c', quote='%c', escape='%c']", delimiter, quote, escape);
+    }
+}
@@ -1,63 +1,836 @@
 package org.rajnat.csv.parser;
 
+import org.rajnat.csv.api.BatchConsumer;
+import org.rajnat.csv.api.RowConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.lang.String.format;
 
 public class CsvImporter implements org.rajnat.csv.api.Importer {
     private static final Logger log = LoggerFactory.getLogger(CsvImporter.class);
-    private final Deserializer deserializer = new Deserializer();
+    private final Deserializer deserializer;
+    private final CsvFormat format;
+    private final Executor executor;
+    private final int indexInterval;
+    private final ColumnarCache cache;
+    private final int mappers;
+    private final Executor stages;
+    private final CsvMetrics metrics;
+    private final CsvErrorPolicy errorPolicy;
+
+    /**
+     * Creates an importer for RFC 4180 files using {@link CsvFormat#DEFAULT}.
+     */
+    public CsvImporter() {
+        this(CsvFormat.DEFAULT);
+    }
+
+    /**
+     * Creates an importer for files in the given format.
+     *
+     * @param format the delimiter, quote and escape characters of the files
+     */
+    public CsvImporter(CsvFormat format) {
+        this(format, ConverterRegistry.defaults());
+    }
+
+    /**
+     * Creates an importer for files in the given format that converts fields with custom converters.
+     *
+     * @param format the delimiter, quote and escape characters of the files
+     * @param converters the converters of the field types
+     */
+    public CsvImporter(CsvFormat format, ConverterRegistry converters) {
+        this(format, converters, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an importer that runs its asynchronous methods on the given executor.
+     * <p>
+     * Use {@link CsvExecutors#virtualThreads(int)} to keep blocking file reads off the common
+     * fork-join pool. The chunks of {@link #importFromCsvParallel(String, Class)} are parsed on the
+     * executor when it is a {@link ForkJoinPool} and on the common pool otherwise.
+     *
+     * @param format the delimiter, quote and escape characters of the files
+     * @param converters the converters of the field types
+     * @param executor the executor running the imports
+     */
+    public CsvImporter(CsvFormat format, ConverterRegistry converters, Executor executor) {
+        this(format, new Deserializer(converters), executor, 0, null, 0, CsvPipeline.STAGES, CsvMetrics.NONE, CsvErrorPolicy.defaults());
+    }
+
+    private CsvImporter(CsvFormat format, Deserializer deserializer, Executor executor, int indexInterval, ColumnarCache cache,
+                        int mappers, Executor stages, CsvMetrics metrics, CsvErrorPolicy errorPolicy) {
+        this.format = format;
+        this.deserializer = deserializer;
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.indexInterval = indexInterval;
+        this.cache = cache;
+        this.mappers = mappers;
+        this.stages = stages;
+        this.metrics = metrics;
+        this.errorPolicy = errorPolicy;
+    }
+
+    /**
+     * Returns a copy of this importer whose sequential imports also write a {@link CsvIndex} of every
+     * uncompressed file they read to the end. Seeks, row ranges and parallel imports of the file then
+     * use the index until the file changes.
+     *
+     * @param interval the number of rows between indexed offsets
+     * @return a new importer
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public CsvImporter withIndex(int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval must be positive: " + interval);
+        }
+        return new CsvImporter(format, deserializer, executor, interval, cache, mappers, stages, metrics, errorPolicy);
+    }
+
+    /**
+     * Returns a copy of this importer that caches the objects of list imports in binary columnar
+     * images. The first sequential list import of a file for a class writes its image; later list
+     * imports of the unchanged file, sequential or parallel, assign the fields from the memory-mapped
+     * image instead of parsing the file. Imports with a {@link CsvQuery} other than
+     * {@link CsvQuery#all()} are not cached.
+     *
+     * @param directory the directory holding the images, shared by all JVMs importing the files
+     * @return a new importer
+     */
+    public CsvImporter withCache(Path directory) {
+        return new CsvImporter(format, deserializer, executor, indexInterval, new ColumnarCache(Objects.requireNonNull(directory, "directory")), mappers, stages, metrics, errorPolicy);
+    }
+
+    /**
+     * Returns a copy of this importer whose list imports run on a {@link CsvPipeline}: one stage
+     * reads and inflates the file, one tokenizes it into batches of records and {@code mappers}
+     * stages map the batches, while the importing thread collects the objects in file order. Imports
+     * that write a columnar image for {@link #withCache(Path)} still read the file sequentially.
+     * <p>
+     * Every stage runs on its own virtual thread, so the stages of concurrent imports share the
+     * carrier threads of the virtual threads instead of adding platform threads; the number of
+     * concurrent imports is bounded by the executor of this importer. Without this option only the
+     * parallel imports of compressed files, which cannot be split into chunks, use a pipeline.
+     *
+     * @param mappers the number of stages mapping rows to objects
+     * @return a new importer
+     * @throws IllegalArgumentException if {@code mappers} is not between 1 and 16
+     */
+    public CsvImporter withPipeline(int mappers) {
+        return withPipeline(mappers, CsvPipeline.STAGES);
+    }
+
+    /**
+     * Returns a copy of this importer whose list imports run on a {@link CsvPipeline} whose stages
+     * run on an executor, see {@link #withPipeline(int)}. The stages wait for each other, so the
+     * executor must run all {@code 2 + mappers} stages of every concurrent import at the same time; a
+     * fixed-size or {@link CsvExecutors#limited(Executor, int) limited} executor that is too small
+     * stalls the imports. The executor of this importer runs the imports themselves and is not used
+     * for the stages for that reason.
+     *
+     * @param mappers the number of stages mapping rows to objects
+     * @param stages the executor running the stages of the pipelines
+     * @return a new importer
+     * @throws IllegalArgumentException if {@code mappers} is not between 1 and 16
+     */
+    public CsvImporter withPipeline(int mappers, Executor stages) {
+        if (mappers <= 0 || mappers > CsvPipeline.MAX_MAPPERS) {
+            throw new IllegalArgumentException("mappers must be between 1 and " + CsvPipeline.MAX_MAPPERS + ": " + mappers);
+        }
+        return new CsvImporter(format, deserializer, executor, indexInterval, cache, mappers, Objects.requireNonNull(stages, "stages"),
+                metrics, errorPolicy);
+    }
+
+    /**
+     * Returns a copy of this importer that reports the rows, bytes, conversion failures and stage
+     * times of every imported file to a listener. Imports served from a columnar image of
+     * {@link #withCache(Path)} and {@link #tail(String, Class)} imports are not reported.
+     *
+     * @param metrics the thread-safe listener
+     * @return a new importer
+     */
+    public CsvImporter withMetrics(CsvMetrics metrics) {
+        return new CsvImporter(format, deserializer, executor, indexInterval, cache, mappers, stages, Objects.requireNonNull(metrics, "metrics"), errorPolicy);
+    }
+
+    /**
+     * Returns a copy of this importer that handles the rows it cannot convert with a policy: drops
+     * them from lists and streams, reports them to a sink or a dead-letter file, or aborts imports
+     * with too many of them. Rows served from a columnar image of {@link #withCache(Path)} are not
+     * reported again, but failed ones are still dropped when the policy skips them.
+     *
+     * @param policy the error policy
+     * @return a new importer
+     */
+    public CsvImporter withErrorPolicy(CsvErrorPolicy policy) {
+        return new CsvImporter(format, deserializer, executor, indexInterval, cache, mappers, stages, metrics, Objects.requireNonNull(policy, "policy"));
+    }
+
+    /**
+     * Indexes a file asynchronously in a dedicated pass that locates rows without converting them.
+     *
+     * @param fileName the name of the uncompressed input CSV file
+     * @param interval the number of rows between indexed offsets
+     * @return a CompletableFuture containing the index, completed exceptionally with an
+     * {@link UncheckedIOException} if the file cannot be read or the index cannot be written
+     */
+    public CompletableFuture<CsvIndex> buildIndex(String fileName, int interval) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return CsvIndex.build(fileName, format, interval);
+            } catch (IOException e) {
+                log.error("Error indexing CSV file: {}", fileName, e);
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
     /**
      * Imports a list of objects from a CSV file asynchronously.
+     * <p>
+     * Gzip files are recognised by their magic bytes and zlib files by a {@code .zz} or
+     * {@code .deflate} extension; both are inflated on a read-ahead thread while the rows are parsed.
+     * This applies to every import method.
      *
      * @param <T> the type of objects to import
      * @param fileName the name of the input CSV file
      * @param clazz the class type of the objects
-     * @return a CompletableFuture containing a list of imported objects
+     * @return a CompletableFuture containing a list of imported objects, completed exceptionally with
+     * an {@link UncheckedIOException} if the file cannot be read
      */
     @Override
     public <T> CompletableFuture<List<T>> importFromCsvAsync(String fileName, Class<T> clazz) {
+        return importFromCsvAsync(fileName, clazz, CsvQuery.all());
+    }
+
+    /**
+     * Imports the rows of a CSV file that match a query asynchronously.
+     * <p>
+     * Rows rejected by the conditions of the query are skipped before they are converted, and only
+     * the selected columns are converted; the other fields keep their default values.
+     *
+     * @param <T> the type of objects to import
+     * @param fileName the name of the input CSV file
+     * @param clazz the class type of the objects
+     * @param query the projection and row filter
+     * @return a CompletableFuture containing a list of imported objects, completed exceptionally with
+     * an {@link UncheckedIOException} if the file cannot be read
+     */
+    public <T> CompletableFuture<List<T>> importFromCsvAsync(String fileName, Class<T> clazz, CsvQuery query) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return readAll(fileName, clazz, query, mappers);
+            } catch (IOException e) {
+                log.error("Error reading CSV file: {}", fileName, e);
+                throw new UncheckedIOException(e);
+            } catch (UncheckedIOException e) {
+                log.error("Error reading CSV file: {}", fileName, e);
+                throw e;
+            }
+        }, executor);
+    }
+
+    /**
+     * Imports objects from a CSV file as a lazy stream.
+     * <p>
+     * The file is opened and its header validated asynchronously; rows are then read and mapped on
+     * demand while the stream is consumed, so memory use does not grow with the file size. The
+     * stream supports {@code parallel()}, in which case batches of rows are mapped on worker threads.
+     * The file is closed when the last row has been read or when the stream is closed, so callers
+     * that may stop early should use a try-with-resources block.
+     *
+     * @param <T> the type of objects to import
+     * @param filename the name of the input CSV file
+     * @param clazz the class type of the objects
+     * @return a CompletableFuture containing a lazy stream of imported objects
+     */
+    @Override
+    public <T> CompletableFuture<Stream<T>> importFromCsvStream(String filename, Class<T> clazz) {
+        return importFromCsvStream(filename, clazz, CsvQuery.all());
+    }
+
+    /**
+     * Imports the rows of a CSV file that match a query as a lazy stream.
+     *
+     * @param <T> the type of objects to import
+     * @param filename the name of the input CSV file
+     * @param clazz the class type of the objects
+     * @param query the projection and row filter
+     * @return a CompletableFuture containing a lazy stream of imported objects
+     * @see #importFromCsvStream(String, Class)
+     */
+    public <T> CompletableFuture<Stream<T>> importFromCsvStream(String filename, Class<T> clazz, CsvQuery query) {
         return CompletableFuture.supplyAsync(() -> {
-            List<T> resultList = new ArrayList<>();
+            try {
+                return stream(filename, clazz, query);
+            } catch (IOException e) {
+                log.error("Error opening CSV file: {}", filename, e);
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
 
-            try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-                String headerLine = reader.readLine();  // Read the header line
-                if (!deserializer.validateHeaders(headerLine, clazz)) {
-                    throw new IllegalArgumentException("CSV headers are invalid.");
+    /**
+     * Imports objects from a CSV file as a lazy stream starting at a row, for example to resume a
+     * failed job from the number of rows it had processed. Rows are numbered from 0 after the header
+     * line and blank lines are not counted. When the file has a valid {@link CsvIndex}, reading starts
+     * at the nearest indexed row; otherwise the rows before {@code fromRow} are located without being
+     * converted.
+     *
+     * @param <T> the type of objects to import
+     * @param filename the name of the input CSV file
+     * @param clazz the class type of the objects
+     * @param fromRow the number of the first row to import
+     * @return a CompletableFuture containing a lazy stream of imported objects
+     * @throws IllegalArgumentException if {@code fromRow} is negative
+     * @see #importFromCsvStream(String, Class)
+     */
+    @Override
+    public <T> CompletableFuture<Stream<T>> importFromCsvStream(String filename, Class<T> clazz, long fromRow) {
+        checkRange(fromRow, Long.MAX_VALUE);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return stream(open(filename, clazz, CsvQuery.all(), fromRow, Long.MAX_VALUE));
+            } catch (IOException e) {
+                log.error("Error opening CSV file: {}", filename, e);
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Imports a range of rows of a CSV file asynchronously. Rows are numbered as in
+     * {@link #importFromCsvStream(String, Class, long)}; the range ends early at the end of the file.
+     *
+     * @param <T> the type of objects to import
+     * @param fileName the name of the input CSV file
+     * @param clazz the class type of the objects
+     * @param fromRow the number of the first row to import
+     * @param toRow the number of the row to stop before
+     * @return a CompletableFuture containing a list of imported objects, completed exceptionally with
+     * an {@link UncheckedIOException} if the file cannot be read
+     * @throws IllegalArgumentException if {@code fromRow} is negative or greater than {@code toRow}
+     */
+    @Override
+    public <T> CompletableFuture<List<T>> importRange(String fileName, Class<T> clazz, long fromRow, long toRow) {
+        checkRange(fromRow, toRow);
+        return CompletableFuture.supplyAsync(() -> {
+            try (CsvIterator<T> iterator = open(fileName, clazz, CsvQuery.all(), fromRow, toRow)) {
+                List<T> resultList = new ArrayList<>();
+                while (iterator.hasNext()) {
+                    T value = iterator.next();
+                    if (value != null || !errorPolicy.skipsFailed()) {
+                        resultList.add(value);
+                    }
                 }
-                String[] headers = headerLine.split(",");
+                return resultList;
+            } catch (IOException e) {
+                log.error("Error reading CSV file: {}", fileName, e);
+                throw new UncheckedIOException(e);
+            } catch (UncheckedIOException e) {
+                log.error("Error reading CSV file: {}", fileName, e);
+                throw e;
+            }
+        }, executor);
+    }
 
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    String[] values = line.split(",");
-                    T obj = deserializer.mapCsvToObject(values, headers, clazz);
-                    resultList.add(obj);
+    /**
+     * Imports a list of objects from a CSV file in parallel.
+     * <p>
+     * The file is memory-mapped and split into chunks on record boundaries, including line breaks
+     * inside quoted fields, which are then parsed and mapped on a fork-join pool. The rows are
+     * returned in file order. This pays off for large files; small files are read as a single chunk,
+     * and compressed files, which cannot be split, are read by a {@link CsvPipeline} that inflates,
+     * tokenizes and maps them in separate stages, see {@link #withPipeline(int)}.
+     *
+     * @param <T> the type of objects to import
+     * @param fileName the name of the input CSV file
+     * @param clazz the class type of the objects
+     * @return a CompletableFuture containing a list of imported objects in file order
+     */
+    @Override
+    public <T> CompletableFuture<List<T>> importFromCsvParallel(String fileName, Class<T> clazz) {
+        return importFromCsvParallel(fileName, clazz, CsvQuery.all());
+    }
+
+    /**
+     * Imports the rows of a CSV file that match a query in parallel.
+     *
+     * @param <T> the type of objects to import
+     * @param fileName the name of the input CSV file
+     * @param clazz the class type of the objects
+     * @param query the projection and row filter
+     * @return a CompletableFuture containing a list of imported objects in file order
+     * @see #importFromCsvParallel(String, Class)
+     */
+    public <T> CompletableFuture<List<T>> importFromCsvParallel(String fileName, Class<T> clazz, CsvQuery query) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<T> cached = cached(fileName, clazz, query);
+            if (cached != null) {
+                return cached;
+            }
+            try {
+                if (isCompressed(fileName)) {
+                    return readAll(fileName, clazz, query, pipelineMappers());
                 }
             } catch (IOException e) {
                 log.error("Error reading CSV file: {}", fileName, e);
+                throw new UncheckedIOException(e);
+            }
+            try (ParallelCsvReader<T> reader = new ParallelCsvReader<>(fileName, format, deserializer, clazz, query, meter(fileName), errors(fileName, 0))) {
+                return reader.readAll();
+            } catch (IOException e) {
+                log.error("Error reading CSV file: {}", fileName, e);
+                throw new UncheckedIOException(e);
             }
+        }, executor);
+    }
+
+    /**
+     * Imports objects from a CSV file as an unordered parallel stream.
+     * <p>
+     * The header is validated and the memory-mapped file split into chunks asynchronously; each chunk
+     * is then parsed lazily by the worker that consumes it, so rows of different chunks arrive in no
+     * particular order. The file is closed when the stream is closed.
+     *
+     * @param <T> the type of objects to import
+     * @param fileName the name of the input CSV file
+     * @param clazz the class type of the objects
+     * @return a CompletableFuture containing an unordered parallel stream of imported objects
+     */
+    @Override
+    public <T> CompletableFuture<Stream<T>> importFromCsvParallelStream(String fileName, Class<T> clazz) {
+        return importFromCsvParallelStream(fileName, clazz, CsvQuery.all());
+    }
 
-            return resultList;
-        });
+    /**
+     * Imports the rows of a CSV file that match a query as an unordered parallel stream.
+     *
+     * @param <T> the type of objects to import
+     * @param fileName the name of the input CSV file
+     * @param clazz the class type of the objects
+     * @param query the projection and row filter
+     * @return a CompletableFuture containing an unordered parallel stream of imported objects
+     * @see #importFromCsvParallelStream(String, Class)
+     */
+    public <T> CompletableFuture<Stream<T>> importFromCsvParallelStream(String fileName, Class<T> clazz, CsvQuery query) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if (isCompressed(fileName)) {
+                    return stream(fileName, clazz, query).parallel().unordered();
+                }
+                return new ParallelCsvReader<>(fileName, format, deserializer, clazz, query, meter(fileName), errors(fileName, 0)).stream();
+            } catch (IOException e) {
+                log.error("Error opening CSV file: {}", fileName, e);
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
     }
 
+    /**
+     * Visits the objects of a CSV file one at a time without collecting them.
+     * <p>
+     * Every row is mapped into the same instance, which is handed to the consumer and then refilled
+     * from the next row, so steady-state imports allocate no objects per row. The consumer must not
+     * keep the instance. Fields whose column is missing from a short row keep the value of the
+     * previous row. Rows that cannot be converted are logged and skipped.
+     *
+     * @param <T> the type of objects to import
+     * @param fileName the name of the input CSV file
+     * @param clazz the class type of the objects
+     * @param consumer the consumer of the rows
+     * @return a CompletableFuture containing the number of rows visited
+     */
     @Override
-    public <T> CompletableFuture<Stream<T>> importFromCsvStream(String filename, Class<T> clazz) {
-        try {
-            CsvIterator<T> iterator = new CsvIterator<T>(filename, deserializer, clazz);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    public <T> CompletableFuture<Long> forEach(String fileName, Class<T> clazz, RowConsumer<? super T> consumer) {
+        return forEach(fileName, clazz, CsvQuery.all(), consumer);
+    }
+
+    /**
+     * Visits the objects of a CSV file that match a query one at a time without collecting them.
+     *
+     * @param <T> the type of objects to import
+     * @param fileName the name of the input CSV file
+     * @param clazz the class type of the objects
+     * @param query the projection and row filter
+     * @param consumer the consumer of the rows
+     * @return a CompletableFuture containing the number of rows visited
+     * @see #forEach(String, Class, RowConsumer)
+     */
+    public <T> CompletableFuture<Long> forEach(String fileName, Class<T> clazz, CsvQuery query, RowConsumer<? super T> consumer) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return visit(fileName, clazz, query, consumer);
+            } catch (IOException e) {
+                log.error("Error reading CSV file: {}", fileName, e);
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Visits the objects of a CSV file in parallel without collecting them.
+     * <p>
+     * The file is split into chunks as in {@link #importFromCsvParallel(String, Class)} and each chunk
+     * is mapped into its own reused instance, so the consumer is called concurrently from several
+     * threads, in no particular order, and must be thread-safe.
+     *
+     * @param <T> the type of objects to import
+     * @param fileName the name of the input CSV file
+     * @param clazz the class type of the objects
+     * @param consumer the thread-safe consumer of the rows
+     * @return a CompletableFuture containing the number of rows visited
+     */
+    @Override
+    public <T> CompletableFuture<Long> forEachParallel(String fileName, Class<T> clazz, RowConsumer<? super T> consumer) {
+        return forEachParallel(fileName, clazz, CsvQuery.all(), consumer);
+    }
+
+    /**
+     * Visits the objects of a CSV file that match a query in parallel without collecting them.
+     *
+     * @param <T> the type of objects to import
+     * @param fileName the name of the input CSV file
+     * @param clazz the class type of the objects
+     * @param query the projection and row filter
+     * @param consumer the thread-safe consumer of the rows
+     * @return a CompletableFuture containing the number of rows visited
+     * @see #forEachParallel(String, Class, RowConsumer)
+     */
+    public <T> CompletableFuture<Long> forEachParallel(String fileName, Class<T> clazz, CsvQuery query, RowConsumer<? super T> consumer) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if (isCompressed(fileName)) {
+                    try (CsvPipeline<T> pipeline = pipeline(fileName, clazz, query, pipelineMappers())) {
+                        return pipeline.forEach(consumer);
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Error reading CSV file: {}", fileName, e);
+                throw new UncheckedIOException(e);
+            }
+            try (ParallelCsvReader<T> reader = new ParallelCsvReader<>(fileName, format, deserializer, clazz, query, meter(fileName), errors(fileName, 0))) {
+                return reader.forEach(consumer);
+            } catch (IOException e) {
+                log.error("Error reading CSV file: {}", fileName, e);
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Imports the objects of a CSV file in batches of a number of rows, for example for JDBC batch
+     * inserts or a message producer.
+     * <p>
+     * Every batch is handed to the consumer on the importing thread and reading pauses until the
+     * consumer returns, so memory use stays bounded by one batch however slow the sink is. All
+     * batches are collected in the same list, which the consumer must not keep; the rows are new
+     * objects. Rows that cannot be converted are skipped. With {@link #withPipeline(int)}, the file is
+     * read, tokenized and mapped ahead on the threads of a pipeline while the consumer runs, until
+     * the fixed blocks and batches of the pipeline are full.
+     *
+     * @param <T> the type of objects to import
+     * @param fileName the name of the input CSV file
+     * @param clazz the class type of the objects
+     * @param batchSize the number of rows of a batch; the last batch may be smaller
+     * @param consumer the consumer of the batches
+     * @return a CompletableFuture containing the number of rows handed to the consumer
+     * @throws IllegalArgumentException if {@code batchSize} is not positive
+     */
+    @Override
+    public <T> CompletableFuture<Long> forEachBatch(String fileName, Class<T> clazz, int batchSize, BatchConsumer<? super T> consumer) {
+        return forEachBatch(fileName, clazz, CsvQuery.all(), CsvBatchSize.rows(batchSize), consumer);
+    }
+
+    /**
+     * Imports the objects of a CSV file that match a query in batches of a number of rows or bytes.
+     *
+     * @param <T> the type of objects to import
+     * @param fileName the name of the input CSV file
+     * @param clazz the class type of the objects
+     * @param query the projection and row filter
+     * @param size the size of the batches
+     * @param consumer the consumer of the batches
+     * @return a CompletableFuture containing the number of rows handed to the consumer
+     * @see #forEachBatch(String, Class, int, BatchConsumer)
+     */
+    public <T> CompletableFuture<Long> forEachBatch(String fileName, Class<T> clazz, CsvQuery query, CsvBatchSize size,
+                                                    BatchConsumer<? super T> consumer) {
+        Objects.requireNonNull(size, "size");
+        return CompletableFuture.supplyAsync(() -> {
+            RowBatcher<T> batcher = new RowBatcher<>(size, consumer);
+            try {
+                if (mappers > 0) {
+                    try (CsvPipeline<T> pipeline = pipeline(fileName, clazz, query, mappers)) {
+                        return pipeline.forEachBatch(batcher);
+                    }
+                }
+                try (CsvIterator<T> iterator = open(fileName, clazz, query, 0, Long.MAX_VALUE)) {
+                    return iterator.forEachBatch(batcher);
+                }
+            } catch (IOException e) {
+                log.error("Error reading CSV file: {}", fileName, e);
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Imports the objects of a CSV file as a lazy stream of batches of a number of rows.
+     * <p>
+     * Batches are read and mapped on demand while the stream is consumed, one at a time, so memory
+     * use is bounded by the batches the caller keeps. Unlike the batches of
+     * {@link #forEachBatch(String, Class, int, BatchConsumer)}, every batch is a new list that may be
+     * kept. The stream is sequential even when made parallel, and rows that cannot be converted are
+     * skipped. The file is closed when the last batch has been read or when the stream is closed.
+     *
+     * @param <T> the type of objects to import
+     * @param fileName the name of the input CSV file
+     * @param clazz the class type of the objects
+     * @param batchSize the number of rows of a batch; the last batch may be smaller
+     * @return a CompletableFuture containing a lazy stream of batches in file order
+     * @throws IllegalArgumentException if {@code batchSize} is not positive
+     */
+    @Override
+    public <T> CompletableFuture<Stream<List<T>>> importBatches(String fileName, Class<T> clazz, int batchSize) {
+        return importBatches(fileName, clazz, CsvQuery.all(), CsvBatchSize.rows(batchSize));
+    }
+
+    /**
+     * Imports the objects of a CSV file that match a query as a lazy stream of batches of a number
+     * of rows or bytes.
+     *
+     * @param <T> the type of objects to import
+     * @param fileName the name of the input CSV file
+     * @param clazz the class type of the objects
+     * @param query the projection and row filter
+     * @param size the size of the batches
+     * @return a CompletableFuture containing a lazy stream of batches in file order
+     * @see #importBatches(String, Class, int)
+     */
+    public <T> CompletableFuture<Stream<List<T>>> importBatches(String fileName, Class<T> clazz, CsvQuery query, CsvBatchSize size) {
+        Objects.requireNonNull(size, "size");
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return batches(open(fileName, clazz, query, 0, Long.MAX_VALUE), size);
+            } catch (IOException e) {
+                log.error("Error opening CSV file: {}", fileName, e);
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Visits the raw rows of a CSV file without mapping them to objects.
+     * <p>
+     * The header line is skipped and every following row is handed to the consumer as a {@link CsvRow}
+     * view over the read buffer, whose typed getters parse the field bytes in place; index {@code i}
+     * is the {@code i}-th column of the header line. The view is reused for the next row, so the
+     * consumer must not keep it.
+     *
+     * @param fileName the name of the input CSV file
+     * @param consumer the consumer of the rows
+     * @return a CompletableFuture containing the number of rows visited
+     */
+    public CompletableFuture<Long> forEachRow(String fileName, RowConsumer<? super CsvRow> consumer) {
+        return CompletableFuture.supplyAsync(() -> {
+            CsvMeter meter = meter(fileName);
+            try (CsvTokenizer tokenizer = new CsvTokenizer(meter.timed(Compression.openInput(fileName)), format)) {
+                CsvRecord record = new CsvRecord();
+                long count = 0;
+                try {
+                    if (tokenizer.next(record)) { // Skip the header line
+                        while (tokenizer.next(record)) {
+                            consumer.accept(record);
+                            count++;
+                        }
+                    }
+                } finally {
+                    meter.rows(count);
+                    meter.bytes(tokenizer.position());
+                    meter.finish();
+                }
+                return count;
+            } catch (IOException e) {
+                log.error("Error reading CSV file: {}", fileName, e);
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Opens an incremental import of a file that other processes append to. Each
+     * {@link CsvTail#poll()} imports only the complete records appended since the previous one, and
+     * {@link CsvTail#follow(RowConsumer)} pushes new rows to a consumer on a virtual thread of its own
+     * as the file changes, so following a file never blocks this importer's executor.
+     *
+     * @param <T> the type of objects to import
+     * @param fileName the name of the uncompressed input CSV file
+     * @param clazz the class type of the objects
+     * @return the tail, starting with the header
+     * @throws IOException if the file cannot be opened or is compressed
+     */
+    public <T> CsvTail<T> tail(String fileName, Class<T> clazz) throws IOException {
+        return tail(fileName, clazz, 0);
+    }
+
+    /**
+     * Opens an incremental import of a file from an offset saved from {@link CsvTail#offset()}. The
+     * header is bound right away.
+     *
+     * @param <T> the type of objects to import
+     * @param fileName the name of the uncompressed input CSV file
+     * @param clazz the class type of the objects
+     * @param offset the offset after the last record already imported
+     * @return the tail
+     * @throws IOException if the file cannot be opened, is compressed, or the offset is inside the header
+     * @throws IllegalArgumentException if the header does not match the class
+     */
+    public <T> CsvTail<T> tail(String fileName, Class<T> clazz, long offset) throws IOException {
+        return new CsvTail<>(fileName, format, deserializer, clazz, offset, errors(fileName, 0));
+    }
+
+    private <T> CsvIterator<T> open(String fileName, Class<T> clazz, CsvQuery query, long fromRow, long toRow) throws IOException {
+        return new CsvIterator<>(fileName, format, deserializer, clazz, query, fromRow, toRow, indexInterval, meter(fileName),
+                errors(fileName, fromRow));
+    }
+
+    private CsvMeter meter(String fileName) {
+        return CsvMeter.start(metrics, CsvStats.Operation.IMPORT, fileName);
+    }
+
+    private RowErrors errors(String fileName, long fromRow) {
+        return new RowErrors(errorPolicy, fileName, fromRow);
+    }
+
+    private static void checkRange(long fromRow, long toRow) {
+        if (fromRow < 0 || fromRow > toRow) {
+            throw new IllegalArgumentException(format("Invalid row range [%d, %d)", fromRow, toRow));
+        }
+    }
+
+    private <T> CsvPipeline<T> pipeline(String fileName, Class<T> clazz, CsvQuery query, int mappers) throws IOException {
+        return new CsvPipeline<>(fileName, format, deserializer, clazz, query, mappers, stages, indexInterval, meter(fileName),
+                errors(fileName, 0));
+    }
+
+    /**
+     * @return the number of map stages of the pipelines of parallel imports
+     */
+    private int pipelineMappers() {
+        return mappers > 0 ? mappers : CsvPipeline.defaultMappers();
+    }
+
+    /**
+     * @param mappers the number of map stages of a pipeline, or 0 to read on the calling thread
+     */
+    private <T> List<T> readAll(String fileName, Class<T> clazz, CsvQuery query, int mappers) throws IOException {
+        List<T> cached = cached(fileName, clazz, query);
+        if (cached != null) {
+            return cached;
+        }
+        if (mappers > 0 && (cache == null || query != CsvQuery.all())) {
+            try (CsvPipeline<T> pipeline = pipeline(fileName, clazz, query, mappers)) {
+                return pipeline.readAll();
+            }
+        }
+        List<T> resultList = new ArrayList<>();
+        try (CsvIterator<T> iterator = open(fileName, clazz, query, 0, Long.MAX_VALUE)) {
+            ColumnarCache.Builder<T> image = cache != null && query == CsvQuery.all()
+                    ? cache.builder(fileName, format, iterator.binding(), deserializer.registry())
+                    : null;
+            while (iterator.hasNext()) {
+                if (image != null) {
+                    image.add(iterator.current());
+                }
+                T value = iterator.next();
+                if (image != null && value == null) {
+                    image.failed();
+                }
+                if (value != null || !errorPolicy.skipsFailed()) {
+                    resultList.add(value);
+                }
+            }
+            if (image != null) {
+                try {
+                    image.write();
+                } catch (IOException e) {
+                    log.warn("Failed to write the columnar image of {}", fileName, e);
+                }
+            }
+        }
+        return resultList;
+    }
+
+    /**
+     * @return the objects of the file from its columnar image, or null if it has none
+     */
+    private <T> List<T> cached(String fileName, Class<T> clazz, CsvQuery query) {
+        List<T> cached = cache != null && query == CsvQuery.all() ? cache.load(fileName, format, clazz, deserializer.registry()) : null;
+        if (cached != null && errorPolicy.skipsFailed()) {
+            cached.removeIf(Objects::isNull);
         }
-        return null;
+        return cached;
+    }
+
+    private <T> Stream<T> stream(String fileName, Class<T> clazz, CsvQuery query) throws IOException {
+        return stream(open(fileName, clazz, query, 0, Long.MAX_VALUE));
+    }
+
+    private static <T> Stream<List<T>> batches(CsvIterator<T> iterator, CsvBatchSize size) {
+        Spliterator<List<T>> batches = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super List<T>> action) {
+                List<T> batch = iterator.nextBatch(size);
+                if (batch.isEmpty()) {
+                    return false;
+                }
+                action.accept(batch);
+                return true;
+            }
+
+            @Override
+            public Spliterator<List<T>> trySplit() {
+                return null; // Splitting would read ahead an unbounded number of batches
+            }
+        };
+        return StreamSupport.stream(batches, false).onClose(iterator::close);
     }
 
+    private <T> Stream<T> stream(CsvIterator<T> iterator) {
+        Stream<T> rows = StreamSupport.stream(new CsvSpliterator<>(iterator), false)
+                .onClose(iterator::close);
+        return errorPolicy.skipsFailed() ? rows.filter(Objects::nonNull) : rows;
+    }
 
+    private <T> long visit(String fileName, Class<T> clazz, CsvQuery query, RowConsumer<? super T> consumer) throws IOException {
+        try (CsvIterator<T> iterator = open(fileName, clazz, query, 0, Long.MAX_VALUE)) {
+            return iterator.visitRemaining(consumer);
+        }
+    }
+
+    /**
+     * Compressed files cannot be split into chunks, so the parallel methods read them through a
+     * pipeline, or sequentially for streams.
+     */
+    private static boolean isCompressed(String fileName) {
+        try {
+            return Compression.detect(fileName) != Compression.NONE;
+        } catch (IOException e) {
+            return false; // Let the reader report the error
+        }
+    }
 }
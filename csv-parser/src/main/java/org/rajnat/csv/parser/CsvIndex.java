@@ -0,0 +1,272 @@
+package org.rajnat.csv.parser;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Sidecar index of the row offsets of a CSV file.
+ * <p>
+ * The index records the byte offset of every {@link #interval()}-th data row, so that a row can be
+ * reached by seeking to the nearest recorded offset and skipping at most {@code interval - 1} rows.
+ * Rows are numbered from 0 after the header line; blank lines are not rows. The index is stored
+ * next to the file as {@code <file>.idx} together with the size, modification time and format of
+ * the file, and is ignored once any of them changes. Only uncompressed files are indexed.
+ * <p>
+ * An index is built by {@link #build(String, CsvFormat, int)} or, with
+ * {@link CsvImporter#withIndex(int)}, by any import that reads a whole file. {@link CsvImporter}
+ * then uses it to seek to rows and to split files for parallel imports without scanning them.
+ */
+public final class CsvIndex {
+    private static final Logger log = LoggerFactory.getLogger(CsvIndex.class);
+
+    public static final int DEFAULT_INTERVAL = 1 << 12;
+    static final String SUFFIX = ".idx";
+    private static final int MAGIC = 0x43535649; // "CSVI"
+    private static final int VERSION = 1;
+
+    private final long fileSize;
+    private final long lastModified;
+    private final CsvFormat format;
+    private final int interval;
+    private final long rowCount;
+    private final long[] offsets;
+
+    private CsvIndex(long fileSize, long lastModified, CsvFormat format, int interval, long rowCount, long[] offsets) {
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.format = format;
+        this.interval = interval;
+        this.rowCount = rowCount;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Indexes a file in a dedicated pass and writes the sidecar index next to it. Fields are located
+     * but not decoded.
+     *
+     * @param fileName the name of the CSV file
+     * @param format the format of the file
+     * @param interval the number of rows between recorded offsets
+     * @return the index
+     * @throws IOException if reading the file or writing the index fails, or the file is compressed
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public static CsvIndex build(String fileName, CsvFormat format, int interval) throws IOException {
+        if (Compression.detect(fileName) != Compression.NONE) {
+            throw new IOException(String.format("Cannot index the compressed file %s", fileName));
+        }
+        Builder builder = new Builder(fileName, format, interval);
+        try (CsvTokenizer tokenizer = new CsvTokenizer(new FileInputStream(fileName), format)) {
+            tokenizer.project(CsvTokenizer.NO_FIELDS);
+            CsvRecord record = new CsvRecord();
+            if (tokenizer.next(record)) { // Skip the header line
+                while (tokenizer.next(record)) {
+                    builder.add(record.offset());
+                }
+            }
+        }
+        CsvIndex index = builder.finish();
+        if (index == null) {
+            throw new IOException(String.format("The file %s changed while it was indexed", fileName));
+        }
+        index.write(fileName);
+        return index;
+    }
+
+    /**
+     * Indexes a file with the default format and interval.
+     *
+     * @param fileName the name of the CSV file
+     * @return the index
+     * @throws IOException if reading the file or writing the index fails
+     */
+    public static CsvIndex build(String fileName) throws IOException {
+        return build(fileName, CsvFormat.DEFAULT, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Loads the sidecar index of a file if it is still valid.
+     *
+     * @param fileName the name of the CSV file
+     * @param format the format the file is read with
+     * @return the index, or empty if there is none, or it is stale, unreadable or for another format
+     */
+    public static Optional<CsvIndex> load(String fileName, CsvFormat format) {
+        Path path = Path.of(fileName);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar(fileName))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return Optional.empty();
+            }
+            long fileSize = in.readLong();
+            long lastModified = in.readLong();
+            CsvFormat indexed = CsvFormat.of(in.readChar(), in.readChar(), in.readChar());
+            int interval = in.readInt();
+            long rowCount = in.readLong();
+            long[] offsets = new long[in.readInt()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = in.readLong();
+            }
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (attributes.size() != fileSize || attributes.lastModifiedTime().toMillis() != lastModified || !indexed.equals(format)) {
+                return Optional.empty();
+            }
+            return Optional.of(new CsvIndex(fileSize, lastModified, format, interval, rowCount, offsets));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Ignoring the unreadable index of {}: {}", fileName, e.toString());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return the number of data rows in the file
+     */
+    public long rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return the number of rows between recorded offsets
+     */
+    public int interval() {
+        return interval;
+    }
+
+    public CsvFormat format() {
+        return format;
+    }
+
+    /**
+     * @return the size of the indexed file in bytes
+     */
+    long fileSize() {
+        return fileSize;
+    }
+
+    /**
+     * @param row a row number
+     * @return the offset of the nearest recorded row at or before {@code row}, or the file size if
+     * the file has no rows
+     */
+    long checkpointOffset(long row) {
+        if (offsets.length == 0) {
+            return fileSize;
+        }
+        return offsets[(int) Math.min(row / interval, offsets.length - 1)];
+    }
+
+    /**
+     * @param row a row number
+     * @return the number of the nearest recorded row at or before {@code row}
+     */
+    long checkpointRow(long row) {
+        return offsets.length == 0 ? 0 : Math.min(row / interval, offsets.length - 1) * interval;
+    }
+
+    /**
+     * @return the recorded offsets, one for every {@link #interval()} rows; must not be modified
+     */
+    long[] offsets() {
+        return offsets;
+    }
+
+    static Path sidecar(String fileName) {
+        return Path.of(fileName + SUFFIX);
+    }
+
+    /**
+     * Writes the index next to a file, replacing any previous index atomically.
+     */
+    void write(String fileName) throws IOException {
+        Path target = sidecar(fileName);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fileSize);
+            out.writeLong(lastModified);
+            out.writeChar(format.delimiter());
+            out.writeChar(format.quote());
+            out.writeChar(format.escape());
+            out.writeInt(interval);
+            out.writeLong(rowCount);
+            out.writeInt(offsets.length);
+            for (long offset : offsets) {
+                out.writeLong(offset);
+            }
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CsvIndex[rows=%d, interval=%d, checkpoints=%d]", rowCount, interval, offsets.length);
+    }
+
+    /**
+     * Collects the offsets of the rows of a file as they are read, in order.
+     */
+    static final class Builder {
+        private final Path path;
+        private final CsvFormat format;
+        private final int interval;
+        private final long fileSize;
+        private final long lastModified;
+        private long[] offsets = new long[16];
+        private int count;
+        private long rows;
+
+        /**
+         * Starts indexing a file, recording its size and modification time before it is read.
+         */
+        Builder(String fileName, CsvFormat format, int interval) throws IOException {
+            if (interval <= 0) {
+                throw new IllegalArgumentException("interval must be positive: " + interval);
+            }
+            this.path = Path.of(fileName);
+            this.format = format;
+            this.interval = interval;
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            this.fileSize = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+        }
+
+        /**
+         * @param offset the offset of the next data row
+         */
+        void add(long offset) {
+            if (rows++ % interval == 0) {
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, count << 1);
+                }
+                offsets[count++] = offset;
+            }
+        }
+
+        /**
+         * @return the index, or null if the file changed while it was read
+         */
+        CsvIndex finish() throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (attributes.size() != fileSize || attributes.lastModifiedTime().toMillis() != lastModified) {
+                return null;
+            }
+            return new CsvIndex(fileSize, lastModified, format, interval, rows, Arrays.copyOf(offsets, count));
+        }
+    }
+}
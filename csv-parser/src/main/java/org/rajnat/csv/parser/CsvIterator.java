@@ -1,33 +1,129 @@
 package org.rajnat.csv.parser;
+import org.rajnat.csv.api.RowConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.Closeable;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
 
-class CsvIterator<T> implements Iterator<T> {
+class CsvIterator<T> implements Iterator<T>, Closeable {
 
     private static final Logger log = LoggerFactory.getLogger(CsvIterator.class);
-    private BufferedReader reader;
-    private String currentLine;
-    private final String headerLine;
+    private final CsvTokenizer tokenizer;
+    private final CsvRecord currentRecord = new CsvRecord();
     private boolean endOfFile = false;
     private final Deserializer deserializer;
-    private String[] headers;
-    private Class<T> clazz;
+    private final HeaderBinding<T> binding;
+    private final String filePath;
+    private final long toRow;
+    private final CsvMeter meter;
+    private final RowErrors errors;
+    private final long startOffset;
+    private CsvIndex.Builder indexBuilder;
+    private long row;
+    private long firstRow;
+    private long tokenizeNanos;
+    private long mapNanos; // Of visitRemaining, which maps on the reading thread
+    private long failedRows;
+    private final AtomicInteger holds = new AtomicInteger(1); // The reader and the batches of rows being mapped
+    private boolean reported;
 
     public CsvIterator(String filePath, Deserializer deserializer, Class<T> clazz) throws IOException {
+        this(filePath, CsvFormat.DEFAULT, deserializer, clazz);
+    }
+
+    public CsvIterator(String filePath, CsvFormat format, Deserializer deserializer, Class<T> clazz) throws IOException {
+        this(filePath, format, deserializer, clazz, CsvQuery.all());
+    }
+
+    public CsvIterator(String filePath, CsvFormat format, Deserializer deserializer, Class<T> clazz, CsvQuery query) throws IOException {
+        this(filePath, format, deserializer, clazz, query, 0, Long.MAX_VALUE, 0, CsvMeter.OFF,
+                new RowErrors(CsvErrorPolicy.defaults(), filePath, 0));
+    }
+
+    /**
+     * Opens a file for reading a range of rows. Rows are numbered from 0 after the header line. When
+     * the file has a valid {@link CsvIndex}, reading starts at the nearest indexed row before
+     * {@code fromRow}; otherwise the rows before it are located without being decoded.
+     *
+     * @param fromRow the number of the first row to read
+     * @param toRow the number of the row to stop before
+     * @param indexInterval the interval of the sidecar index written once the whole file has been
+     *                      read, or 0 not to write one
+     * @param meter the meter of the file, finished once the iterator is closed
+     * @param errors the failed rows of the file, finished once the iterator is closed
+     */
+    CsvIterator(String filePath, CsvFormat format, Deserializer deserializer, Class<T> clazz, CsvQuery query,
+                long fromRow, long toRow, int indexInterval, CsvMeter meter, RowErrors errors) throws IOException {
+        this.filePath = filePath;
         this.deserializer = deserializer;
-        this.clazz = clazz;
-        this.reader = new BufferedReader(new FileReader(filePath));
-        this.headerLine = reader.readLine(); // Read the first line
-        if (!deserializer.validateHeaders(headerLine, clazz)) {
-            throw new IllegalArgumentException("CSV headers are invalid.");
+        this.toRow = toRow;
+        this.meter = meter;
+        this.errors = errors;
+        boolean plain = (fromRow > 0 || indexInterval > 0) && Compression.detect(filePath) == Compression.NONE;
+        CsvIndex index = fromRow > 0 && plain ? CsvIndex.load(filePath, format).orElse(null) : null;
+        this.indexBuilder = indexInterval > 0 && plain && fromRow == 0 && toRow == Long.MAX_VALUE
+                ? new CsvIndex.Builder(filePath, format, indexInterval)
+                : null;
+        this.startOffset = index == null ? 0 : index.checkpointOffset(fromRow);
+        this.tokenizer = index == null
+                ? new CsvTokenizer(meter.timed(Compression.openInput(filePath)), format)
+                : openAt(filePath, format, startOffset, meter);
+        try {
+            String[] headers;
+            if (index == null) {
+                // Read the first line
+                headers = tokenizer.next(currentRecord) ? currentRecord.toArray() : null;
+            } else {
+                headers = readHeader(filePath, format);
+                row = index.checkpointRow(fromRow);
+            }
+            this.binding = deserializer.bindHeaders(headers, clazz, query);
+            skip(Math.min(fromRow, toRow) - row);
+            firstRow = row;
+            tokenizer.project(binding.projection());
+            advance(); // Read the first data row
+        } catch (IOException | RuntimeException e) {
+            tokenizer.close();
+            meter.finish();
+            errors.finish(false);
+            throw e;
+        }
+    }
+
+    private static CsvTokenizer openAt(String filePath, CsvFormat format, long offset, CsvMeter meter) throws IOException {
+        FileInputStream in = new FileInputStream(filePath);
+        try {
+            in.getChannel().position(offset);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new CsvTokenizer(meter.timed(in), format, offset);
+    }
+
+    private static String[] readHeader(String filePath, CsvFormat format) throws IOException {
+        try (CsvTokenizer header = new CsvTokenizer(new FileInputStream(filePath), format)) {
+            CsvRecord record = new CsvRecord();
+            return header.next(record) ? record.toArray() : null;
+        }
+    }
+
+    /**
+     * Locates rows without decoding their fields.
+     */
+    private void skip(long rows) throws IOException {
+        tokenizer.project(CsvTokenizer.NO_FIELDS);
+        for (long i = 0; i < rows && tokenizer.next(currentRecord); i++) {
+            row++;
         }
-        headers = headerLine.split(",");
     }
 
     @Override
@@ -41,20 +137,222 @@ class CsvIterator<T> implements Iterator<T> {
             throw new NoSuchElementException("End of file reached");
         }
 
+        T pojo = map(currentRecord, row - 1);
+        advanceUnchecked();
+        return pojo;
+    }
+
+    /**
+     * @return the binding of the header of the file
+     */
+    HeaderBinding<T> binding() {
+        return binding;
+    }
+
+    /**
+     * @return the record of the row returned by the next call to {@link #next()}, valid until then
+     */
+    CsvRecord current() {
+        if (endOfFile) {
+            throw new NoSuchElementException("End of file reached");
+        }
+        return currentRecord;
+    }
+
+    /**
+     * @return the number of the row returned by the next call to {@link #next()} or {@link #nextRow()}
+     */
+    long rowNumber() {
+        return row - 1;
+    }
+
+    /**
+     * Reads the next row without mapping it, so that mapping can be handed to another thread.
+     *
+     * @return a detached copy of the next record
+     */
+    CsvRecord nextRow() {
+        if (endOfFile) {
+            throw new NoSuchElementException("End of file reached");
+        }
+
+        CsvRecord row = currentRecord.copy();
+        advanceUnchecked();
+        return row;
+    }
+
+    /**
+     * Maps a record read by this iterator to an object.
+     *
+     * @param record the record of the row
+     * @param row the number of the row
+     * @return the mapped object, or null if the row could not be converted
+     */
+    T map(CsvRecord record, long row) {
+        long begin = meter.clock();
+        T value = deserializer.mapCsvToObject(record, binding, null, errors, row);
+        meter.nanos(CsvStage.MAP, meter.clock() - begin);
+        if (value == null) {
+            meter.failedRows(1);
+        }
+        return value;
+    }
+
+    /**
+     * Maps the remaining rows into one reused object and hands each of them to a consumer. Rows that
+     * cannot be converted are skipped.
+     *
+     * @param consumer the consumer of the rows; must not keep the object past its call
+     * @return the number of rows handed to the consumer
+     */
+    long visitRemaining(RowConsumer<? super T> consumer) {
+        T instance = null;
+        long count = 0;
+        while (!endOfFile) {
+            long begin = meter.clock();
+            T value = deserializer.mapCsvToObject(currentRecord, binding, instance, errors, row - 1);
+            mapNanos += meter.clock() - begin;
+            if (value != null) {
+                instance = value;
+                consumer.accept(value);
+                count++;
+            } else {
+                failedRows++;
+            }
+            advanceUnchecked();
+        }
+        return count;
+    }
+
+    /**
+     * Maps the remaining rows and hands them to a batcher. Rows that cannot be converted are skipped.
+     *
+     * @param batcher the batcher of the rows
+     * @return the number of rows handed to the consumer of the batcher
+     */
+    long forEachBatch(RowBatcher<T> batcher) {
+        while (!endOfFile) {
+            T value = map(currentRecord, row - 1);
+            if (value != null) {
+                batcher.add(value, currentRecord);
+            }
+            advanceUnchecked();
+        }
+        return batcher.finish();
+    }
+
+    /**
+     * Maps the next batch of rows into a new list. Rows that cannot be converted are skipped.
+     *
+     * @param size the size of the batch
+     * @return the rows of the batch, empty if the file has no more rows
+     */
+    List<T> nextBatch(CsvBatchSize size) {
+        List<T> batch = new ArrayList<>(size.capacity());
+        long bytes = 0;
+        while (!endOfFile && !size.isFull(batch.size(), bytes)) {
+            T value = map(currentRecord, row - 1);
+            if (value != null) {
+                batch.add(value);
+                bytes += currentRecord.span();
+            }
+            advanceUnchecked();
+        }
+        return batch;
+    }
+
+    private void advanceUnchecked() {
         try {
-            T pojo = deserializer.mapCsvToObject(currentLine.split(","), headers, clazz); // Your method to convert CSV line to POJO
-            currentLine = reader.readLine(); // Read next line
-            if (currentLine == null) {
-                endOfFile = true;
-                try {
-                    reader.close(); // Close the reader at the end
-                } catch (IOException e) {
-                    log.error("Failed to close the fileReader with the error:", e);
-                }
+            advance();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading line from file", e);
+        }
+    }
+
+    private void advance() throws IOException {
+        long begin = meter.clock();
+        boolean found = false;
+        while (!found && row < toRow && tokenizer.next(currentRecord)) { // Read next record
+            row++;
+            if (indexBuilder != null) {
+                indexBuilder.add(currentRecord.offset());
+            }
+            found = binding.accepts(currentRecord);
+        }
+        tokenizeNanos += meter.clock() - begin;
+        if (found) {
+            return;
+        }
+        if (indexBuilder != null) {
+            writeIndex();
+        }
+        close(true); // Close the reader at the end
+    }
+
+    private void writeIndex() {
+        try {
+            CsvIndex index = indexBuilder.finish();
+            if (index != null) {
+                index.write(filePath);
             }
-            return pojo;
         } catch (IOException e) {
-            throw new RuntimeException("Error reading line from file", e);
+            log.warn("Failed to write the index of {}", filePath, e);
+        }
+        indexBuilder = null;
+    }
+
+    @Override
+    public void close() {
+        close(false);
+    }
+
+    /**
+     * Keeps the metrics and the failed rows of the file open until a batch of rows read by
+     * {@link #nextRow()} has been mapped, and the batch calls {@link #release()}. Must be called
+     * before reading the rows, since reading the last one closes the reader.
+     */
+    void retain() {
+        holds.incrementAndGet();
+    }
+
+    /**
+     * Releases a batch of rows held by {@link #retain()} once all of them have been mapped. Releasing
+     * the last batch after the end of the file finishes the metrics and the failed rows of the file.
+     */
+    void release() {
+        if (holds.decrementAndGet() == 0) {
+            finish(true);
+        }
+    }
+
+    /**
+     * @param complete whether all rows were read, so that the error policy checks the share of failed rows
+     */
+    private void close(boolean complete) {
+        endOfFile = true;
+        try {
+            tokenizer.close();
+        } catch (IOException e) {
+            log.error("Failed to close the fileReader with the error:", e);
+        }
+        // Batches still being mapped finish the file once the last of them is released
+        if (!complete || holds.decrementAndGet() == 0) {
+            finish(complete);
+        }
+    }
+
+    private synchronized void finish(boolean complete) {
+        if (!reported) {
+            reported = true;
+            meter.rows(row - firstRow);
+            meter.failedRows(failedRows);
+            meter.nanos(CsvStage.MAP, mapNanos);
+            meter.bytes(tokenizer.position() - startOffset);
+            // The time spent tokenizing includes the time spent waiting for input
+            meter.nanos(CsvStage.TOKENIZE, tokenizeNanos - meter.nanos(CsvStage.READ));
+            meter.finish();
+            errors.rows(row - firstRow);
         }
+        errors.finish(complete);
     }
 }
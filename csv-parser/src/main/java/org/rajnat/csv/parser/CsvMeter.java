@@ -0,0 +1,245 @@
+package org.rajnat.csv.parser;
+
+import jdk.jfr.EventType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the metrics of the import or export of one file for {@link CsvMetrics} and the
+ * {@link CsvFileEvent} and {@link CsvBatchEvent} Flight Recorder events.
+ * <p>
+ * Readers and writers add their counts per batch or when they finish, so the counters may be shared
+ * by all threads working on the file. When there is no listener and neither event is enabled, the
+ * importer or exporter gets {@link #OFF}, which ignores everything; its {@link #clock()} returns 0,
+ * so that stage times computed as differences of it are 0 without reading the clock.
+ */
+final class CsvMeter {
+    private static final Logger log = LoggerFactory.getLogger(CsvMeter.class);
+    private static final EventType FILE_EVENTS = EventType.getEventType(CsvFileEvent.class);
+    private static final EventType BATCH_EVENTS = EventType.getEventType(CsvBatchEvent.class);
+    private static final CsvStage[] STAGES = CsvStage.values();
+
+    static final CsvMeter OFF = new CsvMeter();
+
+    private final CsvMetrics metrics;
+    private final CsvStats.Operation operation;
+    private final String fileName;
+    private final boolean enabled;
+    private final boolean batchEvents;
+    private final CsvFileEvent event;
+    private final long start;
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder[] nanos = new LongAdder[STAGES.length];
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    private CsvMeter() {
+        this.metrics = CsvMetrics.NONE;
+        this.operation = null;
+        this.fileName = null;
+        this.enabled = false;
+        this.batchEvents = false;
+        this.event = null;
+        this.start = 0;
+    }
+
+    private CsvMeter(CsvMetrics metrics, CsvStats.Operation operation, String fileName, boolean fileEvents, boolean batchEvents) {
+        this.metrics = metrics;
+        this.operation = operation;
+        this.fileName = fileName;
+        this.enabled = true;
+        this.batchEvents = batchEvents;
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = new LongAdder();
+        }
+        this.event = fileEvents ? new CsvFileEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * Starts measuring the import or export of a file.
+     *
+     * @param metrics the listener of the importer or exporter
+     * @param operation whether the file is read or written
+     * @param fileName the name of the file
+     * @return a new meter, or {@link #OFF} if nobody listens
+     */
+    static CsvMeter start(CsvMetrics metrics, CsvStats.Operation operation, String fileName) {
+        boolean fileEvents = FILE_EVENTS.isEnabled();
+        boolean batchEvents = BATCH_EVENTS.isEnabled();
+        if (metrics == CsvMetrics.NONE && !fileEvents && !batchEvents) {
+            return OFF;
+        }
+        return new CsvMeter(metrics, operation, fileName, fileEvents, batchEvents);
+    }
+
+    /**
+     * @return whether stages should be timed
+     */
+    boolean timed() {
+        return enabled;
+    }
+
+    /**
+     * @return the current time in nanoseconds, or 0 if stages are not timed
+     */
+    long clock() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    void rows(long count) {
+        if (enabled && count != 0) {
+            rows.add(count);
+        }
+    }
+
+    void failedRows(long count) {
+        if (enabled && count != 0) {
+            failedRows.add(count);
+        }
+    }
+
+    void bytes(long count) {
+        if (enabled && count != 0) {
+            bytes.add(count);
+        }
+    }
+
+    void nanos(CsvStage stage, long time) {
+        if (enabled && time != 0) {
+            nanos[stage.ordinal()].add(time);
+        }
+    }
+
+    /**
+     * @return the time added to a stage so far
+     */
+    long nanos(CsvStage stage) {
+        return enabled ? nanos[stage.ordinal()].sum() : 0;
+    }
+
+    void queueDepth(int depth) {
+        if (enabled) {
+            maxQueueDepth.accumulateAndGet(depth, Math::max);
+        }
+    }
+
+    /**
+     * Adds the time a stage spent on a batch and reports the batch. The rows are not added to the
+     * totals, which only count the rows of a file once.
+     *
+     * @param stage the stage that processed the batch
+     * @param rows the number of rows in the batch
+     * @param time the time the stage spent on the batch
+     * @param queueDepth the number of batches or blocks waiting for the stage
+     */
+    void batch(CsvStage stage, int rows, long time, int queueDepth) {
+        if (!enabled) {
+            return;
+        }
+        nanos(stage, time);
+        queueDepth(queueDepth);
+        try {
+            metrics.batch(fileName, stage, rows, time, queueDepth);
+        } catch (RuntimeException e) {
+            log.warn("Metrics listener failed on a batch of {}", fileName, e);
+        }
+        if (batchEvents) {
+            CsvBatchEvent batch = new CsvBatchEvent();
+            if (batch.shouldCommit()) {
+                batch.fileName = fileName;
+                batch.stage = stage.name();
+                batch.rows = rows;
+                batch.busyTime = time;
+                batch.queueDepth = queueDepth;
+                batch.commit();
+            }
+        }
+    }
+
+    /**
+     * Reports the totals of the file. Only the first call reports anything, so readers may call it
+     * both when they reach the end of the file and when they are closed.
+     */
+    void finish() {
+        if (!enabled || !finished.compareAndSet(false, true)) {
+            return;
+        }
+        long[] stageNanos = new long[STAGES.length];
+        for (int i = 0; i < stageNanos.length; i++) {
+            stageNanos[i] = nanos[i].sum();
+        }
+        CsvStats stats = new CsvStats(operation, fileName, rows.sum(), failedRows.sum(), bytes.sum(),
+                System.nanoTime() - start, stageNanos, maxQueueDepth.get());
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation.name();
+                event.fileName = fileName;
+                event.rows = stats.rows();
+                event.failedRows = stats.failedRows();
+                event.bytes = stats.bytes();
+                event.readTime = stats.nanos(CsvStage.READ);
+                event.tokenizeTime = stats.nanos(CsvStage.TOKENIZE);
+                event.mapTime = stats.nanos(CsvStage.MAP);
+                event.encodeTime = stats.nanos(CsvStage.ENCODE);
+                event.writeTime = stats.nanos(CsvStage.WRITE);
+                event.maxQueueDepth = stats.maxQueueDepth();
+                event.commit();
+            }
+        }
+        try {
+            metrics.completed(stats);
+        } catch (RuntimeException e) {
+            log.warn("Metrics listener failed on {}", fileName, e);
+        }
+    }
+
+    /**
+     * Adds the time spent reading an input to the {@link CsvStage#READ} stage.
+     *
+     * @param in the input
+     * @return the input, wrapped if stages are timed
+     */
+    InputStream timed(InputStream in) {
+        return enabled ? new TimedInputStream(in) : in;
+    }
+
+    private final class TimedInputStream extends FilterInputStream {
+        TimedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long begin = System.nanoTime();
+            try {
+                return in.read();
+            } finally {
+                nanos(CsvStage.READ, System.nanoTime() - begin);
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long begin = System.nanoTime();
+            try {
+                return in.read(b, off, len);
+            } finally {
+                nanos(CsvStage.READ, System.nanoTime() - begin);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.rajnat.csv.parser;
+
+/**
+ * Receives the metrics of the imports and exports of a {@link CsvImporter} or {@link CsvExporter}
+ * configured with {@code withMetrics}.
+ * <p>
+ * {@link #batch} is called for every batch of rows a pipelined or parallel import or export hands
+ * from one stage to the next, possibly from several threads at the same time, and
+ * {@link #completed(CsvStats)} once per file. Both must be thread-safe and should return quickly.
+ * Every import and export also records the {@code org.rajnat.csv.File} and
+ * {@code org.rajnat.csv.Batch} JDK Flight Recorder events while a recording enables them, whether
+ * or not a listener is set.
+ * <p>
+ * Stages are only timed when a listener is set or the events are enabled, so imports and exports
+ * without metrics do not read the clock per row.
+ */
+public interface CsvMetrics {
+
+    /**
+     * Ignores all metrics; the default of importers and exporters.
+     */
+    CsvMetrics NONE = new CsvMetrics() {
+    };
+
+    /**
+     * Reports a batch of rows processed by a stage.
+     *
+     * @param fileName the name of the file
+     * @param stage the stage that processed the batch
+     * @param rows the number of rows in the batch
+     * @param nanos the time the stage spent on the batch, excluding waits for other stages
+     * @param queueDepth the number of batches or blocks waiting for the stage when it took the batch
+     */
+    default void batch(String fileName, CsvStage stage, int rows, long nanos, int queueDepth) {
+    }
+
+    /**
+     * Reports the totals of a file once it has been read or written, or its import or export failed
+     * after the file was opened.
+     *
+     * @param stats the totals of the file
+     */
+    default void completed(CsvStats stats) {
+    }
+}
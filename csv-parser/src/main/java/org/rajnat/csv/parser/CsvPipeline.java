@@ -0,0 +1,504 @@
+package org.rajnat.csv.parser;
+
+import org.rajnat.csv.api.RowConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Imports a CSV file through stages running as concurrent tasks, connected by {@link RingBuffer}s.
+ * <p>
+ * A read stage fills large blocks from the file, inflating compressed files, a tokenize stage splits
+ * the blocks into batches of records, and one or more map stages convert the batches to objects,
+ * which the calling thread collects in file order. Reading, inflating, tokenizing and mapping thus
+ * overlap instead of running one after another, also for compressed files, which cannot be split
+ * into chunks.
+ * <p>
+ * Blocks and batches, including the record bytes a batch holds, are recycled from the stage that
+ * empties them back to the stage that fills them. Their number is fixed, so a slow consumer holds
+ * back the whole pipeline instead of letting it buffer the file. Batches are handed to the map
+ * stages in turn and collected in the same turn; every ring buffer has room for all batches, so a
+ * stage only ever waits for work or for a free batch. A stage with nothing to do spins briefly, then
+ * yields and finally parks for short periods.
+ * <p>
+ * The stages of a pipeline wait for each other, so their executor must run all {@code 2 + mappers}
+ * of them at the same time. By default every stage runs on a virtual thread, so a pipeline holds no
+ * platform thread beyond the carriers of the virtual threads, and a parked stage holds none at all.
+ *
+ * @param <T> the type of objects produced
+ */
+final class CsvPipeline<T> implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(CsvPipeline.class);
+
+    static final int MAX_MAPPERS = 16;
+    static final int BLOCK_SIZE = 1 << 20;
+    private static final int BLOCKS = 4;
+    static final int BATCH_ROWS = 1 << 10;
+    private static final int BATCH_BYTES = 1 << 16;
+    private static final int BATCHES_PER_MAPPER = 2;
+    private static final int SPINS = 1 << 7;
+    private static final int YIELDS = 1 << 4;
+    private static final long PARK_NANOS = 50_000;
+
+    private static final Block END_BLOCK = new Block(0);
+    private static final Batch END_BATCH = new Batch();
+    private static final Stopped STOPPED = new Stopped();
+
+    /** The default executor of the stages, running every stage on its own virtual thread. */
+    static final Executor STAGES = CsvExecutors.virtualThreads();
+
+    private final String fileName;
+    private final Deserializer deserializer;
+    private final HeaderBinding<T> binding;
+    private final int mappers;
+    private final int batches;
+    private final RingBuffer<Block> filledBlocks = new RingBuffer<>(BLOCKS + 1);
+    private final RingBuffer<Block> freeBlocks = new RingBuffer<>(BLOCKS);
+    private final List<RingBuffer<Batch>> tokenized = new ArrayList<>();
+    private final List<RingBuffer<Batch>> mapped = new ArrayList<>();
+    private final RingBuffer<Batch> freeBatches;
+    private final CsvTokenizer tokenizer;
+    private final CsvMeter meter;
+    private final RowErrors errors;
+    private long blockWaitNanos; // Time the tokenize stage waited for blocks, for its batch times
+    private CsvIndex.Builder indexBuilder;
+    private volatile boolean closed;
+    private volatile Throwable failure;
+
+    /**
+     * Opens a file, starts reading it and binds its header, then starts the other stages.
+     *
+     * @param fileName the name of the input CSV file, possibly compressed
+     * @param format the format of the file
+     * @param deserializer the deserializer mapping the rows
+     * @param clazz the class type of the objects
+     * @param query the projection and row filter
+     * @param mappers the number of map stages
+     * @param stages the executor running the stages; must run {@code 2 + mappers} tasks at the same time
+     * @param indexInterval the interval of the {@link CsvIndex} written once the file has been read,
+     *                      or 0 not to write one; compressed files are not indexed
+     * @param meter the meter of the file, finished once all rows are collected or the pipeline is closed
+     * @param errors the failed rows of the file, finished once all rows are collected or the pipeline is closed
+     * @throws IOException if the file cannot be opened or its header cannot be read
+     * @throws IllegalArgumentException if the number of map stages is not between 1 and {@link #MAX_MAPPERS}
+     * @throws java.util.concurrent.RejectedExecutionException if the executor rejects a stage
+     */
+    CsvPipeline(String fileName, CsvFormat format, Deserializer deserializer, Class<T> clazz, CsvQuery query,
+                int mappers, Executor stages, int indexInterval, CsvMeter meter, RowErrors errors) throws IOException {
+        if (mappers <= 0 || mappers > MAX_MAPPERS) {
+            throw new IllegalArgumentException("mappers must be between 1 and " + MAX_MAPPERS + ": " + mappers);
+        }
+        this.fileName = fileName;
+        this.deserializer = deserializer;
+        this.mappers = mappers;
+        this.meter = meter;
+        this.errors = errors;
+        this.batches = mappers * BATCHES_PER_MAPPER;
+        this.freeBatches = new RingBuffer<>(batches);
+        for (int i = 0; i < mappers; i++) {
+            tokenized.add(new RingBuffer<>(batches + 1));
+            mapped.add(new RingBuffer<>(batches + 1));
+        }
+        ReadableByteChannel source = Compression.openChannel(fileName);
+        try {
+            this.indexBuilder = indexInterval > 0 && source instanceof FileChannel
+                    ? new CsvIndex.Builder(fileName, format, indexInterval)
+                    : null;
+            stages.execute(() -> read(source));
+        } catch (IOException | RuntimeException e) {
+            source.close();
+            throw e;
+        }
+        try {
+            this.tokenizer = new CsvTokenizer(new BlockInputStream(), format);
+            CsvRecord header = new CsvRecord();
+            this.binding = deserializer.bindHeaders(tokenizer.next(header) ? header.toArray() : null, clazz, query);
+            tokenizer.project(binding.projection());
+        } catch (Stopped e) {
+            close();
+            throw failure();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+        try {
+            stages.execute(this::tokenize);
+            for (int i = 0; i < mappers; i++) {
+                RingBuffer<Batch> in = tokenized.get(i);
+                RingBuffer<Batch> out = mapped.get(i);
+                stages.execute(() -> map(in, out));
+            }
+        } catch (RuntimeException e) {
+            close(); // Stops the stages already running
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of map stages that keeps the other cores busy, leaving one each to the
+     * read and tokenize stages
+     */
+    static int defaultMappers() {
+        return Math.max(1, Math.min(MAX_MAPPERS, Runtime.getRuntime().availableProcessors() - 2));
+    }
+
+    /**
+     * Collects all rows in file order.
+     *
+     * @return the rows, with null for rows that could not be converted unless the error policy skips them
+     * @throws IOException if reading the file fails
+     */
+    List<T> readAll() throws IOException {
+        List<T> rows = new ArrayList<>();
+        collect((value, record) -> rows.add(value), errors.keepsFailed());
+        return rows;
+    }
+
+    /**
+     * Hands every row to a consumer on the calling thread, in file order. Rows that cannot be
+     * converted are skipped.
+     *
+     * @param consumer the consumer of the rows
+     * @return the number of rows handed to the consumer
+     * @throws IOException if reading the file fails
+     */
+    long forEach(RowConsumer<? super T> consumer) throws IOException {
+        return collect((value, record) -> consumer.accept(value), false);
+    }
+
+    /**
+     * Hands batches of rows to the consumer of a batcher on the calling thread, in file order. Rows
+     * that cannot be converted are skipped. While the consumer is busy the stages fill their free
+     * blocks and batches and then wait for it.
+     *
+     * @param batcher the batcher of the rows
+     * @return the number of rows handed to the consumer of the batcher
+     * @throws IOException if reading the file fails
+     */
+    long forEachBatch(RowBatcher<T> batcher) throws IOException {
+        collect(batcher::add, false);
+        return batcher.finish();
+    }
+
+    @SuppressWarnings("unchecked")
+    private long collect(Collector<T> consumer, boolean nulls) throws IOException {
+        long count = 0;
+        try {
+            for (int turn = 0; ; turn = turn + 1 == mappers ? 0 : turn + 1) {
+                Batch batch = take(mapped.get(turn));
+                if (batch == END_BATCH) {
+                    meter.finish();
+                    errors.finish(true);
+                    return count;
+                }
+                for (int i = 0; i < batch.size; i++) {
+                    T value = (T) batch.values[i];
+                    batch.values[i] = null;
+                    if (value != null) {
+                        consumer.accept(value, batch.records[i]);
+                        count++;
+                    } else if (nulls) {
+                        consumer.accept(null, batch.records[i]);
+                    }
+                }
+                freeBatches.offer(batch); // Never full: it has room for all batches
+            }
+        } catch (Stopped e) {
+            throw failure();
+        }
+    }
+
+    private void read(ReadableByteChannel source) {
+        try (source) {
+            int allocated = 0;
+            boolean more = true;
+            while (more) {
+                Block block = freeBlocks.poll();
+                if (block == null && allocated < BLOCKS) {
+                    block = new Block(BLOCK_SIZE);
+                    allocated++;
+                } else if (block == null) {
+                    block = take(freeBlocks);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(block.bytes);
+                long begin = meter.clock();
+                while (buffer.hasRemaining() && (more = source.read(buffer) >= 0)) {
+                    // Fill the whole block, so that the tokenize stage gets few large reads
+                }
+                meter.nanos(CsvStage.READ, meter.clock() - begin);
+                block.length = buffer.position();
+                if (block.length > 0) {
+                    put(filledBlocks, block);
+                }
+            }
+            put(filledBlocks, END_BLOCK);
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    private void tokenize() {
+        try {
+            CsvRecord record = new CsvRecord();
+            int allocated = 0;
+            int turn = 0;
+            long rows = 0;
+            boolean more = true;
+            while (more) {
+                Batch batch = freeBatches.poll();
+                if (batch == null && allocated < batches) {
+                    batch = new Batch();
+                    allocated++;
+                } else if (batch == null) {
+                    batch = take(freeBatches);
+                }
+                batch.clear();
+                int depth = filledBlocks.size();
+                long begin = meter.clock();
+                long waited = blockWaitNanos;
+                while (batch.size < BATCH_ROWS && (more = tokenizer.next(record))) {
+                    rows++;
+                    if (indexBuilder != null) {
+                        indexBuilder.add(record.offset());
+                    }
+                    if (binding.accepts(record)) {
+                        batch.add(record, rows - 1);
+                    }
+                }
+                if (batch.size > 0) {
+                    meter.batch(CsvStage.TOKENIZE, batch.size, meter.clock() - begin - (blockWaitNanos - waited), depth);
+                    put(tokenized.get(turn), batch);
+                    turn = turn + 1 == mappers ? 0 : turn + 1;
+                }
+            }
+            if (indexBuilder != null) {
+                writeIndex();
+            }
+            meter.rows(rows);
+            meter.bytes(tokenizer.position());
+            errors.rows(rows);
+            for (RingBuffer<Batch> ring : tokenized) {
+                put(ring, END_BATCH);
+            }
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    private void map(RingBuffer<Batch> in, RingBuffer<Batch> out) {
+        try {
+            Batch batch;
+            while ((batch = take(in)) != END_BATCH) {
+                int depth = in.size();
+                long begin = meter.clock();
+                int failed = 0;
+                for (int i = 0; i < batch.size; i++) {
+                    Object value = batch.values[i] = deserializer.mapCsvToObject(batch.records[i], binding, null, errors, batch.rows[i]);
+                    if (value == null) {
+                        failed++;
+                    }
+                }
+                meter.batch(CsvStage.MAP, batch.size, meter.clock() - begin, depth);
+                meter.failedRows(failed);
+                put(out, batch);
+            }
+            put(out, END_BATCH);
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    private void writeIndex() {
+        try {
+            CsvIndex index = indexBuilder.finish();
+            if (index != null) {
+                index.write(fileName);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write the index of {}", fileName, e);
+        }
+        indexBuilder = null;
+    }
+
+    private <E> E take(RingBuffer<E> ring) {
+        E element;
+        for (int idle = 0; (element = ring.poll()) == null; idle++) {
+            idle(idle);
+        }
+        return element;
+    }
+
+    private <E> void put(RingBuffer<E> ring, E element) {
+        for (int idle = 0; !ring.offer(element); idle++) {
+            idle(idle);
+        }
+    }
+
+    private void idle(int count) {
+        if (closed || Thread.currentThread().isInterrupted()) {
+            throw STOPPED;
+        }
+        if (count < SPINS) {
+            Thread.onSpinWait();
+        } else if (count < SPINS + YIELDS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    private void fail(Throwable e) {
+        if (!(e instanceof Stopped)) {
+            synchronized (this) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        closed = true;
+    }
+
+    /**
+     * @return the exception to throw on the calling thread once the pipeline stopped; unchecked
+     * failures of a stage are rethrown as they are
+     */
+    private IOException failure() {
+        Throwable e = failure;
+        if (e instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        if (e instanceof Error error) {
+            throw error;
+        }
+        if (e != null) {
+            return new IOException("Failed to read " + fileName, e);
+        }
+        close();
+        if (Thread.currentThread().isInterrupted()) {
+            return new InterruptedIOException("Interrupted while reading " + fileName);
+        }
+        return new IOException("Closed while reading " + fileName);
+    }
+
+    /**
+     * Stops all stages. Stages waiting for work or room stop right away, the read stage after its
+     * current read.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        meter.finish();
+        errors.finish(false);
+    }
+
+    /**
+     * Receives the collected rows with the records they were mapped from.
+     */
+    private interface Collector<T> {
+        void accept(T value, CsvRecord record);
+    }
+
+    /**
+     * A block of bytes read from the file.
+     */
+    private static final class Block {
+        final byte[] bytes;
+        int length;
+
+        Block(int size) {
+            this.bytes = new byte[size];
+        }
+    }
+
+    /**
+     * A batch of records copied out of the tokenizer buffer, and the objects mapped from them.
+     */
+    private static final class Batch {
+        final CsvRecord[] records = new CsvRecord[BATCH_ROWS];
+        final Object[] values = new Object[BATCH_ROWS];
+        final long[] rows = new long[BATCH_ROWS];
+        byte[] bytes = new byte[BATCH_BYTES];
+        int used;
+        int size;
+
+        void add(CsvRecord record, long row) {
+            int span = record.span();
+            if (bytes.length - used < span) {
+                // Records already added keep the old buffer
+                bytes = new byte[Math.max(bytes.length << 1, span)];
+                used = 0;
+            }
+            CsvRecord target = records[size];
+            if (target == null) {
+                target = records[size] = new CsvRecord();
+            }
+            record.copyTo(target, bytes, used);
+            rows[size] = row;
+            used += span;
+            size++;
+        }
+
+        void clear() {
+            used = 0;
+            size = 0;
+        }
+    }
+
+    /**
+     * Feeds the blocks of the read stage to the tokenizer, handing every block back once consumed.
+     */
+    private final class BlockInputStream extends InputStream {
+        private Block current;
+        private int position;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            Objects.checkFromIndexSize(off, len, b.length);
+            while (current == null || position == current.length) {
+                if (current == END_BLOCK) {
+                    return -1;
+                }
+                if (current != null) {
+                    freeBlocks.offer(current); // Never full: it has room for all blocks
+                }
+                long begin = meter.clock();
+                current = take(filledBlocks);
+                blockWaitNanos += meter.clock() - begin;
+                position = 0;
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current.bytes, position, b, off, n);
+            position += n;
+            return n;
+        }
+    }
+
+    /**
+     * Unwinds a stage once the pipeline is closed. Thrown often on early closes, so it has no stack trace.
+     */
+    private static final class Stopped extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Stopped() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.rajnat.csv.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static java.lang.String.format;
+
+/**
+ * Column projection and row filter of an import, applied before rows are converted to objects.
+ * <p>
+ * Conditions test the raw bytes of a column by header name and may refer to any column of the file,
+ * not only to annotated ones. A row is imported when all conditions accept it; rejected rows are
+ * skipped without creating an object or converting a field. When columns are selected, only those
+ * annotated columns are converted and required in the header, the other fields keep their default
+ * values, and the tokenizer does not unescape columns that are neither selected nor tested.
+ * Queries are immutable; every method returns a copy.
+ * <pre>{@code
+ * CsvQuery query = CsvQuery.all()
+ *         .select("Employee ID", "Salary")
+ *         .whereEquals("Status", "ACTIVE");
+ * }</pre>
+ */
+public final class CsvQuery {
+    private static final CsvQuery ALL = new CsvQuery(null, List.of());
+
+    /**
+     * A condition on one column.
+     *
+     * @param column the header name of the column
+     * @param predicate the test of its raw bytes
+     */
+    record Condition(String column, FieldPredicate predicate) {
+    }
+
+    private final Set<String> columns;
+    private final List<Condition> conditions;
+
+    private CsvQuery(Set<String> columns, List<Condition> conditions) {
+        this.columns = columns;
+        this.conditions = conditions;
+    }
+
+    /**
+     * @return the query importing every row and every annotated column
+     */
+    public static CsvQuery all() {
+        return ALL;
+    }
+
+    /**
+     * Returns a copy that only converts the given annotated columns.
+     *
+     * @param columns the header names of the columns to convert
+     * @return a new query
+     */
+    public CsvQuery select(String... columns) {
+        return new CsvQuery(Set.copyOf(new LinkedHashSet<>(Arrays.asList(columns))), conditions);
+    }
+
+    /**
+     * Returns a copy that only imports rows whose column is accepted by a predicate.
+     *
+     * @param column the header name of the column
+     * @param predicate the test of the raw bytes of the column
+     * @return a new query
+     */
+    public CsvQuery where(String column, FieldPredicate predicate) {
+        List<Condition> copy = new ArrayList<>(conditions);
+        copy.add(new Condition(Objects.requireNonNull(column, "column"), Objects.requireNonNull(predicate, "predicate")));
+        return new CsvQuery(columns, List.copyOf(copy));
+    }
+
+    /**
+     * Returns a copy that only imports rows whose column converts to an accepted value. Only the
+     * tested column is converted before the row is accepted.
+     *
+     * @param <V> the converted type
+     * @param column the header name of the column
+     * @param converter the converter of the column
+     * @param predicate the test of the converted value
+     * @return a new query
+     */
+    public <V> CsvQuery where(String column, CsvConverter<V> converter, Predicate<? super V> predicate) {
+        return where(column, (bytes, offset, length) -> predicate.test(converter.parse(bytes, offset, length)));
+    }
+
+    /**
+     * Returns a copy that only imports rows whose column is exactly the given text.
+     *
+     * @param column the header name of the column
+     * @param value the expected text
+     * @return a new query
+     */
+    public CsvQuery whereEquals(String column, String value) {
+        return whereIn(column, value);
+    }
+
+    /**
+     * Returns a copy that only imports rows whose column is exactly one of the given texts.
+     *
+     * @param column the header name of the column
+     * @param values the accepted texts
+     * @return a new query
+     */
+    public CsvQuery whereIn(String column, String... values) {
+        byte[][] encoded = Arrays.stream(values).map(v -> v.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+        return where(column, (bytes, offset, length) -> {
+            for (byte[] value : encoded) {
+                if (Arrays.equals(value, 0, value.length, bytes, offset, offset + length)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * @return the selected column names, or null if all annotated columns are converted
+     */
+    Set<String> columns() {
+        return columns;
+    }
+
+    List<Condition> conditions() {
+        return conditions;
+    }
+
+    @Override
+    public String toString() {
+        return format("CsvQuery[columns=%s, conditions=%s]", columns == null ? "all" : columns,
+                conditions.stream().map(Condition::column).toList());
+    }
+}
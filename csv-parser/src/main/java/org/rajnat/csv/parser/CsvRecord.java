@@ -0,0 +1,223 @@
+package org.rajnat.csv.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A single CSV record described by field boundaries over a byte buffer.
+ * <p>
+ * The tokenizer reuses one record and points it into its read buffer, so a record is only valid
+ * until the next record is read; use {@link #copy()} to keep it longer. Field bytes are UTF-8 with
+ * quotes and escapes already removed.
+ */
+final class CsvRecord implements CsvRow {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private byte[] buffer;
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] ends = new int[INITIAL_CAPACITY];
+    private boolean[] escaped = new boolean[INITIAL_CAPACITY];
+    private int size;
+    private long offset;
+
+    void reset(byte[] buffer, long offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.size = 0;
+    }
+
+    void add(int start, int end, boolean needsUnescape) {
+        if (size == starts.length) {
+            int capacity = size << 1;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            escaped = Arrays.copyOf(escaped, capacity);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        escaped[size] = needsUnescape;
+        size++;
+    }
+
+    boolean needsUnescape(int index) {
+        return escaped[index];
+    }
+
+    void unescaped(int index, int end) {
+        ends[index] = end;
+        escaped[index] = false;
+    }
+
+    /**
+     * Creates a record over the UTF-8 encoding of already split values.
+     *
+     * @param values the field values
+     * @return a detached record
+     */
+    static CsvRecord of(String... values) {
+        byte[][] encoded = new byte[values.length][];
+        int total = 0;
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = values[i] == null ? new byte[0] : values[i].getBytes(StandardCharsets.UTF_8);
+            total += encoded[i].length;
+        }
+        CsvRecord record = new CsvRecord();
+        record.reset(new byte[total], 0);
+        int position = 0;
+        for (byte[] value : encoded) {
+            System.arraycopy(value, 0, record.buffer, position, value.length);
+            record.add(position, position + value.length, false);
+            position += value.length;
+        }
+        return record;
+    }
+
+    /**
+     * @return the number of fields in the record
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the buffer holding the field bytes
+     */
+    byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * @param index the field index
+     * @return the offset of the field in {@link #buffer()}
+     */
+    int start(int index) {
+        return starts[index];
+    }
+
+    /**
+     * @param index the field index
+     * @return the length of the field in bytes
+     */
+    int length(int index) {
+        return ends[index] - starts[index];
+    }
+
+    /**
+     * @return the byte offset of the record in its source
+     */
+    long offset() {
+        return offset;
+    }
+
+    @Override
+    public boolean isEmpty(int index) {
+        return ends[index] == starts[index];
+    }
+
+    /**
+     * Decodes a field to a String.
+     *
+     * @param index the field index
+     * @return the field value
+     */
+    @Override
+    public String getString(int index) {
+        return new String(buffer, starts[index], ends[index] - starts[index], StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int getInt(int index) {
+        return ByteParsers.parseInt(buffer, starts[index], ends[index] - starts[index]);
+    }
+
+    @Override
+    public long getLong(int index) {
+        return ByteParsers.parseLong(buffer, starts[index], ends[index] - starts[index]);
+    }
+
+    @Override
+    public short getShort(int index) {
+        return ByteParsers.parseShort(buffer, starts[index], ends[index] - starts[index]);
+    }
+
+    @Override
+    public byte getByte(int index) {
+        return ByteParsers.parseByte(buffer, starts[index], ends[index] - starts[index]);
+    }
+
+    @Override
+    public double getDouble(int index) {
+        return ByteParsers.parseDouble(buffer, starts[index], ends[index] - starts[index]);
+    }
+
+    @Override
+    public float getFloat(int index) {
+        return ByteParsers.parseFloat(buffer, starts[index], ends[index] - starts[index]);
+    }
+
+    @Override
+    public boolean getBoolean(int index) {
+        return ByteParsers.parseBoolean(buffer, starts[index], ends[index] - starts[index]);
+    }
+
+    @Override
+    public char getChar(int index) {
+        return ByteParsers.parseChar(buffer, starts[index], ends[index] - starts[index]);
+    }
+
+    @Override
+    public <V> V get(int index, CsvConverter<V> converter) {
+        return converter.parse(buffer, starts[index], ends[index] - starts[index]);
+    }
+
+    /**
+     * @return all fields decoded to Strings
+     */
+    String[] toArray() {
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = getString(i);
+        }
+        return values;
+    }
+
+    /**
+     * Copies the record into its own compact buffer so that it outlives the tokenizer buffer.
+     *
+     * @return a detached copy of the record
+     */
+    CsvRecord copy() {
+        CsvRecord copy = new CsvRecord();
+        copyTo(copy, new byte[span()], 0);
+        return copy;
+    }
+
+    /**
+     * @return the number of bytes from the start of the first field to the end of the last one
+     */
+    int span() {
+        return size == 0 ? 0 : ends[size - 1] - starts[0];
+    }
+
+    /**
+     * Copies the record into a buffer owned by the caller, such as one shared by a batch of records.
+     *
+     * @param target the record pointed into the buffer
+     * @param bytes the buffer, with room for {@link #span()} bytes at {@code position}
+     * @param position the offset of the copy in the buffer
+     */
+    void copyTo(CsvRecord target, byte[] bytes, int position) {
+        int from = size == 0 ? 0 : starts[0];
+        System.arraycopy(buffer, from, bytes, position, span());
+        target.reset(bytes, offset);
+        for (int i = 0; i < size; i++) {
+            target.add(starts[i] - from + position, ends[i] - from + position, escaped[i]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.join(",", toArray());
+    }
+}
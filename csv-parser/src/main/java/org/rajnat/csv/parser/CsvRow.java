@@ -0,0 +1,49 @@
+package org.rajnat.csv.parser;
+
+/**
+ * Read-only view of the fields of one CSV row.
+ * <p>
+ * The typed getters parse the raw UTF-8 bytes of a field without creating a String. A row is only
+ * valid while it is being mapped; the underlying buffer is reused for the next row.
+ */
+public sealed interface CsvRow permits CsvRecord {
+
+    /**
+     * @return the number of fields in the row
+     */
+    int size();
+
+    /**
+     * @param index the field index
+     * @return true if the field is empty
+     */
+    boolean isEmpty(int index);
+
+    String getString(int index);
+
+    int getInt(int index);
+
+    long getLong(int index);
+
+    short getShort(int index);
+
+    byte getByte(int index);
+
+    double getDouble(int index);
+
+    float getFloat(int index);
+
+    boolean getBoolean(int index);
+
+    char getChar(int index);
+
+    /**
+     * Converts a field with a converter.
+     *
+     * @param <V> the converted type
+     * @param index the field index
+     * @param converter the converter to apply to the raw bytes of the field
+     * @return the converted value
+     */
+    <V> V get(int index, CsvConverter<V> converter);
+}
@@ -0,0 +1,43 @@
+package org.rajnat.csv.parser;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Receives the fields of one CSV row in column order.
+ * <p>
+ * The writer inserts delimiters between fields, quotes fields that contain delimiters, quotes or
+ * line breaks, and writes a null value as an empty field.
+ */
+public interface CsvRowWriter {
+
+    void write(String value);
+
+    /**
+     * Writes the {@code toString()} of a value.
+     *
+     * @param value the value, or null for an empty field
+     */
+    void write(Object value);
+
+    void write(int value);
+
+    void write(long value);
+
+    void write(double value);
+
+    void write(float value);
+
+    void write(boolean value);
+
+    void write(char value);
+
+    /**
+     * Writes a field from its UTF-8 encoding. Codecs use it for constant texts encoded once, such as
+     * enum labels, so that writers producing bytes can copy them without encoding.
+     *
+     * @param value the UTF-8 bytes of the field, or null for an empty field; not modified
+     */
+    default void writeUtf8(byte[] value) {
+        write(value == null ? null : new String(value, StandardCharsets.UTF_8));
+    }
+}
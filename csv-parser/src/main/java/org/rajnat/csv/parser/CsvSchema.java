@@ -0,0 +1,226 @@
+package org.rajnat.csv.parser;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Immutable binding schema of a class with {@link CsvField} annotated fields.
+ * <p>
+ * The schema is resolved once per class and cached, so the annotated fields are only discovered,
+ * sorted by {@link CsvField#order()} and made accessible a single time. Field access goes through
+ * precompiled {@link MethodHandle}s, which leaves only value conversion and assignment on the per-row path.
+ * Instances are safe to share between threads.
+ *
+ * @param <T> the type the schema binds to
+ */
+final class CsvSchema<T> {
+
+    private static final ClassValue<CsvSchema<?>> CACHE = new ClassValue<>() {
+        @Override
+        protected CsvSchema<?> computeValue(Class<?> type) {
+            return new CsvSchema<>(type);
+        }
+    };
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final List<Column> columns;
+    private final String[] headerNames;
+    private final boolean deduplicates;
+
+    /**
+     * Returns the cached schema of a class, building it on first use.
+     *
+     * @param <T> the type of the class
+     * @param type the class annotated with {@link CsvField}
+     * @return the schema of the class
+     */
+    @SuppressWarnings("unchecked")
+    static <T> CsvSchema<T> of(Class<T> type) {
+        return (CsvSchema<T>) CACHE.get(type);
+    }
+
+    private CsvSchema(Class<T> type) {
+        this.type = type;
+        MethodHandles.Lookup lookup = lookupFor(type);
+
+        this.columns = Arrays.stream(type.getDeclaredFields())
+                .filter(f -> f.isAnnotationPresent(CsvField.class))
+                .filter(f -> !Modifier.isStatic(f.getModifiers()))
+                .sorted(Comparator.comparingInt(f -> f.getAnnotation(CsvField.class).order()))
+                .map(f -> new Column(lookup, f))
+                .toList();
+        this.headerNames = columns.stream().map(Column::name).toArray(String[]::new);
+        this.deduplicates = columns.stream().anyMatch(c -> c.dedupEntries() > 0);
+        this.constructor = findConstructor(lookup, type);
+    }
+
+    Class<T> type() {
+        return type;
+    }
+
+    /**
+     * @return the annotated columns sorted by {@link CsvField#order()}
+     */
+    List<Column> columns() {
+        return columns;
+    }
+
+    /**
+     * @return whether some String column is deduplicated through a dictionary
+     */
+    boolean deduplicates() {
+        return deduplicates;
+    }
+
+    /**
+     * @return the expected header names in column order
+     */
+    String[] headerNames() {
+        return headerNames.clone();
+    }
+
+    /**
+     * Creates a new instance through the cached no-arg constructor handle.
+     *
+     * @return a new instance of the schema type
+     * @throws IllegalStateException if the class has no no-arg constructor
+     */
+    @SuppressWarnings("unchecked")
+    T newInstance() {
+        if (constructor == null) {
+            throw new IllegalStateException(format("Class %s has no no-arg constructor", type.getName()));
+        }
+        try {
+            return (T) constructor.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(format("Failed to instantiate %s", type.getName()), t);
+        }
+    }
+
+    private static MethodHandles.Lookup lookupFor(Class<?> type) {
+        try {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(format("Class %s is not accessible for CSV binding", type.getName()), e);
+        }
+    }
+
+    private static MethodHandle findConstructor(MethodHandles.Lookup lookup, Class<?> type) {
+        try {
+            return lookup.findConstructor(type, MethodType.methodType(void.class)).asType(CONSTRUCTOR_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;  // Export-only types do not need a constructor
+        }
+    }
+
+    /**
+     * A single annotated field together with its precompiled accessors.
+     */
+    static final class Column {
+        private final Field field;
+        private final CsvField annotation;
+        private final String name;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final MethodHandle exactSetter;
+        private final EnumCodec<?> enumCodec;
+        private final int dedupEntries;
+
+        private Column(MethodHandles.Lookup lookup, Field field) {
+            this.field = field;
+            this.annotation = field.getAnnotation(CsvField.class);
+            this.name = annotation.name();
+            try {
+                this.getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+                MethodHandle rawSetter = Modifier.isFinal(field.getModifiers()) ? null : lookup.unreflectSetter(field);
+                this.setter = rawSetter == null ? null : rawSetter.asType(SETTER_TYPE);
+                this.exactSetter = rawSetter == null
+                        ? null
+                        : rawSetter.asType(MethodType.methodType(void.class, Object.class, field.getType()));
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(format("Failed to access field: %s", field), e);
+            }
+            this.enumCodec = EnumCodec.forField(field, annotation);
+            CsvDedup dedup = field.getDeclaringClass().getAnnotation(CsvDedup.class);
+            this.dedupEntries = field.getType() != String.class || dedup == null && !annotation.dedup()
+                    ? 0
+                    : dedup == null ? CsvDedup.DEFAULT_MAX_ENTRIES : dedup.maxEntries();
+        }
+
+        String name() {
+            return name;
+        }
+
+        Class<?> type() {
+            return field.getType();
+        }
+
+        Field field() {
+            return field;
+        }
+
+        CsvField annotation() {
+            return annotation;
+        }
+
+        /**
+         * @return the dictionary size of a deduplicated String column, or 0 if the column is not deduplicated
+         */
+        int dedupEntries() {
+            return dedupEntries;
+        }
+
+        /**
+         * @return the lookup tables of an enum column, or null if the column does not hold an enum
+         */
+        EnumCodec<?> enumCodec() {
+            return enumCodec;
+        }
+
+        /**
+         * @return a setter of type {@code (Object, fieldType)void} that assigns primitives without
+         * boxing, or null if the field is final
+         */
+        MethodHandle exactSetter() {
+            return exactSetter;
+        }
+
+        Object get(Object target) {
+            try {
+                return getter.invokeExact(target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(format("Failed to read field: %s", field), t);
+            }
+        }
+
+        void set(Object target, Object value) {
+            if (setter == null) {
+                throw new IllegalStateException(format("Field %s is final", field));
+            }
+            try {
+                setter.invokeExact(target, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(format("Failed to write field: %s", field), t);
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.rajnat.csv.parser;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Lazy spliterator over the rows of a CSV file.
+ * <p>
+ * Rows are read on demand from a {@link CsvIterator}. Like {@code Files.lines}, {@link #trySplit()}
+ * reads an arithmetically growing batch of raw rows and hands it off, so that mapping the rows to
+ * objects runs on the thread that receives the batch while reading stays sequential.
+ *
+ * @param <T> the type of objects produced
+ */
+class CsvSpliterator<T> implements Spliterator<T> {
+    static final int BATCH_UNIT = 1 << 10;
+    static final int MAX_BATCH = 1 << 25;
+
+    private final CsvIterator<T> iterator;
+    private int batch;
+
+    CsvSpliterator(CsvIterator<T> iterator) {
+        this.iterator = iterator;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (!iterator.hasNext()) {
+            return false;
+        }
+        action.accept(iterator.next());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        while (iterator.hasNext()) {
+            action.accept(iterator.next());
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        int size = Math.min(batch + BATCH_UNIT, MAX_BATCH);
+        CsvRecord[] rows = new CsvRecord[size];
+        long[] numbers = new long[size];
+        int count = 0;
+        iterator.retain(); // Reading the last row must not finish the file before the batch is mapped
+        while (count < size && iterator.hasNext()) {
+            numbers[count] = iterator.rowNumber();
+            rows[count++] = iterator.nextRow();
+        }
+        batch = count;
+        return count < size
+                ? new BatchSpliterator<>(iterator, Arrays.copyOf(rows, count), Arrays.copyOf(numbers, count), 0, count)
+                : new BatchSpliterator<>(iterator, rows, numbers, 0, count);
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED;
+    }
+
+    /**
+     * Spliterator over a batch of rows that were already read, mapping each row when it is consumed.
+     * Every split holds the iterator open until its last row has been mapped.
+     */
+    private static final class BatchSpliterator<T> implements Spliterator<T> {
+        private final CsvIterator<T> mapper;
+        private final CsvRecord[] rows;
+        private final long[] numbers;
+        private int index;
+        private final int fence;
+
+        BatchSpliterator(CsvIterator<T> mapper, CsvRecord[] rows, long[] numbers, int origin, int fence) {
+            this.mapper = mapper;
+            this.rows = rows;
+            this.numbers = numbers;
+            this.index = origin;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (index >= fence) {
+                return false;
+            }
+            CsvRecord row = rows[index];
+            rows[index] = null; // Release the raw row once mapped
+            T value = mapper.map(row, numbers[index++]);
+            if (index == fence) {
+                mapper.release();
+            }
+            action.accept(value);
+            return true;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            mapper.retain();
+            BatchSpliterator<T> prefix = new BatchSpliterator<>(mapper, rows, numbers, index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED;
+        }
+    }
+}
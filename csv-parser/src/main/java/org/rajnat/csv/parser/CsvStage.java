@@ -0,0 +1,20 @@
+package org.rajnat.csv.parser;
+
+/**
+ * The stages of an import or export whose time is reported to {@link CsvMetrics}.
+ */
+public enum CsvStage {
+    /** Waiting for the file to be read and, for compressed files, inflated. */
+    READ,
+    /** Splitting the bytes into records and fields. */
+    TOKENIZE,
+    /** Converting the fields of records to objects. */
+    MAP,
+    /** Encoding objects to CSV rows. */
+    ENCODE,
+    /**
+     * Writing the encoded rows and, for compressed files, deflating them; parallel gzip exports
+     * compress the rows while encoding them.
+     */
+    WRITE
+}
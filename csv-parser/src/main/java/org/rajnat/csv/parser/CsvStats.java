@@ -0,0 +1,123 @@
+package org.rajnat.csv.parser;
+
+import java.util.Objects;
+
+/**
+ * The totals of the import or export of one file, reported to {@link CsvMetrics#completed(CsvStats)}.
+ * <p>
+ * Stage times are summed over the threads running the stage, so with pipelined and parallel imports
+ * they can add up to more than {@link #elapsedNanos()}. The stage with the largest share is the one
+ * bounding the import or export. Stage times are zero when stages were not timed.
+ */
+public final class CsvStats {
+
+    /**
+     * Whether a file was read or written.
+     */
+    public enum Operation {
+        IMPORT,
+        EXPORT
+    }
+
+    private final Operation operation;
+    private final String fileName;
+    private final long rows;
+    private final long failedRows;
+    private final long bytes;
+    private final long elapsedNanos;
+    private final long[] stageNanos;
+    private final int maxQueueDepth;
+
+    CsvStats(Operation operation, String fileName, long rows, long failedRows, long bytes, long elapsedNanos,
+             long[] stageNanos, int maxQueueDepth) {
+        this.operation = operation;
+        this.fileName = fileName;
+        this.rows = rows;
+        this.failedRows = failedRows;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+        this.stageNanos = stageNanos;
+        this.maxQueueDepth = maxQueueDepth;
+    }
+
+    public Operation operation() {
+        return operation;
+    }
+
+    public String fileName() {
+        return fileName;
+    }
+
+    /**
+     * @return the number of data rows read, including rows that failed or were filtered out by a
+     * query, or the number of rows written
+     */
+    public long rows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of rows read that could not be converted to objects
+     */
+    public long failedRows() {
+        return failedRows;
+    }
+
+    /**
+     * @return the number of uncompressed CSV bytes read or written, including the header line
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the time from opening the file to the end of the import or export
+     */
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @param stage a stage
+     * @return the time spent in the stage
+     */
+    public long nanos(CsvStage stage) {
+        return stageNanos[Objects.requireNonNull(stage, "stage").ordinal()];
+    }
+
+    /**
+     * @return the largest number of blocks or batches seen waiting for a stage, or 0 if the file was
+     * not read or written by stages connected through queues
+     */
+    public int maxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public double rowsPerSecond() {
+        return perSecond(rows);
+    }
+
+    public double bytesPerSecond() {
+        return perSecond(bytes);
+    }
+
+    private double perSecond(long count) {
+        return elapsedNanos == 0 ? 0 : count * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder()
+                .append(operation).append(' ').append(fileName)
+                .append(": rows=").append(rows)
+                .append(", failedRows=").append(failedRows)
+                .append(", bytes=").append(bytes)
+                .append(", elapsedMillis=").append(elapsedNanos / 1_000_000);
+        for (CsvStage stage : CsvStage.values()) {
+            if (stageNanos[stage.ordinal()] != 0) {
+                result.append(", ").append(stage.name().toLowerCase()).append("Millis=").append(stageNanos[stage.ordinal()] / 1_000_000);
+            }
+        }
+        return result.append(", maxQueueDepth=").append(maxQueueDepth).toString();
+    }
+}
@@ -0,0 +1,218 @@
+package org.rajnat.csv.parser;
+
+import org.rajnat.csv.api.RowConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Incrementally imports the rows appended to a CSV file.
+ * <p>
+ * A tail remembers the offset after the last record it has imported. Every {@link #poll()} reads
+ * from that offset to the current end of the file and imports only complete records, those ending
+ * with a line break; a last record that is still being written is left for the next call. The
+ * header is bound once, when it is first complete. {@link #follow(RowConsumer)} polls whenever the
+ * file system reports a change of the file, so new rows reach the consumer with low latency.
+ * <p>
+ * Polls must not run concurrently. The offset can be saved and passed to
+ * {@link CsvImporter#tail(String, Class, long)} to continue after a restart. Only uncompressed files
+ * can be tailed, and a file that shrinks is reported as an error.
+ *
+ * @param <T> the type of objects imported
+ */
+public final class CsvTail<T> implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(CsvTail.class);
+
+    /** Polls this often in follow mode when no change events arrive, e.g. on file systems without them. */
+    private static final long FALLBACK_POLL_MILLIS = 250;
+
+    /** Runs every follow loop on its own virtual thread, which waits for changes without holding a platform thread. */
+    private static final Executor FOLLOWERS = CsvExecutors.virtualThreads();
+
+    private final Path path;
+    private final FileChannel channel;
+    private final CsvFormat format;
+    private final Deserializer deserializer;
+    private final Class<T> clazz;
+    private final RowErrors errors;
+    private final CsvRecord record = new CsvRecord();
+    private HeaderBinding<T> binding;
+    private long offset;
+    private volatile WatchService watcher;
+    private volatile boolean closed;
+
+    /**
+     * Opens a file, binding its header right away if rows are to be read from a saved offset.
+     *
+     * @param offset the offset to import from, 0 to start with the header
+     * @param errors the failed rows of the file, finished once the tail is closed
+     */
+    CsvTail(String fileName, CsvFormat format, Deserializer deserializer, Class<T> clazz, long offset,
+            RowErrors errors) throws IOException {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative: " + offset);
+        }
+        if (Compression.detect(fileName) != Compression.NONE) {
+            throw new IOException(format("Cannot tail the compressed file %s", fileName));
+        }
+        this.path = Path.of(fileName).toAbsolutePath();
+        this.format = format;
+        this.deserializer = deserializer;
+        this.clazz = clazz;
+        this.errors = errors;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (offset > 0) {
+                CsvTokenizer tokenizer = tokenizer(0);
+                if (!tokenizer.next(record) || tokenizer.position() > offset) {
+                    throw new IOException(format("Offset %d of %s is inside the header", offset, fileName));
+                }
+                this.binding = deserializer.bindHeaders(record.toArray(), clazz);
+                this.offset = offset;
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the offset after the last imported record
+     */
+    public synchronized long offset() {
+        return offset;
+    }
+
+    /**
+     * Imports the complete records appended since the last poll.
+     *
+     * @return the imported objects; rows that cannot be converted are skipped
+     * @throws IOException if reading the file fails or the file shrank
+     * @throws IllegalArgumentException if the header does not match the class
+     */
+    public List<T> poll() throws IOException {
+        List<T> rows = new ArrayList<>();
+        poll(rows::add);
+        return rows;
+    }
+
+    /**
+     * Imports the complete records appended since the last poll and hands each of them to a consumer.
+     * The offset advances past every record handed over, so a failing consumer does not see the
+     * records it was given again.
+     *
+     * @param consumer the consumer of the new rows
+     * @return the number of rows handed to the consumer
+     * @throws IOException if reading the file fails or the file shrank
+     * @throws IllegalArgumentException if the header does not match the class
+     */
+    public synchronized long poll(RowConsumer<? super T> consumer) throws IOException {
+        long size = channel.size();
+        if (size < offset) {
+            throw new IOException(format("%s shrank from %d to %d bytes", path, offset, size));
+        }
+        if (size == offset) {
+            return 0;
+        }
+        // Reads may run past the size seen above; only complete records are returned anyway
+        CsvTokenizer tokenizer = tokenizer(offset);
+        if (binding == null) {
+            if (!tokenizer.next(record)) {
+                return 0; // The header is not complete yet
+            }
+            binding = deserializer.bindHeaders(record.toArray(), clazz);
+            offset = tokenizer.position();
+        }
+        tokenizer.project(binding.projection());
+        long count = 0;
+        while (tokenizer.next(record)) {
+            offset = tokenizer.position();
+            T row = binding.accepts(record) ? deserializer.mapCsvToObject(record, binding, null, errors, -1) : null;
+            if (row != null) {
+                consumer.accept(row);
+                count++;
+            }
+        }
+        offset = tokenizer.position();
+        return count;
+    }
+
+    /**
+     * Polls the file asynchronously whenever it changes and hands the new rows to a consumer, until
+     * the tail is closed. The loop waiting for changes runs on its own virtual thread rather than on
+     * the executor of the importer, which it would otherwise block for as long as the tail is
+     * followed; the consumer is called on that thread.
+     *
+     * @param consumer the consumer of the new rows
+     * @return a CompletableFuture containing the number of rows handed to the consumer, completed when
+     * the tail is closed, or exceptionally with an {@link UncheckedIOException} if reading fails
+     */
+    public CompletableFuture<Long> follow(RowConsumer<? super T> consumer) {
+        return CompletableFuture.supplyAsync(() -> {
+            long count = 0;
+            try (WatchService watcher = path.getFileSystem().newWatchService()) {
+                this.watcher = watcher;
+                path.getParent().register(watcher, ENTRY_CREATE, ENTRY_MODIFY);
+                while (!closed) {
+                    count += poll(consumer);
+                    WatchKey key = watcher.poll(FALLBACK_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        key.pollEvents(); // Any event in the directory triggers a poll, which only checks the size
+                        key.reset();
+                    }
+                }
+            } catch (ClosedWatchServiceException | ClosedChannelException e) {
+                // Closed while waiting or reading
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            } catch (IOException e) {
+                log.error("Error following CSV file: {}", path, e);
+                throw new UncheckedIOException(e);
+            }
+            return count;
+        }, FOLLOWERS);
+    }
+
+    /**
+     * Stops following the file and closes it.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        WatchService watcher = this.watcher;
+        if (watcher != null) {
+            watcher.close();
+        }
+        channel.close();
+        errors.finish(false);
+    }
+
+    private CsvTokenizer tokenizer(long from) throws IOException {
+        // The tokenizer is not closed, as that would close the shared channel
+        CsvTokenizer tokenizer = new CsvTokenizer(Channels.newInputStream(channel.position(from)), format, from);
+        tokenizer.completeRecordsOnly();
+        return tokenizer;
+    }
+}
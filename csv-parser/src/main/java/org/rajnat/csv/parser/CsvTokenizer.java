@@ -0,0 +1,358 @@
+package org.rajnat.csv.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * RFC 4180 tokenizer working directly on a window of raw bytes.
+ * <p>
+ * Records are located with a state machine over the read buffer and reported as field boundaries
+ * in a reused {@link CsvRecord}, so no Strings are created while tokenizing. Unquoted fields are
+ * scanned eight bytes at a time (SWAR) for the delimiter and line breaks, and quoted fields for the
+ * quote and escape characters. Quoted fields may contain delimiters and line breaks; escaped quotes
+ * are collapsed in place once the record is complete. Records may end with LF, CRLF or CR, and
+ * blank lines are skipped.
+ */
+final class CsvTokenizer implements Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    static final long LF_MASK = broadcast((byte) '\n');
+    static final long CR_MASK = broadcast((byte) '\r');
+    /** A projection dropping every field, for records that are only counted or located. */
+    static final boolean[] NO_FIELDS = new boolean[0];
+
+    private static final int RECORD = 0;
+    private static final int NEED_MORE = 1;
+    private static final int END = 2;
+
+    private final InputStream in;
+    private final byte delimiter;
+    private final byte quote;
+    private final byte escape;
+    private final long delimiterMask;
+    private final long quoteMask;
+    private final long escapeMask;
+
+    private boolean[] projection;
+    private boolean completeRecordsOnly;
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    private long bufferOffset;
+    private boolean eof;
+
+    CsvTokenizer(InputStream in, CsvFormat format) {
+        this(in, format, DEFAULT_BUFFER_SIZE);
+    }
+
+    CsvTokenizer(InputStream in, CsvFormat format, int bufferSize) {
+        this(in, format, bufferSize, 0);
+    }
+
+    /**
+     * Creates a tokenizer for input that starts at a record boundary inside a larger file.
+     * <p>
+     * Record offsets and {@link #position()} are reported relative to the start of the file, and a
+     * byte order mark is only skipped at offset 0.
+     *
+     * @param in the input, positioned at {@code startOffset} of the file
+     * @param format the format of the file
+     * @param startOffset the file offset of the first byte of the input
+     */
+    CsvTokenizer(InputStream in, CsvFormat format, long startOffset) {
+        this(in, format, DEFAULT_BUFFER_SIZE, startOffset);
+    }
+
+    private CsvTokenizer(InputStream in, CsvFormat format, int bufferSize, long startOffset) {
+        this.in = in;
+        this.bufferOffset = startOffset;
+        this.delimiter = (byte) format.delimiter();
+        this.quote = (byte) format.quote();
+        this.escape = (byte) format.escape();
+        this.delimiterMask = broadcast(delimiter);
+        this.quoteMask = broadcast(quote);
+        this.escapeMask = broadcast(escape);
+        this.buf = new byte[Math.max(bufferSize, 16)];
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @param record the record to point at the fields; valid until the next call
+     * @return false if the end of the input was reached
+     * @throws IOException if reading the input fails
+     */
+    boolean next(CsvRecord record) throws IOException {
+        while (true) {
+            int result = parse(record);
+            if (result == RECORD) {
+                unescapeFields(record);
+                return true;
+            }
+            if (result == END) {
+                return false;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Restricts the fields recorded from now on. Fields that are not kept are still scanned, since
+     * they may hold quoted delimiters and line breaks, but are reported as empty and never unescaped.
+     *
+     * @param projection for every field position, whether to keep it, or null to keep all fields;
+     *                   positions past its length are dropped
+     */
+    void project(boolean[] projection) {
+        this.projection = projection;
+    }
+
+    /**
+     * Stops before a last record that is not terminated by a line break, which may still be being
+     * written, instead of returning it. {@link #position()} is then the offset of that record.
+     */
+    void completeRecordsOnly() {
+        this.completeRecordsOnly = true;
+    }
+
+    /**
+     * @return the byte offset in the input of the next unread record
+     */
+    long position() {
+        return bufferOffset + pos;
+    }
+
+    private int parse(CsvRecord record) {
+        final byte[] buf = this.buf;
+        final int end = limit;
+        int p = pos;
+
+        // Skip blank lines between records
+        while (p < end && (buf[p] == '\n' || buf[p] == '\r')) {
+            p++;
+        }
+        pos = p;
+        if (p >= end) {
+            return eof ? END : NEED_MORE;
+        }
+
+        record.reset(buf, bufferOffset + p);
+        while (true) {
+            if (p < end && buf[p] == quote) {
+                int contentStart = ++p;
+                boolean needsUnescape = false;
+                int closing;
+                while (true) {
+                    p = quote == escape ? scan(buf, p, end, quoteMask) : scan(buf, p, end, quoteMask, escapeMask);
+                    if (p >= end) {
+                        if (!eof) {
+                            return NEED_MORE;
+                        }
+                        closing = end; // Unterminated quote, keep what was read
+                        break;
+                    }
+                    if (p + 1 >= end && !eof) {
+                        return NEED_MORE; // Cannot tell an escaped quote from a closing one yet
+                    }
+                    if (buf[p] != quote) {
+                        needsUnescape = true; // Escape character, skip the escaped byte
+                        p = Math.min(p + 2, end);
+                    } else if (quote == escape && p + 1 < end && buf[p + 1] == quote) {
+                        needsUnescape = true;
+                        p += 2;
+                    } else {
+                        closing = p++;
+                        break;
+                    }
+                }
+                if (p < end && buf[p] != delimiter && buf[p] != '\n' && buf[p] != '\r') {
+                    // Characters after the closing quote are kept, the stray quote is dropped
+                    p = scan(buf, p, end, delimiterMask, LF_MASK, CR_MASK);
+                    if (p >= end && !eof) {
+                        return NEED_MORE;
+                    }
+                    field(record, contentStart, p, true);
+                } else {
+                    field(record, contentStart, closing, needsUnescape);
+                }
+            } else {
+                int fieldStart = p;
+                p = scan(buf, p, end, delimiterMask, LF_MASK, CR_MASK);
+                if (p >= end && !eof) {
+                    return NEED_MORE;
+                }
+                field(record, fieldStart, p, false);
+            }
+
+            if (p >= end) {
+                if (completeRecordsOnly) {
+                    return END; // The record may still be being written
+                }
+                pos = p;
+                return RECORD; // Last record without a line break
+            }
+            byte terminator = buf[p];
+            if (terminator == delimiter) {
+                p++;
+                continue;
+            }
+            if (terminator == '\r') {
+                if (p + 1 >= end && !eof) {
+                    return NEED_MORE;
+                }
+                if (p + 1 < end && buf[p + 1] == '\n') {
+                    p++;
+                }
+            }
+            pos = p + 1;
+            return RECORD;
+        }
+    }
+
+    private void field(CsvRecord record, int start, int end, boolean needsUnescape) {
+        int index = record.size();
+        if (projection == null || index < projection.length && projection[index]) {
+            record.add(start, end, needsUnescape);
+        } else {
+            record.add(start, start, false);
+        }
+    }
+
+    private void fill() throws IOException {
+        if (pos > 0) {
+            // Keep the incomplete record and move it to the start of the buffer
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            bufferOffset += pos;
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length << 1); // A single record larger than the buffer
+        }
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+            if (bufferOffset == 0 && limit >= 3 && (buf[0] & 0xFF) == 0xEF && (buf[1] & 0xFF) == 0xBB && (buf[2] & 0xFF) == 0xBF
+                    && pos == 0) {
+                pos = 3; // Skip the UTF-8 byte order mark
+            }
+        }
+    }
+
+    private void unescapeFields(CsvRecord record) {
+        for (int i = 0; i < record.size(); i++) {
+            if (record.needsUnescape(i)) {
+                int from = record.start(i);
+                record.unescaped(i, unescape(buf, from, from + record.length(i)));
+            }
+        }
+    }
+
+    /**
+     * Collapses escape sequences of a quoted field in place and drops stray quotes.
+     *
+     * @return the new end of the field
+     */
+    private int unescape(byte[] buf, int from, int to) {
+        int w = from;
+        for (int r = from; r < to; r++) {
+            byte b = buf[r];
+            if (b == escape && escape != quote && r + 1 < to) {
+                buf[w++] = buf[++r];
+            } else if (b == quote) {
+                if (escape == quote && r + 1 < to && buf[r + 1] == quote) {
+                    buf[w++] = quote;
+                    r++;
+                }
+                // A lone quote is the closing quote of the field
+            } else {
+                buf[w++] = b;
+            }
+        }
+        return w;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    static long broadcast(byte b) {
+        return (b & 0xFFL) * ONES;
+    }
+
+    /**
+     * Flags the bytes of a word that are zero. Only the lowest flag is exact, which is all the scans need.
+     */
+    private static long zeroBytes(long word) {
+        return (word - ONES) & ~word & HIGHS;
+    }
+
+    static int scan(byte[] buf, int from, int to, long mask) {
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long hits = zeroBytes((long) LONGS.get(buf, i) ^ mask);
+            if (hits != 0) {
+                return i + (Long.numberOfTrailingZeros(hits) >>> 3);
+            }
+        }
+        byte b = (byte) mask;
+        for (; i < to; i++) {
+            if (buf[i] == b) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    static int scan(byte[] buf, int from, int to, long mask1, long mask2) {
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = (long) LONGS.get(buf, i);
+            long hits = zeroBytes(word ^ mask1) | zeroBytes(word ^ mask2);
+            if (hits != 0) {
+                return i + (Long.numberOfTrailingZeros(hits) >>> 3);
+            }
+        }
+        byte b1 = (byte) mask1;
+        byte b2 = (byte) mask2;
+        for (; i < to; i++) {
+            byte b = buf[i];
+            if (b == b1 || b == b2) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    static int scan(byte[] buf, int from, int to, long mask1, long mask2, long mask3) {
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = (long) LONGS.get(buf, i);
+            long hits = zeroBytes(word ^ mask1) | zeroBytes(word ^ mask2) | zeroBytes(word ^ mask3);
+            if (hits != 0) {
+                return i + (Long.numberOfTrailingZeros(hits) >>> 3);
+            }
+        }
+        byte b1 = (byte) mask1;
+        byte b2 = (byte) mask2;
+        byte b3 = (byte) mask3;
+        for (; i < to; i++) {
+            byte b = buf[i];
+            if (b == b1 || b == b2 || b == b3) {
+                return i;
+            }
+        }
+        return to;
+    }
+}
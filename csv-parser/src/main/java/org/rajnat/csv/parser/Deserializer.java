@@ -3,18 +3,32 @@ package org.rajnat.csv.parser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
-
-import static java.lang.String.format;
+import java.util.concurrent.atomic.AtomicLong;
 
 class Deserializer {
     private static final Logger log = LoggerFactory.getLogger(Deserializer.class);
+    private final ConverterRegistry registry;
+    private final AtomicLong failedRows = new AtomicLong(); // Of the public methods, which have no file to report to
+
+    Deserializer() {
+        this(ConverterRegistry.defaults());
+    }
+
+    Deserializer(ConverterRegistry registry) {
+        this.registry = registry;
+    }
+
+    ConverterRegistry registry() {
+        return registry;
+    }
+
     /**
      * Validates the CSV headers.
+     * <p>
+     * Headers are valid when every annotated field has a matching column. Columns may appear in any
+     * order and columns without a matching field are ignored.
      *
      * @param <T> the type of objects to import
      * @param headerLine the header line from the CSV file
@@ -22,33 +36,80 @@ class Deserializer {
      * @return true if the headers are valid, false otherwise
      */
     public <T> boolean validateHeaders(String headerLine, Class<T> clazz) {
-        String[] headers = headerLine.split(",");
-        Field[] fields = clazz.getDeclaredFields();
-
-        List<Field> expectedFields = Arrays.stream(fields)
-                .filter(f -> f.isAnnotationPresent(CsvField.class))
-                .sorted(Comparator.comparingInt(f -> f.getAnnotation(CsvField.class).order()))
-                .toList();
+        return validateHeaders(headerLine == null ? null : headerLine.split(","), clazz);
+    }
 
-        if (headers.length != expectedFields.size()) {
-            log.error("Number of headers does not match the number of fields.");
+    /**
+     * Validates the CSV headers.
+     *
+     * @param <T> the type of objects to import
+     * @param headers the header names from the CSV file, or null if the file is empty
+     * @param clazz the class type of the objects
+     * @return true if the headers are valid, false otherwise
+     */
+    public <T> boolean validateHeaders(String[] headers, Class<T> clazz) {
+        if (headers == null) {
+            log.error("The CSV file has no header line.");
             return false;
         }
-
-        for (int i = 0; i < expectedFields.size(); i++) {
-            Field field = expectedFields.get(i);
-            CsvField annotation = field.getAnnotation(CsvField.class);
-            String expectedHeaderName = annotation.name();
-            if (!headers[i].equals(expectedHeaderName)) {
-                log.error(format("Header mismatch at index %d: expected '%s', but found '%s'",
-                        i, expectedHeaderName, headers[i]));
-                return false;
-            }
+        List<String> missingColumns = HeaderBinding.missingColumns(headers, Arrays.asList(CsvSchema.of(clazz).headerNames()));
+        if (!missingColumns.isEmpty()) {
+            log.error("CSV header is missing the columns {} required by {}", missingColumns, clazz.getName());
+            return false;
         }
-
         return true;
     }
 
+    /**
+     * Validates the CSV headers and binds them to the fields of a class.
+     *
+     * @param <T> the type of objects to import
+     * @param headerLine the header line from the CSV file
+     * @param clazz the class type of the objects
+     * @return the column binding for the rows of the file
+     * @throws IllegalArgumentException if the headers are invalid
+     */
+    public <T> HeaderBinding<T> bindHeaders(String headerLine, Class<T> clazz) {
+        return bindHeaders(headerLine == null ? null : headerLine.split(","), clazz);
+    }
+
+    /**
+     * Validates the CSV headers and binds them to the fields of a class.
+     *
+     * @param <T> the type of objects to import
+     * @param headers the header names from the CSV file, or null if the file is empty
+     * @param clazz the class type of the objects
+     * @return the column binding for the rows of the file
+     * @throws IllegalArgumentException if the headers are invalid
+     */
+    public <T> HeaderBinding<T> bindHeaders(String[] headers, Class<T> clazz) {
+        return bindHeaders(headers, clazz, CsvQuery.all());
+    }
+
+    /**
+     * Validates the CSV headers and binds them to the selected fields of a class and the conditions
+     * of a query. Only the selected columns are required in the header.
+     *
+     * @param <T> the type of objects to import
+     * @param headers the header names from the CSV file, or null if the file is empty
+     * @param clazz the class type of the objects
+     * @param query the projection and row filter
+     * @return the column binding for the rows of the file
+     * @throws IllegalArgumentException if the headers are invalid or the query refers to unknown columns
+     */
+    public <T> HeaderBinding<T> bindHeaders(String[] headers, Class<T> clazz, CsvQuery query) {
+        if (headers == null) {
+            log.error("The CSV file has no header line.");
+            throw new IllegalArgumentException("CSV headers are invalid.");
+        }
+        HeaderBinding<T> binding = HeaderBinding.of(headers, clazz, registry.codec(clazz), query);
+        if (!binding.isComplete()) {
+            log.error("CSV header is missing the columns {} required by {}", binding.missingColumns(), clazz.getName());
+            throw new IllegalArgumentException("CSV headers are invalid.");
+        }
+        return binding;
+    }
+
     /**
      * Maps CSV values to a new object instance.
      *
@@ -59,33 +120,97 @@ class Deserializer {
      * @return an instance of the object with fields set from the CSV values
      */
     public <T> T mapCsvToObject(String[] values, String[] headers, Class<T> clazz) {
+        return mapCsvToObject(values, HeaderBinding.of(headers, clazz, registry.sharedCodec(clazz)));
+    }
+
+    /**
+     * Maps CSV values to a new object instance using a header binding resolved once per file.
+     *
+     * @param <T> the type of the object
+     * @param values an array of string values from a CSV row
+     * @param binding the column binding of the file
+     * @return an instance of the object with fields set from the CSV values
+     */
+    public <T> T mapCsvToObject(String[] values, HeaderBinding<T> binding) {
+        return mapCsvToObject(CsvRecord.of(values), binding);
+    }
+
+    /**
+     * Maps a tokenized CSV record to a new object instance using a header binding resolved once per file.
+     *
+     * @param <T> the type of the object
+     * @param record the record holding the field boundaries of a CSV row
+     * @param binding the column binding of the file
+     * @return an instance of the object with fields set from the CSV values
+     */
+    public <T> T mapCsvToObject(CsvRecord record, HeaderBinding<T> binding) {
         try {
-            T obj = clazz.getDeclaredConstructor().newInstance();
-            Field[] fields = clazz.getDeclaredFields();
-
-            // Sort fields based on 'order' value in CsvField
-            List<Field> sortedFields = Arrays.stream(fields)
-                    .filter(f -> f.isAnnotationPresent(CsvField.class))
-                    .sorted(Comparator.comparingInt(f -> f.getAnnotation(CsvField.class).order()))
-                    .toList();
-
-            for (Field field : sortedFields) {
-                field.setAccessible(true);
-                CsvField annotation = field.getAnnotation(CsvField.class);
-                // Find the column index by matching header names
-                int index = findColumnIndex(annotation.name(), headers);
-                if (index >= 0 && index < values.length) {
-                    field.set(obj, convertValue(values[index], field.getType()));
-                }
-            }
-            return obj;
+            return binding.codec().read(record, binding.columns());
+        } catch (Exception e) {
+            failed(record, binding, e);
+            return null;
+        }
+    }
+
+    /**
+     * Populates an object from a tokenized CSV record using a header binding resolved once per file.
+     *
+     * @param <T> the type of the object
+     * @param record the record holding the field boundaries of a CSV row
+     * @param binding the column binding of the file
+     * @param target the object to reuse, or null to create a new one
+     * @return the populated object, or null if the row could not be converted
+     */
+    public <T> T mapCsvToObject(CsvRecord record, HeaderBinding<T> binding, T target) {
+        if (target == null) {
+            return mapCsvToObject(record, binding);
+        }
+        try {
+            return binding.codec().read(record, binding.columns(), target);
         } catch (Exception e) {
-            String formattedValues = String.join(",", values);
-            log.error(format("Failed to convert the CSV row [%s] to an object of type: %s", formattedValues, clazz.getName()));
+            failed(record, binding, e);
             return null;
         }
     }
 
+    /**
+     * Populates an object from a tokenized CSV record, reporting a row that cannot be converted to the
+     * error policy of its file.
+     *
+     * @param <T> the type of the object
+     * @param record the record holding the field boundaries of a CSV row
+     * @param binding the column binding of the file
+     * @param target the object to reuse, or null to create a new one
+     * @param errors the failed rows of the file
+     * @param row the number of the row, or -1 if unknown
+     * @return the populated object, or null if the row could not be converted
+     */
+    <T> T mapCsvToObject(CsvRecord record, HeaderBinding<T> binding, T target, RowErrors errors, long row) {
+        try {
+            return target == null
+                    ? binding.codec().read(record, binding.columns())
+                    : binding.codec().read(record, binding.columns(), target);
+        } catch (Exception e) {
+            errors.failed(binding, record, row, e);
+            return null;
+        }
+    }
+
+    /**
+     * Logs a row that could not be converted, as the default {@link CsvErrorPolicy} does for the
+     * rows of a file: only the first failures of this deserializer are logged, and the record is
+     * only turned into a String for them.
+     */
+    private void failed(CsvRecord record, HeaderBinding<?> binding, Exception cause) {
+        long count = failedRows.incrementAndGet();
+        int limit = CsvErrorPolicy.defaults().logLimit();
+        if (count <= limit) {
+            log.error("Failed to convert the CSV row [{}] to an object of type: {}: {}", record, binding.type().getName(), cause);
+        } else if (count == limit + 1) {
+            log.error("More CSV rows failed to convert, only the first {} failures are logged", limit);
+        }
+    }
+
     public int findColumnIndex(String columnName, String[] headers) {
         for (int i = 0; i < headers.length; i++) {
             if (headers[i].equals(columnName)) {
@@ -95,35 +220,21 @@ class Deserializer {
         return -1;  // Column not found
     }
 
+    /**
+     * Converts a String value with the converter registered for the target type.
+     *
+     * @param value the field value
+     * @param targetType the type of the field
+     * @return the converted value, or null if the type has no converter
+     */
     public Object convertValue(String value, Class<?> targetType) {
-        if (targetType == String.class) {
-            return value;
-        } else if (targetType == int.class || targetType == Integer.class) {
-            return Integer.parseInt(value);
-        } else if (targetType == double.class || targetType == Double.class) {
-            return Double.parseDouble(value);
-        } else if (Enum.class.isAssignableFrom(targetType)) {
-            return convertToEnum(value, targetType);
-        }
-        // Add more conversions as needed
-        return null;
+        CsvConverter<?> converter = registry.find(targetType);
+        return converter == null ? null : converter.parse(value);
     }
 
     public Object convertToEnum(String value, Class<?> enumType) {
         try {
-            // Cast enumType to a Class<Enum> for safer handling
-            @SuppressWarnings("unchecked")
-            Class<Enum<?>> enumClass = (Class<Enum<?>>) enumType;
-
-            // Check if the enum class has a 'fromString' method (if defined)
-            try {
-                // First, try to use the custom 'fromString' method if it exists.
-                var fromStringMethod = enumClass.getMethod("fromString", String.class);
-                return fromStringMethod.invoke(null, value);  // Call static fromString method
-            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-                // Fall back to default parsing using Enum.valueOf()
-                return Enum.valueOf(enumClass.asSubclass(Enum.class), value.toUpperCase());
-            }
+            return EnumCodec.forType(enumType).parse(value);
         } catch (IllegalArgumentException e) {
             log.error("Invalid enum value: {} for enum: {}", value, enumType.getSimpleName(), e);
         }
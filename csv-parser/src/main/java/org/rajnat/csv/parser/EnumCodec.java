@@ -0,0 +1,250 @@
+package org.rajnat.csv.parser;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+
+import static java.lang.String.format;
+
+/**
+ * Lookup tables translating between the CSV text of an enum column and its constants.
+ * <p>
+ * Decoding hashes the raw field bytes (ignoring ASCII case) into a table whose hash seed is chosen so
+ * that every label lands in its own slot, so a lookup is one hash and one comparison. Encoding reads
+ * the label of a constant from an array indexed by ordinal. Labels are the constant names, or the
+ * {@link CsvField#enumValues()} of the field in ordinal order.
+ * <p>
+ * When the enum declares a static {@code fromString(String)} method, it takes precedence: every value
+ * is passed to it first, and only values it rejects, by returning null or throwing
+ * {@link IllegalArgumentException}, are looked up in the table. Such enums decode each value to a
+ * String, so they do not get the allocation-free lookup.
+ *
+ * @param <E> the enum type
+ */
+final class EnumCodec<E extends Enum<E>> implements CsvConverter<E> {
+    private static final int MAX_SEED_ATTEMPTS = 64;
+
+    private static final ClassValue<EnumCodec<?>> BY_TYPE = new ClassValue<>() {
+        @Override
+        protected EnumCodec<?> computeValue(Class<?> type) {
+            return create(type, new String[0]);
+        }
+    };
+
+    private final Class<E> type;
+    private final E[] constants;
+    private final String[] labels;
+    private final byte[][] encodedLabels;
+    private final MethodHandle fromString;
+
+    private final int seed;
+    private final int mask;
+    private final byte[][] keys;
+    private final E[] values;
+
+    private EnumCodec(Class<E> type, String[] enumValues) {
+        this.type = type;
+        this.constants = type.getEnumConstants();
+        if (enumValues.length != 0 && enumValues.length != constants.length) {
+            throw new IllegalArgumentException(format("Expected %d enumValues for %s but found %d",
+                    constants.length, type.getName(), enumValues.length));
+        }
+        this.labels = new String[constants.length];
+        this.encodedLabels = new byte[constants.length][];
+        for (E constant : constants) {
+            String label = enumValues.length == 0 ? constant.name() : enumValues[constant.ordinal()];
+            labels[constant.ordinal()] = label;
+            encodedLabels[constant.ordinal()] = label.getBytes(StandardCharsets.UTF_8);
+        }
+        this.fromString = findFromString(type);
+
+        // Grow the table until a seed places every label in its own slot
+        int size = Integer.highestOneBit(Math.max(constants.length, 1) * 2 - 1) << 1;
+        int found = -1;
+        byte[][] table = null;
+        E[] slots = null;
+        while (found < 0) {
+            for (int candidate = 0; candidate < MAX_SEED_ATTEMPTS && found < 0; candidate++) {
+                table = new byte[size][];
+                slots = newArray(type, size);
+                if (fill(table, slots, candidate, size - 1)) {
+                    found = candidate;
+                }
+            }
+            if (found < 0) {
+                size <<= 1;
+            }
+        }
+        this.seed = found;
+        this.mask = size - 1;
+        this.keys = table;
+        this.values = slots;
+    }
+
+    /**
+     * @param enumType an enum class
+     * @return the codec translating the constant names of the enum
+     */
+    static EnumCodec<?> forType(Class<?> enumType) {
+        return BY_TYPE.get(enumType);
+    }
+
+    /**
+     * Creates the codec of an annotated field, honouring {@link CsvField#enumClass()} and {@link CsvField#enumValues()}.
+     *
+     * @param field the annotated field
+     * @param annotation the annotation of the field
+     * @return the codec, or null if the field does not hold an enum
+     * @throws IllegalArgumentException if the annotation does not match the field
+     */
+    static EnumCodec<?> forField(Field field, CsvField annotation) {
+        Class<?> enumType = annotation.enumClass() == NoEnum.class ? field.getType() : annotation.enumClass();
+        if (!enumType.isEnum()) {
+            if (annotation.enumValues().length != 0) {
+                throw new IllegalArgumentException(format("Field %s declares enumValues but is not an enum", field));
+            }
+            return null;
+        }
+        if (!field.getType().isAssignableFrom(enumType)) {
+            throw new IllegalArgumentException(format("Field %s cannot hold values of %s", field, enumType.getName()));
+        }
+        return annotation.enumValues().length == 0 ? forType(enumType) : create(enumType, annotation.enumValues());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static EnumCodec<?> create(Class<?> enumType, String[] enumValues) {
+        return new EnumCodec(enumType, enumValues);
+    }
+
+    Class<E> type() {
+        return type;
+    }
+
+    @Override
+    public E parse(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+            return null;
+        }
+        String value = null;
+        if (fromString != null) {
+            value = ByteParsers.decode(bytes, offset, length);
+            E constant = fromString(value);
+            if (constant != null) {
+                return constant;
+            }
+        }
+        int slot = hash(bytes, offset, length, seed) & mask;
+        byte[] key = keys[slot];
+        if (key != null && equalsIgnoreCase(key, bytes, offset, length)) {
+            return values[slot];
+        }
+        if (value == null) {
+            value = ByteParsers.decode(bytes, offset, length);
+        }
+        throw ByteParsers.invalid(format("Invalid enum value: %s for enum: %s", value, type.getSimpleName()));
+    }
+
+    @Override
+    public E parse(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return parse(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @param constant a constant of the enum
+     * @return the CSV text of the constant
+     */
+    String label(Object constant) {
+        return labels[type.cast(constant).ordinal()];
+    }
+
+    /**
+     * @param constant a constant of the enum
+     * @return the UTF-8 bytes of the CSV text of the constant; must not be modified
+     */
+    byte[] encodedLabel(Object constant) {
+        return encodedLabels[type.cast(constant).ordinal()];
+    }
+
+    /**
+     * @return the constant returned by the fromString method of the enum, or null if it rejects the value
+     */
+    @SuppressWarnings("unchecked")
+    private E fromString(String value) {
+        try {
+            return (E) fromString.invokeExact(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        } catch (Throwable t) {
+            throw FieldBinder.propagate(t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> E[] newArray(Class<E> type, int size) {
+        return (E[]) Array.newInstance(type, size);
+    }
+
+    private boolean fill(byte[][] table, E[] slots, int candidate, int candidateMask) {
+        for (E constant : constants) {
+            byte[] label = encodedLabels[constant.ordinal()];
+            int slot = hash(label, 0, label.length, candidate) & candidateMask;
+            if (table[slot] != null) {
+                if (equalsIgnoreCase(table[slot], label, 0, label.length)) {
+                    throw new IllegalArgumentException(format("Duplicate label '%s' for enum %s", labels[constant.ordinal()], type.getName()));
+                }
+                return false;
+            }
+            table[slot] = label;
+            slots[slot] = constant;
+        }
+        return true;
+    }
+
+    private static MethodHandle findFromString(Class<?> type) {
+        try {
+            var method = type.getMethod("fromString", String.class);
+            if (!Modifier.isStatic(method.getModifiers())) {
+                return null;
+            }
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup()).unreflect(method)
+                    .asType(MethodType.methodType(Enum.class, String.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * FNV-1a over the case-folded bytes, mixed with the seed.
+     */
+    private static int hash(byte[] bytes, int offset, int length, int seed) {
+        int h = 0x811C9DC5 ^ (seed * 0x9E3779B9);
+        for (int i = offset; i < offset + length; i++) {
+            h = (h ^ fold(bytes[i])) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equalsIgnoreCase(byte[] key, byte[] bytes, int offset, int length) {
+        if (key.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key[i] != bytes[offset + i] && fold(key[i]) != fold(bytes[offset + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int fold(byte b) {
+        return b >= 'A' && b <= 'Z' ? b | 0x20 : b;
+    }
+}
@@ -0,0 +1,251 @@
+package org.rajnat.csv.parser;
+
+import java.lang.invoke.MethodHandle;
+
+import static java.lang.String.format;
+
+/**
+ * Converts the bytes of a field and assigns the result to one column of an object.
+ * <p>
+ * Primitive columns handled by the built-in converters get a dedicated binder that parses the bytes
+ * and calls an exactly typed setter handle, so the value is never boxed. All other columns go through
+ * their {@link CsvConverter}.
+ */
+abstract class FieldBinder {
+    final CsvSchema.Column column;
+
+    private FieldBinder(CsvSchema.Column column) {
+        this.column = column;
+    }
+
+    /**
+     * Converts a field and assigns it to the target.
+     *
+     * @param target the object being populated
+     * @param bytes the buffer holding the field
+     * @param offset the offset of the field in the buffer
+     * @param length the length of the field in bytes
+     */
+    abstract void bind(Object target, byte[] bytes, int offset, int length);
+
+    /**
+     * Creates the binder of a column.
+     *
+     * @param column the column to bind
+     * @param registry the converters to use
+     * @return the binder
+     * @throws IllegalArgumentException if the column type has no converter or the field is final
+     */
+    static FieldBinder of(CsvSchema.Column column, ConverterRegistry registry) {
+        MethodHandle setter = column.exactSetter();
+        if (setter == null) {
+            throw new IllegalArgumentException(format("Field %s is final and cannot be imported", column.field()));
+        }
+        Class<?> type = column.type();
+        if (isPrimitive(column, registry)) {
+            if (type == int.class) return new IntBinder(column, setter);
+            if (type == long.class) return new LongBinder(column, setter);
+            if (type == double.class) return new DoubleBinder(column, setter);
+            if (type == float.class) return new FloatBinder(column, setter);
+            if (type == short.class) return new ShortBinder(column, setter);
+            if (type == byte.class) return new ByteBinder(column, setter);
+            if (type == boolean.class) return new BooleanBinder(column, setter);
+            if (type == char.class) return new CharBinder(column, setter);
+        }
+        return new ObjectBinder(column, converter(column, registry));
+    }
+
+    /**
+     * @return whether {@link #of} binds the column with a dedicated primitive binder
+     */
+    static boolean isPrimitive(CsvSchema.Column column, ConverterRegistry registry) {
+        return column.type().isPrimitive() && registry.isBuiltIn(column.type());
+    }
+
+    /**
+     * Returns the converter of a column that is not bound by a primitive binder.
+     *
+     * @throws IllegalArgumentException if the column type has no converter
+     */
+    static CsvConverter<?> converter(CsvSchema.Column column, ConverterRegistry registry) {
+        if (column.dedupEntries() > 0 && registry.isBuiltIn(String.class)) {
+            return new StringDictionary(column.dedupEntries()); // One dictionary per column and binder
+        }
+        CsvConverter<?> converter = registry.find(column.type());
+        if (column.enumCodec() != null && (converter == null || converter instanceof EnumCodec)) {
+            converter = column.enumCodec(); // Honours the enumClass and enumValues of the field
+        }
+        if (converter == null) {
+            throw new IllegalArgumentException(format("No converter registered for type %s of field %s", column.type().getName(), column.field()));
+        }
+        return converter;
+    }
+
+    static RuntimeException propagate(Throwable t) {
+        if (t instanceof RuntimeException e) {
+            return e;
+        }
+        if (t instanceof Error e) {
+            throw e;
+        }
+        return new IllegalStateException(t);
+    }
+
+    private static final class IntBinder extends FieldBinder {
+        private final MethodHandle setter;
+
+        IntBinder(CsvSchema.Column column, MethodHandle setter) {
+            super(column);
+            this.setter = setter;
+        }
+
+        @Override
+        void bind(Object target, byte[] bytes, int offset, int length) {
+            try {
+                setter.invokeExact(target, ByteParsers.parseInt(bytes, offset, length));
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+    }
+
+    private static final class LongBinder extends FieldBinder {
+        private final MethodHandle setter;
+
+        LongBinder(CsvSchema.Column column, MethodHandle setter) {
+            super(column);
+            this.setter = setter;
+        }
+
+        @Override
+        void bind(Object target, byte[] bytes, int offset, int length) {
+            try {
+                setter.invokeExact(target, ByteParsers.parseLong(bytes, offset, length));
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+    }
+
+    private static final class DoubleBinder extends FieldBinder {
+        private final MethodHandle setter;
+
+        DoubleBinder(CsvSchema.Column column, MethodHandle setter) {
+            super(column);
+            this.setter = setter;
+        }
+
+        @Override
+        void bind(Object target, byte[] bytes, int offset, int length) {
+            try {
+                setter.invokeExact(target, ByteParsers.parseDouble(bytes, offset, length));
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+    }
+
+    private static final class FloatBinder extends FieldBinder {
+        private final MethodHandle setter;
+
+        FloatBinder(CsvSchema.Column column, MethodHandle setter) {
+            super(column);
+            this.setter = setter;
+        }
+
+        @Override
+        void bind(Object target, byte[] bytes, int offset, int length) {
+            try {
+                setter.invokeExact(target, ByteParsers.parseFloat(bytes, offset, length));
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+    }
+
+    private static final class ShortBinder extends FieldBinder {
+        private final MethodHandle setter;
+
+        ShortBinder(CsvSchema.Column column, MethodHandle setter) {
+            super(column);
+            this.setter = setter;
+        }
+
+        @Override
+        void bind(Object target, byte[] bytes, int offset, int length) {
+            try {
+                setter.invokeExact(target, ByteParsers.parseShort(bytes, offset, length));
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+    }
+
+    private static final class ByteBinder extends FieldBinder {
+        private final MethodHandle setter;
+
+        ByteBinder(CsvSchema.Column column, MethodHandle setter) {
+            super(column);
+            this.setter = setter;
+        }
+
+        @Override
+        void bind(Object target, byte[] bytes, int offset, int length) {
+            try {
+                setter.invokeExact(target, ByteParsers.parseByte(bytes, offset, length));
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+    }
+
+    private static final class BooleanBinder extends FieldBinder {
+        private final MethodHandle setter;
+
+        BooleanBinder(CsvSchema.Column column, MethodHandle setter) {
+            super(column);
+            this.setter = setter;
+        }
+
+        @Override
+        void bind(Object target, byte[] bytes, int offset, int length) {
+            try {
+                setter.invokeExact(target, ByteParsers.parseBoolean(bytes, offset, length));
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+    }
+
+    private static final class CharBinder extends FieldBinder {
+        private final MethodHandle setter;
+
+        CharBinder(CsvSchema.Column column, MethodHandle setter) {
+            super(column);
+            this.setter = setter;
+        }
+
+        @Override
+        void bind(Object target, byte[] bytes, int offset, int length) {
+            try {
+                setter.invokeExact(target, ByteParsers.parseChar(bytes, offset, length));
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+    }
+
+    private static final class ObjectBinder extends FieldBinder {
+        private final CsvConverter<?> converter;
+
+        ObjectBinder(CsvSchema.Column column, CsvConverter<?> converter) {
+            super(column);
+            this.converter = converter;
+        }
+
+        @Override
+        void bind(Object target, byte[] bytes, int offset, int length) {
+            column.set(target, converter.parse(bytes, offset, length));
+        }
+    }
+}
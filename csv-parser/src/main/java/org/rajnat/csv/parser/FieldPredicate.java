@@ -0,0 +1,28 @@
+package org.rajnat.csv.parser;
+
+/**
+ * Tests the raw UTF-8 bytes of a CSV field.
+ * <p>
+ * Predicates run before a row is converted, on a range of a buffer that is reused for the next row,
+ * so they must not keep a reference to it.
+ */
+@FunctionalInterface
+public interface FieldPredicate {
+
+    /**
+     * Tests a field.
+     *
+     * @param bytes the buffer holding the field
+     * @param offset the offset of the field in the buffer
+     * @param length the length of the field in bytes
+     * @return true if the row should be imported
+     */
+    boolean test(byte[] bytes, int offset, int length);
+
+    /**
+     * @return a predicate accepting the fields this one rejects
+     */
+    default FieldPredicate negate() {
+        return (bytes, offset, length) -> !test(bytes, offset, length);
+    }
+}
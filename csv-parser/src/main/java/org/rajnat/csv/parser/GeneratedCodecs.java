@@ -0,0 +1,67 @@
+package org.rajnat.csv.parser;
+
+import java.lang.reflect.InvocationTargetException;
+
+import static java.lang.String.format;
+
+/**
+ * Locates the codecs generated by the {@code csv-processor} annotation processor.
+ * <p>
+ * The codec of {@code com.example.Outer.Inner} is {@code com.example.Outer_Inner_CsvCodec}, loaded
+ * through the class loader of the annotated class. Export uses one write-only codec per class; import
+ * codecs are created per {@link ConverterRegistry}.
+ */
+final class GeneratedCodecs {
+    static final String SUFFIX = "_CsvCodec";
+
+    private static final ClassValue<CsvCodec<?>> EXPORT_CODECS = new ClassValue<>() {
+        @Override
+        protected CsvCodec<?> computeValue(Class<?> type) {
+            CsvCodec<?> generated = find(type, null);
+            return generated != null ? generated : new ReflectiveCodec<>(CsvSchema.of(type), null);
+        }
+    };
+
+    private GeneratedCodecs() {
+    }
+
+    /**
+     * Returns the codec exporting a class, which is its generated codec if there is one.
+     *
+     * @param <T> the exported type
+     * @param type the exported class
+     * @return the codec
+     */
+    @SuppressWarnings("unchecked")
+    static <T> CsvCodec<T> exportCodec(Class<T> type) {
+        return (CsvCodec<T>) EXPORT_CODECS.get(type);
+    }
+
+    /**
+     * Instantiates the generated codec of a class.
+     *
+     * @param type the annotated class
+     * @param registry the converters of imported fields, or null for a codec that only writes
+     * @return the codec, or null if none was generated for the class
+     * @throws IllegalArgumentException if the codec cannot be created
+     */
+    static CsvCodec<?> find(Class<?> type, ConverterRegistry registry) {
+        String name = type.getName().replace('$', '_') + SUFFIX;
+        Class<?> codecClass;
+        try {
+            codecClass = Class.forName(name, true, type.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        if (!CsvCodec.class.isAssignableFrom(codecClass)) {
+            return null;
+        }
+        try {
+            return (CsvCodec<?>) codecClass.getConstructor(ConverterRegistry.class).newInstance(registry);
+        } catch (InvocationTargetException e) {
+            throw FieldBinder.propagate(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException(format("Failed to create the codec %s", name), e);
+        }
+    }
+}
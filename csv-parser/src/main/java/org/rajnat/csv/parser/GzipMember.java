@@ -0,0 +1,81 @@
+package org.rajnat.csv.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses blocks into independent gzip members.
+ * <p>
+ * A gzip file may consist of several concatenated members (RFC 1952), which every gzip reader,
+ * including {@link java.util.zip.GZIPInputStream}, inflates as one stream. Compressing each block as
+ * its own member lets blocks be compressed on several threads, like pigz, at the cost of restarting
+ * the deflate dictionary for every block. The deflater is reused across blocks.
+ */
+final class GzipMember {
+    /** Deflate method, no flags, no modification time, no extra flags, unknown OS. */
+    private static final byte[] HEADER = {0x1F, (byte) 0x8B, 8, 0, 0, 0, 0, 0, 0, (byte) 0xFF};
+    private static final int TRAILER_SIZE = 8;
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final CRC32 crc = new CRC32();
+    private byte[] buffer = new byte[1 << 16];
+    private int size;
+
+    /**
+     * Compresses a block into a complete member, replacing the previous one.
+     *
+     * @param data the buffer holding the block
+     * @param length the length of the block
+     */
+    void compress(byte[] data, int length) {
+        System.arraycopy(HEADER, 0, buffer, 0, HEADER.length);
+        size = HEADER.length;
+        crc.reset();
+        crc.update(data, 0, length);
+        deflater.reset();
+        deflater.setInput(data, 0, length);
+        deflater.finish();
+        while (!deflater.finished()) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length << 1);
+            }
+            size += deflater.deflate(buffer, size, buffer.length - size);
+        }
+        if (size + TRAILER_SIZE > buffer.length) {
+            buffer = Arrays.copyOf(buffer, size + TRAILER_SIZE);
+        }
+        writeIntLE((int) crc.getValue());
+        writeIntLE(length); // ISIZE, the length modulo 2^32
+    }
+
+    /**
+     * Writes the member to a channel.
+     *
+     * @param channel the channel receiving the member
+     * @throws IOException if writing fails
+     */
+    void drainTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, size);
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    /**
+     * Releases the native memory of the deflater.
+     */
+    void end() {
+        deflater.end();
+    }
+
+    private void writeIntLE(int value) {
+        buffer[size++] = (byte) value;
+        buffer[size++] = (byte) (value >>> 8);
+        buffer[size++] = (byte) (value >>> 16);
+        buffer[size++] = (byte) (value >>> 24);
+    }
+}
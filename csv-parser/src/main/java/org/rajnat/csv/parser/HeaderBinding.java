@@ -0,0 +1,235 @@
+package org.rajnat.csv.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/**
+ * Binding of a file's header line to the columns of a {@link CsvCodec}.
+ * <p>
+ * The binding is resolved once per file and stores, for every column of the codec, the position of
+ * the file column that feeds it (or -1 when the file does not contain it). Rows are then mapped by
+ * position without looking up header names again, so the columns of the file may appear in any
+ * order and unknown columns are ignored.
+ * <p>
+ * A {@link CsvQuery} narrows the binding to the selected columns and binds its conditions to file
+ * positions, so rows can be filtered on their raw bytes and fields that are neither selected nor
+ * tested are skipped by the tokenizer.
+ *
+ * @param <T> the type the codec binds to
+ */
+final class HeaderBinding<T> {
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Class<T> type;
+    private final CsvCodec<T> codec;
+    private final int[] columns;
+    private final List<String> headers;
+    private final List<String> missingColumns;
+    private final int[] filterColumns;
+    private final FieldPredicate[] filters;
+    private final boolean[] projection;
+
+    private HeaderBinding(Class<T> type, CsvCodec<T> codec, int[] columns, List<String> headers, List<String> missingColumns,
+                          int[] filterColumns, FieldPredicate[] filters, boolean[] projection) {
+        this.type = type;
+        this.codec = codec;
+        this.columns = columns;
+        this.headers = headers;
+        this.missingColumns = missingColumns;
+        this.filterColumns = filterColumns;
+        this.filters = filters;
+        this.projection = projection;
+    }
+
+    /**
+     * Binds the header names of a file to the columns of a codec.
+     *
+     * @param <T> the type the codec binds to
+     * @param headers the header names in file order
+     * @param type the class the codec binds to
+     * @param codec the codec mapping the rows
+     * @return the binding, which may report missing columns
+     */
+    static <T> HeaderBinding<T> of(String[] headers, Class<T> type, CsvCodec<T> codec) {
+        return of(headers, type, codec, CsvQuery.all());
+    }
+
+    /**
+     * Binds the header names of a file to the selected columns of a codec and the conditions of a query.
+     *
+     * @param <T> the type the codec binds to
+     * @param headers the header names in file order
+     * @param type the class the codec binds to
+     * @param codec the codec mapping the rows
+     * @param query the projection and row filter
+     * @return the binding, which may report missing selected columns
+     * @throws IllegalArgumentException if a selected column is not a column of the codec, or a
+     * condition refers to a column that is not in the header line
+     */
+    static <T> HeaderBinding<T> of(String[] headers, Class<T> type, CsvCodec<T> codec, CsvQuery query) {
+        List<String> names = codec.headers();
+        int[] columns = positions(headers, names);
+        List<String> missingColumns = missing(names, columns);
+
+        Set<String> selected = query.columns();
+        if (selected != null) {
+            for (String column : selected) {
+                if (!names.contains(column)) {
+                    throw new IllegalArgumentException(format("Selected column %s is not a column of %s", column, type.getName()));
+                }
+            }
+            for (int i = 0; i < columns.length; i++) {
+                if (!selected.contains(names.get(i))) {
+                    columns[i] = -1;
+                }
+            }
+            missingColumns = missingColumns.stream().filter(selected::contains).toList();
+        }
+
+        List<CsvQuery.Condition> conditions = query.conditions();
+        int[] filterColumns = new int[conditions.size()];
+        FieldPredicate[] filters = new FieldPredicate[conditions.size()];
+        List<String> headerList = Arrays.asList(headers);
+        for (int i = 0; i < filters.length; i++) {
+            CsvQuery.Condition condition = conditions.get(i);
+            filterColumns[i] = headerList.indexOf(condition.column());
+            if (filterColumns[i] < 0) {
+                throw new IllegalArgumentException(format("Filter column %s is not in the CSV header", condition.column()));
+            }
+            filters[i] = condition.predicate();
+        }
+
+        boolean[] projection = null;
+        if (selected != null) {
+            projection = new boolean[headers.length];
+            for (int column : columns) {
+                if (column >= 0) {
+                    projection[column] = true;
+                }
+            }
+            for (int column : filterColumns) {
+                projection[column] = true;
+            }
+        }
+        return new HeaderBinding<>(type, codec, columns, List.copyOf(headerList), missingColumns, filterColumns, filters, projection);
+    }
+
+    /**
+     * Finds the column names that do not appear in a header line.
+     *
+     * @param headers the header names in file order
+     * @param names the expected column names
+     * @return the missing column names
+     */
+    static List<String> missingColumns(String[] headers, List<String> names) {
+        return missing(names, positions(headers, names));
+    }
+
+    private static int[] positions(String[] headers, List<String> names) {
+        Map<String, Integer> byName = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            byName.putIfAbsent(names.get(i), i);
+        }
+
+        int[] columns = new int[names.size()];
+        Arrays.fill(columns, -1);
+        for (int i = 0; i < headers.length; i++) {
+            // remove() so that a repeated header only feeds the field once
+            Integer columnIndex = byName.remove(headers[i]);
+            if (columnIndex != null) {
+                columns[columnIndex] = i;
+            }
+        }
+        return columns;
+    }
+
+    private static List<String> missing(List<String> names, int[] columns) {
+        Set<String> bound = new HashSet<>();
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] >= 0) {
+                bound.add(names.get(i));
+            }
+        }
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < columns.length; i++) {
+            if (!bound.contains(names.get(i))) {
+                missing.add(names.get(i));
+            }
+        }
+        return List.copyOf(missing);
+    }
+
+    Class<T> type() {
+        return type;
+    }
+
+    CsvCodec<T> codec() {
+        return codec;
+    }
+
+    /**
+     * @return for every column of the codec, its position in the file or -1; must not be modified
+     */
+    int[] columns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of columns in the bound header line
+     */
+    int width() {
+        return headers.size();
+    }
+
+    /**
+     * @return the names of the bound header line in file order
+     */
+    List<String> headers() {
+        return headers;
+    }
+
+    /**
+     * @return the codec column names that do not appear in the header line
+     */
+    List<String> missingColumns() {
+        return missingColumns;
+    }
+
+    /**
+     * @return for every column of the file, whether the tokenizer has to keep it, or null to keep
+     * all columns; must not be modified
+     */
+    boolean[] projection() {
+        return projection;
+    }
+
+    /**
+     * Tests a record against the conditions of the query. Fields missing from a short row test as empty.
+     *
+     * @param record the tokenized record
+     * @return true if the row should be mapped
+     */
+    boolean accepts(CsvRecord record) {
+        for (int i = 0; i < filters.length; i++) {
+            int column = filterColumns[i];
+            boolean accepted = column < record.size()
+                    ? filters[i].test(record.buffer(), record.start(column), record.length(column))
+                    : filters[i].test(EMPTY, 0, 0);
+            if (!accepted) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isComplete() {
+        return missingColumns.isEmpty();
+    }
+}
@@ -0,0 +1,67 @@
+package org.rajnat.csv.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a byte range of a file through read-only memory mappings.
+ * <p>
+ * The range is mapped in windows of at most 64 MiB, so ranges of any size can be read without
+ * exceeding the 2 GiB limit of a single mapping. Several streams may share one channel; closing a
+ * stream leaves the channel open.
+ */
+final class MappedInputStream extends InputStream {
+    private static final long WINDOW_SIZE = 1L << 26;
+
+    private final FileChannel channel;
+    private final long limit;
+    private long position;
+    private MappedByteBuffer window;
+
+    /**
+     * @param channel the channel of the file
+     * @param from the offset of the first byte to read
+     * @param limit the offset after the last byte to read
+     */
+    MappedInputStream(FileChannel channel, long from, long limit) {
+        this.channel = channel;
+        this.position = from;
+        this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureWindow()) {
+            return -1;
+        }
+        return window.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureWindow()) {
+            return -1;
+        }
+        int n = Math.min(length, window.remaining());
+        window.get(bytes, offset, n);
+        return n;
+    }
+
+    private boolean ensureWindow() throws IOException {
+        if (window != null && window.hasRemaining()) {
+            return true;
+        }
+        if (position >= limit) {
+            return false;
+        }
+        long size = Math.min(WINDOW_SIZE, limit - position);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        position += size;
+        return true;
+    }
+}
@@ -0,0 +1,285 @@
+package org.rajnat.csv.parser;
+
+import org.rajnat.csv.api.RowConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads a CSV file in parallel from memory-mapped chunks.
+ * <p>
+ * The header is bound when the reader is opened and the records are split into {@link CsvChunker}
+ * chunks, at the indexed rows when the file has a valid {@link CsvIndex}. Each chunk is then
+ * tokenized and mapped on its own fork-join worker, reading the file through memory mappings so
+ * that no thread waits on another.
+ *
+ * @param <T> the type of objects produced
+ */
+final class ParallelCsvReader<T> implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ParallelCsvReader.class);
+
+    private final FileChannel channel;
+    private final CsvFormat format;
+    private final Deserializer deserializer;
+    private final HeaderBinding<T> binding;
+    private final long size;
+    private final List<CsvChunker.Chunk> chunks;
+    private final CsvMeter meter;
+    private final RowErrors errors;
+    private final AtomicInteger pendingChunks;
+
+    /**
+     * Opens a file, binds its header and splits it into chunks for the fork-join pool of the calling thread.
+     *
+     * @param fileName the name of the input CSV file
+     * @param format the format of the file
+     * @param deserializer the deserializer mapping the rows
+     * @param clazz the class type of the objects
+     * @param query the projection and row filter
+     * @param meter the meter of the file, finished once the reader is closed
+     * @param errors the failed rows of the file, finished once all chunks are read or the reader is closed
+     * @throws IOException if reading the file fails
+     */
+    ParallelCsvReader(String fileName, CsvFormat format, Deserializer deserializer, Class<T> clazz, CsvQuery query,
+                      CsvMeter meter, RowErrors errors) throws IOException {
+        this.channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ);
+        this.format = format;
+        this.deserializer = deserializer;
+        this.meter = meter;
+        this.errors = errors;
+        try {
+            this.size = channel.size();
+            long dataStart;
+            try (CsvTokenizer tokenizer = new CsvTokenizer(new MappedInputStream(channel, 0, size), format)) {
+                CsvRecord header = new CsvRecord();
+                this.binding = deserializer.bindHeaders(tokenizer.next(header) ? header.toArray() : null, clazz, query);
+                dataStart = tokenizer.position();
+            }
+            meter.bytes(dataStart);
+            int parallelism = ForkJoinTask.inForkJoinPool()
+                    ? ForkJoinTask.getPool().getParallelism()
+                    : ForkJoinPool.getCommonPoolParallelism();
+            Optional<CsvIndex> index = CsvIndex.load(fileName, format);
+            this.chunks = index.isPresent()
+                    ? CsvChunker.split(index.get(), parallelism)
+                    : CsvChunker.split(channel, format, dataStart, parallelism);
+            this.pendingChunks = new AtomicInteger(chunks.size());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            meter.finish();
+            errors.finish(false);
+            throw e;
+        }
+        if (chunks.isEmpty()) {
+            errors.finish(true);
+        }
+    }
+
+    /**
+     * Parses all chunks in parallel.
+     *
+     * @return the rows in file order, with null for rows that could not be converted unless the error
+     * policy skips them
+     * @throws UncheckedIOException if reading the file fails
+     */
+    List<T> readAll() {
+        List<List<T>> parts = chunks.parallelStream().map(this::read).toList();
+        List<T> rows = new ArrayList<>(parts.stream().mapToInt(List::size).sum());
+        parts.forEach(rows::addAll);
+        return rows;
+    }
+
+    /**
+     * Returns a parallel stream that parses the chunks lazily as it is consumed. Rows of different
+     * chunks are not ordered relative to each other. Closing the stream closes the reader.
+     *
+     * @return an unordered stream of the rows
+     */
+    Stream<T> stream() {
+        return chunks.parallelStream()
+                .unordered()
+                .flatMap(this::stream)
+                .onClose(this::close);
+    }
+
+    /**
+     * Parses all chunks in parallel and hands every row to a consumer. Each chunk is mapped into one
+     * reused object, so the consumer is called concurrently with different objects.
+     *
+     * @param consumer the thread-safe consumer of the rows; must not keep the objects past its call
+     * @return the number of rows handed to the consumer
+     * @throws UncheckedIOException if reading the file fails
+     */
+    long forEach(RowConsumer<? super T> consumer) {
+        return chunks.parallelStream().mapToLong(chunk -> forEach(chunk, consumer)).sum();
+    }
+
+    private long forEach(CsvChunker.Chunk chunk, RowConsumer<? super T> consumer) {
+        T instance = null;
+        long count = 0;
+        try (ChunkIterator iterator = new ChunkIterator(chunk)) {
+            while (iterator.hasNext()) {
+                T value = iterator.map(iterator.nextRecord(), instance);
+                if (value != null) {
+                    instance = value;
+                    consumer.accept(value);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private List<T> read(CsvChunker.Chunk chunk) {
+        List<T> rows = new ArrayList<>();
+        try (ChunkIterator iterator = new ChunkIterator(chunk)) {
+            if (errors.keepsFailed()) {
+                iterator.forEachRemaining(rows::add);
+            } else {
+                iterator.forEachRemaining(row -> {
+                    if (row != null) {
+                        rows.add(row);
+                    }
+                });
+            }
+        }
+        return rows;
+    }
+
+    private Stream<T> stream(CsvChunker.Chunk chunk) {
+        ChunkIterator iterator = new ChunkIterator(chunk);
+        Stream<T> rows = StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(iterator::close);
+        return errors.keepsFailed() ? rows : rows.filter(Objects::nonNull);
+    }
+
+    @Override
+    public void close() {
+        meter.finish();
+        errors.finish(false);
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.error("Failed to close the file channel with the error:", e);
+        }
+    }
+
+    /**
+     * Maps the records that start inside one chunk.
+     */
+    private final class ChunkIterator implements Iterator<T>, Closeable {
+        private final CsvChunker.Chunk chunk;
+        private final CsvTokenizer tokenizer;
+        private final CsvRecord record = new CsvRecord();
+        private boolean ready;
+        private boolean done;
+        private boolean exhausted;
+        private int rows;
+        private int failed;
+        private long tokenizeNanos;
+        private long mapNanos;
+
+        ChunkIterator(CsvChunker.Chunk chunk) {
+            this.chunk = chunk;
+            // Read up to the end of the file so that the last record may cross into the next chunk
+            this.tokenizer = new CsvTokenizer(new MappedInputStream(channel, chunk.start(), size), format, chunk.start());
+            tokenizer.project(binding.projection());
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!ready && !done) {
+                long begin = meter.clock();
+                try {
+                    do {
+                        ready = tokenizer.next(record) && record.offset() < chunk.end();
+                        if (ready) {
+                            rows++;
+                        }
+                    } while (ready && !binding.accepts(record));
+                } catch (IOException e) {
+                    close();
+                    throw new UncheckedIOException("Error reading line from file", e);
+                }
+                tokenizeNanos += meter.clock() - begin;
+                if (!ready) {
+                    exhausted = true;
+                    close();
+                }
+            }
+            return ready;
+        }
+
+        @Override
+        public T next() {
+            return map(nextRecord(), null);
+        }
+
+        /**
+         * @param record a record of this chunk
+         * @param instance the object to reuse, or null to create a new one
+         * @return the populated object, or null if the row could not be converted
+         */
+        T map(CsvRecord record, T instance) {
+            long begin = meter.clock();
+            T value = deserializer.mapCsvToObject(record, binding, instance, errors, -1);
+            mapNanos += meter.clock() - begin;
+            if (value == null) {
+                failed++;
+            }
+            return value;
+        }
+
+        /**
+         * @return the next record without mapping it; valid until the next call
+         */
+        CsvRecord nextRecord() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("End of chunk reached");
+            }
+            ready = false;
+            return record;
+        }
+
+        @Override
+        public void close() {
+            if (!done) {
+                meter.rows(rows);
+                meter.failedRows(failed);
+                meter.bytes(chunk.end() - chunk.start());
+                meter.batch(CsvStage.TOKENIZE, rows, tokenizeNanos, 0);
+                meter.batch(CsvStage.MAP, rows, mapNanos, 0);
+                errors.rows(rows);
+            }
+            boolean last = !done && exhausted && pendingChunks.decrementAndGet() == 0;
+            done = true;
+            try {
+                tokenizer.close();
+            } catch (IOException e) {
+                log.error("Failed to close the chunk reader with the error:", e);
+            }
+            if (last) {
+                errors.finish(true); // All chunks were read
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package org.rajnat.csv.parser;
+
+import org.rajnat.csv.exception.CsvParseException;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Writes a list of objects to a CSV file, encoding chunks of rows in parallel.
+ * <p>
+ * The list is cut into chunks of {@link #CHUNK_ROWS} rows, which are encoded by {@link Utf8RowWriter}s
+ * taken from a pool on the fork-join pool of the calling thread. The calling thread is the
+ * only writer: it waits for the chunks in list order and drains their buffers to the file before
+ * handing the buffers back, so the file has the same content as a sequential export. At most two
+ * chunks per worker are in flight, which bounds the memory held by encoded rows.
+ * <p>
+ * When the file name ends with {@code .gz}, the workers also compress every chunk into its own
+ * {@link GzipMember}, so compression scales with the encoding and the file is a standard multi-member
+ * gzip file.
+ * <p>
+ * If writing fails, the chunks still being encoded are not waited for. Chunks that have not started
+ * are skipped, and the buffers of the others are ended as soon as they complete, which releases the
+ * native memory of their compressors.
+ */
+final class ParallelCsvWriter {
+    static final int CHUNK_ROWS = 1 << 13;
+    private static final int CHUNKS_PER_THREAD = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final CsvCodec<Object> codec;
+    private final List<?> rows;
+    private final CsvMeter meter;
+    private final Queue<ChunkBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private volatile boolean stopped;
+
+    private ParallelCsvWriter(CsvCodec<Object> codec, List<?> rows, CsvMeter meter) {
+        this.codec = codec;
+        this.rows = rows;
+        this.meter = meter;
+    }
+
+    /**
+     * Writes a header line and the rows of a list to a file, replacing its content.
+     *
+     * @param codec the codec of the exported class
+     * @param rows the objects to write
+     * @param fileName the name of the output CSV file
+     * @param meter the meter of the file, which the caller finishes
+     * @throws IOException if writing the file fails
+     * @throws CsvParseException if the fields of an object cannot be accessed
+     */
+    static void write(CsvCodec<Object> codec, List<?> rows, String fileName, CsvMeter meter) throws IOException, CsvParseException {
+        new ParallelCsvWriter(codec, rows, meter).write(fileName);
+    }
+
+    private void write(String fileName) throws IOException, CsvParseException {
+        ForkJoinPool pool = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool();
+        int window = Math.max(pool.getParallelism(), 1) * CHUNKS_PER_THREAD;
+        int chunks = (rows.size() + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        Compression compression = Compression.forFileName(fileName);
+        boolean members = compression == Compression.GZIP;
+
+        // Gzip chunks are compressed by the workers and concatenated; zlib is compressed by the writer
+        Deque<CompletableFuture<ChunkBuffer>> pending = new ArrayDeque<>();
+        try (WritableByteChannel channel = members ? Compression.NONE.create(fileName) : compression.create(fileName)) {
+            ChunkBuffer header = new ChunkBuffer(members);
+            CsvExporter.writeHeader(header.rows, codec);
+            header.finish();
+            header.drainTo(channel);
+            header.end();
+            meter.bytes(header.length);
+
+            int next = 0;
+            while (next < chunks || !pending.isEmpty()) {
+                while (next < chunks && pending.size() < window) {
+                    int from = next++ * CHUNK_ROWS;
+                    int to = Math.min(from + CHUNK_ROWS, rows.size());
+                    pending.add(CompletableFuture.supplyAsync(() -> encode(from, to, members), pool));
+                }
+                int depth = meter.timed() ? encoded(pending) : 0;
+                ChunkBuffer buffer;
+                try {
+                    buffer = pending.poll().join();
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof CsvParseException cause) {
+                        throw cause;
+                    }
+                    throw e;
+                }
+                long begin = meter.clock();
+                buffer.drainTo(channel);
+                meter.batch(CsvStage.WRITE, buffer.rowCount, meter.clock() - begin, depth);
+                meter.rows(buffer.rowCount);
+                meter.bytes(buffer.length);
+                buffers.add(buffer);
+            }
+        } finally {
+            stopped = true;
+            for (CompletableFuture<ChunkBuffer> chunk : pending) {
+                chunk.thenAccept(buffer -> { // Now, or once a running chunk completes
+                    if (buffer != null) {
+                        buffer.end();
+                    }
+                });
+            }
+            ChunkBuffer buffer;
+            while ((buffer = buffers.poll()) != null) {
+                buffer.end();
+            }
+        }
+    }
+
+    /**
+     * @return the number of chunks encoded and waiting for the writer
+     */
+    private static int encoded(Deque<CompletableFuture<ChunkBuffer>> pending) {
+        int count = 0;
+        for (CompletableFuture<ChunkBuffer> chunk : pending) {
+            if (chunk.isDone()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the encoded chunk, or null if the writer stopped before the chunk started
+     */
+    private ChunkBuffer encode(int from, int to, boolean members) {
+        if (stopped) {
+            return null;
+        }
+        long begin = meter.clock();
+        ChunkBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            buffer = new ChunkBuffer(members);
+        }
+        buffer.rowCount = to - from;
+        try {
+            for (int i = from; i < to; i++) {
+                CsvExporter.writeRow(buffer.rows, codec, rows.get(i));
+            }
+            buffer.finish();
+        } catch (CsvParseException e) {
+            buffer.end();
+            throw new CompletionException(e);
+        } catch (RuntimeException e) {
+            buffer.end();
+            throw e;
+        }
+        meter.batch(CsvStage.ENCODE, to - from, meter.clock() - begin, 0);
+        return buffer;
+    }
+
+    /**
+     * The reusable encoded rows of one chunk and, for gzip files, their compressed member.
+     */
+    private static final class ChunkBuffer {
+        final Utf8RowWriter rows = new Utf8RowWriter(BUFFER_SIZE);
+        final GzipMember member;
+        int rowCount;
+        int length; // Of the encoded rows before compression
+
+        ChunkBuffer(boolean compressed) {
+            this.member = compressed ? new GzipMember() : null;
+        }
+
+        void finish() {
+            length = rows.size();
+            if (member != null) {
+                rows.compressTo(member);
+            }
+        }
+
+        void drainTo(WritableByteChannel channel) throws IOException {
+            if (member != null) {
+                member.drainTo(channel);
+            } else {
+                rows.drainTo(channel);
+            }
+        }
+
+        void end() {
+            if (member != null) {
+                member.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.rajnat.csv.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a source stream ahead on a background virtual thread.
+ * <p>
+ * The thread fills blocks from the source and queues them, so that reading the source, such as
+ * inflating a compressed file, overlaps with processing the blocks already read. Blocks are recycled
+ * through a second queue, which bounds the memory held to {@link #DEPTH} blocks. The source is closed
+ * by the background thread once it is exhausted, fails, or this stream is closed.
+ * <p>
+ * The thread is virtual, so that every compressed input open at the same time adds no platform
+ * thread: inflating runs on the carrier threads of the virtual threads, and a thread waiting for a
+ * free block releases its carrier.
+ */
+final class ReadAheadInputStream extends InputStream {
+    static final int BLOCK_SIZE = 1 << 16;
+    static final int DEPTH = 4;
+
+    private record Block(byte[] bytes, int length) {
+    }
+
+    private static final Block END = new Block(new byte[0], 0);
+
+    private final InputStream source;
+    private final BlockingQueue<Block> filled = new ArrayBlockingQueue<>(DEPTH + 1);
+    private final BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(DEPTH);
+    private final Thread reader;
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private Block current;
+    private int position;
+
+    /**
+     * Starts reading a source ahead.
+     *
+     * @param source the stream to read; closed by this stream
+     * @param name the name of the background virtual thread
+     */
+    ReadAheadInputStream(InputStream source, String name) {
+        this.source = Objects.requireNonNull(source, "source");
+        for (int i = 0; i < DEPTH; i++) {
+            free.add(new byte[BLOCK_SIZE]);
+        }
+        this.reader = Thread.ofVirtual().name(name).start(this::readAhead);
+    }
+
+    private void readAhead() {
+        try (source) {
+            while (!closed) {
+                byte[] block = free.take();
+                int n = source.readNBytes(block, 0, block.length);
+                if (n > 0) {
+                    filled.put(new Block(block, n));
+                }
+                if (n < block.length) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            // Closed while waiting for a free block
+        } finally {
+            filled.offer(END); // Never blocks: at most DEPTH blocks are queued
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureBlock()) {
+            return -1;
+        }
+        return current.bytes()[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureBlock()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length() - position);
+        System.arraycopy(current.bytes(), position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current == null || current == END ? 0 : current.length() - position;
+    }
+
+    private boolean ensureBlock() throws IOException {
+        if (current != null && position < current.length()) {
+            return true;
+        }
+        if (current == END) {
+            return false;
+        }
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (current != null) {
+            free.offer(current.bytes());
+        }
+        try {
+            current = filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for input");
+        }
+        position = 0;
+        if (current == END) {
+            if (failure != null) {
+                throw new IOException("Failed to read ahead", failure);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            reader.interrupt();
+        }
+    }
+}
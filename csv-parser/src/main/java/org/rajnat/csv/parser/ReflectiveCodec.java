@@ -0,0 +1,77 @@
+package org.rajnat.csv.parser;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Codec of a class without a generated codec, accessing its fields through the method handles of its
+ * {@link CsvSchema}.
+ *
+ * @param <T> the type of the rows
+ */
+final class ReflectiveCodec<T> implements CsvCodec<T> {
+    private final CsvSchema<T> schema;
+    private final CsvSchema.Column[] columns;
+    private final FieldBinder[] binders;
+    private final List<String> headers;
+
+    /**
+     * @param schema the schema of the class
+     * @param binders the binders in the order of {@link CsvSchema#columns()}, or null for a codec that only writes
+     */
+    ReflectiveCodec(CsvSchema<T> schema, FieldBinder[] binders) {
+        this.schema = schema;
+        this.columns = schema.columns().toArray(new CsvSchema.Column[0]);
+        this.binders = binders;
+        this.headers = Arrays.asList(schema.headerNames());
+    }
+
+    @Override
+    public List<String> headers() {
+        return headers;
+    }
+
+    @Override
+    public T read(CsvRow row, int[] columnIndexes) {
+        if (binders == null) {
+            throw new IllegalStateException(format("The codec of %s only writes", schema.type().getName()));
+        }
+        return read(row, columnIndexes, schema.newInstance());
+    }
+
+    @Override
+    public T read(CsvRow row, int[] columnIndexes, T obj) {
+        if (binders == null) {
+            throw new IllegalStateException(format("The codec of %s only writes", schema.type().getName()));
+        }
+        CsvRecord record = (CsvRecord) row;
+        int size = record.size();
+        byte[] buffer = record.buffer();
+        for (int j = 0; j < binders.length; j++) {
+            int c = columnIndexes[j];
+            if (c >= 0 && c < size) {
+                binders[j].bind(obj, buffer, record.start(c), record.length(c));
+            }
+        }
+        return obj;
+    }
+
+    @Override
+    public void write(T value, CsvRowWriter writer) {
+        for (CsvSchema.Column column : columns) {
+            Object fieldValue = column.get(value);
+            EnumCodec<?> enumCodec = column.enumCodec();
+            if (enumCodec != null && fieldValue != null) {
+                try {
+                    writer.writeUtf8(enumCodec.encodedLabel(fieldValue));
+                } catch (ClassCastException e) {
+                    throw new IllegalStateException(format("Failed to access field: %s", column.field()), e);
+                }
+            } else {
+                writer.write(fieldValue);
+            }
+        }
+    }
+}
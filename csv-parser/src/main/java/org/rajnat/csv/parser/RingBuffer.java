@@ -0,0 +1,108 @@
+package org.rajnat.csv.parser;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A bounded lock-free queue between one producer thread and one consumer thread.
+ * <p>
+ * Elements are kept in an array whose length is a power of two, indexed by ever-growing head and
+ * tail counters. The producer publishes an element by a release store of the tail after writing its
+ * slot, and the consumer frees the slot by a release store of the head after reading it, so neither
+ * side takes a lock or allocates. Callers that have to wait for room or for an element do so
+ * themselves, see {@link CsvPipeline}.
+ *
+ * @param <E> the type of the elements
+ */
+final class RingBuffer<E> {
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(RingBuffer.class, "head", long.class);
+            TAIL = lookup.findVarHandle(RingBuffer.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Object[] slots;
+    private final int mask;
+    // Padding keeps the counters of the two threads on different cache lines
+    private long p1, p2, p3, p4, p5, p6, p7;
+    private volatile long head;
+    private long p8, p9, p10, p11, p12, p13, p14;
+    private volatile long tail;
+    private long p15, p16, p17, p18, p19, p20, p21;
+    private long cachedHead; // Producer's view of head, refreshed when the buffer looks full
+    private long cachedTail; // Consumer's view of tail, refreshed when the buffer looks empty
+
+    /**
+     * @param capacity the minimum number of elements held, rounded up to a power of two
+     * @throws IllegalArgumentException if the capacity is not positive or too large
+     */
+    RingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30: " + capacity);
+        }
+        this.slots = new Object[capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1];
+        this.mask = slots.length - 1;
+    }
+
+    /**
+     * Adds an element if there is room; called by the producer only.
+     *
+     * @param element the element, not null
+     * @return whether the element was added
+     */
+    boolean offer(E element) {
+        long t = (long) TAIL.getOpaque(this);
+        if (t - cachedHead >= slots.length) {
+            cachedHead = (long) HEAD.getAcquire(this);
+            if (t - cachedHead >= slots.length) {
+                return false;
+            }
+        }
+        slots[(int) t & mask] = element;
+        TAIL.setRelease(this, t + 1);
+        return true;
+    }
+
+    /**
+     * Removes the oldest element if there is one; called by the consumer only.
+     *
+     * @return the element, or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        long h = (long) HEAD.getOpaque(this);
+        if (h >= cachedTail) {
+            cachedTail = (long) TAIL.getAcquire(this);
+            if (h >= cachedTail) {
+                return null;
+            }
+        }
+        int slot = (int) h & mask;
+        E element = (E) slots[slot];
+        slots[slot] = null;
+        HEAD.setRelease(this, h + 1);
+        return element;
+    }
+
+    /**
+     * @return the number of elements in the buffer, which may already have changed when it is used
+     */
+    int size() {
+        long h = head;
+        return (int) (tail - h);
+    }
+
+    /**
+     * @return the number of elements the buffer holds at most
+     */
+    int capacity() {
+        return slots.length;
+    }
+}
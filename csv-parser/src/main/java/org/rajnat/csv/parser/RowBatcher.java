@@ -0,0 +1,63 @@
+package org.rajnat.csv.parser;
+
+import org.rajnat.csv.api.BatchConsumer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Groups the rows of an import into batches and hands every complete batch to a consumer.
+ * <p>
+ * All batches are collected in the same list, which is cleared once the consumer returns, so a
+ * batched import allocates no containers after its first batch. The consumer runs on the thread
+ * adding the rows, which thus stops reading while a batch is being consumed.
+ *
+ * @param <T> the type of the rows
+ */
+final class RowBatcher<T> {
+    private final CsvBatchSize size;
+    private final BatchConsumer<? super T> consumer;
+    private final List<T> batch;
+    private long bytes;
+    private long rows;
+
+    RowBatcher(CsvBatchSize size, BatchConsumer<? super T> consumer) {
+        this.size = size;
+        this.consumer = consumer;
+        this.batch = new ArrayList<>(size.capacity());
+    }
+
+    /**
+     * Adds a row, handing the batch to the consumer once it is full.
+     *
+     * @param row the row
+     * @param record the record the row was mapped from, which only needs to be valid during the call
+     */
+    void add(T row, CsvRecord record) {
+        batch.add(row);
+        bytes += record.span();
+        if (size.isFull(batch.size(), bytes)) {
+            flush();
+        }
+    }
+
+    /**
+     * Hands the last batch to the consumer, if it is not empty.
+     *
+     * @return the number of rows handed to the consumer
+     */
+    long finish() {
+        flush();
+        return rows;
+    }
+
+    private void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        consumer.accept(batch);
+        rows += batch.size();
+        batch.clear();
+        bytes = 0;
+    }
+}
@@ -0,0 +1,185 @@
+package org.rajnat.csv.parser;
+
+import org.rajnat.csv.exception.CsvErrorLimitException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.format;
+
+/**
+ * Applies a {@link CsvErrorPolicy} to the rows of one file that cannot be converted.
+ * <p>
+ * Readers report every failed row and add the number of rows they read, possibly from several
+ * threads. Counting is all a failure costs until the policy asks for more; sinks and the dead-letter
+ * file are only used while holding the lock of this object, so they see one failure at a time.
+ */
+final class RowErrors {
+    private static final Logger log = LoggerFactory.getLogger(RowErrors.class);
+    private static final int FLUSH_BYTES = 1 << 16;
+
+    private final CsvErrorPolicy policy;
+    private final String fileName;
+    private final long firstRow;
+    private final AtomicLong failed = new AtomicLong();
+    private final LongAdder rows = new LongAdder();
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private FileChannel deadLetter;
+    private Utf8RowWriter writer;
+    private boolean closed;
+
+    /**
+     * @param policy the policy of the importer
+     * @param fileName the name of the file
+     * @param firstRow the number of the first row to read, so that row numbers tell how many rows were read
+     */
+    RowErrors(CsvErrorPolicy policy, String fileName, long firstRow) {
+        this.policy = policy;
+        this.fileName = fileName;
+        this.firstRow = firstRow;
+    }
+
+    /**
+     * @return whether list imports and streams keep failed rows as null entries
+     */
+    boolean keepsFailed() {
+        return !policy.skipsFailed();
+    }
+
+    /**
+     * Adds rows read from the file, counting failed and filtered rows, once a reader is done.
+     *
+     * @param count the number of rows
+     */
+    void rows(long count) {
+        rows.add(count);
+    }
+
+    /**
+     * Reports a row that could not be converted.
+     *
+     * @param binding the binding of the header of the file
+     * @param record the record of the row
+     * @param row the number of the row, or -1 if unknown
+     * @param cause the exception of the field that failed to convert
+     * @throws CsvErrorLimitException if the policy aborts the import
+     * @throws UncheckedIOException if the dead-letter file cannot be written
+     */
+    void failed(HeaderBinding<?> binding, CsvRecord record, long row, Exception cause) {
+        long count = failed.incrementAndGet();
+        if (count <= policy.logLimit()) {
+            log.error("Failed to convert row {} at offset {} of {} to {}: {} [{}]",
+                    row, record.offset(), fileName, binding.type().getName(), cause, record);
+        }
+        if (policy.sink() != null || policy.writesDeadLetter()) {
+            report(binding, record, row, cause);
+        }
+        if (count > policy.maxErrors()) {
+            throw new CsvErrorLimitException(format("Aborted the import of %s after %d rows failed to convert", fileName, count), cause);
+        }
+        if (row >= 0) {
+            checkRate(count, row + 1 - firstRow, cause);
+        }
+    }
+
+    private synchronized void report(HeaderBinding<?> binding, CsvRecord record, long row, Exception cause) {
+        if (closed) {
+            return; // A reader closed early is still mapping its last rows
+        }
+        if (policy.sink() != null) {
+            policy.sink().accept(new CsvError(fileName, row, record.offset(), Arrays.asList(record.toArray()), cause));
+        }
+        if (policy.writesDeadLetter()) {
+            try {
+                if (writer == null) {
+                    openDeadLetter(binding);
+                }
+                writer.write(row);
+                writer.write(record.offset());
+                writer.write(cause.toString());
+                for (int i = 0; i < record.size(); i++) {
+                    writer.write(record.getString(i));
+                }
+                writer.endRow();
+                if (writer.size() >= FLUSH_BYTES) {
+                    writer.drainTo(deadLetter);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write the dead-letter file of " + fileName, e);
+            }
+        }
+    }
+
+    private void openDeadLetter(HeaderBinding<?> binding) throws IOException {
+        deadLetter = FileChannel.open(deadLetterPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        writer = new Utf8RowWriter(FLUSH_BYTES);
+        writer.write("Row");
+        writer.write("Offset");
+        writer.write("Error");
+        for (String header : binding.headers()) {
+            writer.write(header);
+        }
+        writer.endRow();
+    }
+
+    private Path deadLetterPath() {
+        return Path.of(fileName + CsvErrorPolicy.DEAD_LETTER_SUFFIX);
+    }
+
+    private void checkRate(long count, long read, Exception cause) {
+        if (read >= policy.minRows() && count > policy.maxRate() * read) {
+            throw new CsvErrorLimitException(format("Aborted the import of %s after %d of %d rows failed to convert",
+                    fileName, count, read), cause);
+        }
+    }
+
+    /**
+     * Logs the number of failed rows that were not logged and closes the dead-letter file. Only the
+     * first call does anything, so readers may call it both when they reach the end of the file and
+     * when they are closed.
+     *
+     * @param complete whether the whole file was read, so that the share of failed rows is checked
+     *                 and a stale dead-letter file deleted
+     * @throws CsvErrorLimitException if the policy aborts the import
+     * @throws UncheckedIOException if the dead-letter file cannot be written
+     */
+    void finish(boolean complete) {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        long count = failed.get();
+        if (count > policy.logLimit()) {
+            log.error("{} rows of {} failed to convert, {} of them were not logged", count, fileName, count - policy.logLimit());
+        }
+        closeDeadLetter(complete && count == 0);
+        if (complete) {
+            checkRate(count, rows.sum(), null);
+        }
+    }
+
+    private synchronized void closeDeadLetter(boolean deleteStale) {
+        closed = true;
+        try {
+            if (writer != null) {
+                try (FileChannel channel = deadLetter) {
+                    writer.drainTo(channel);
+                }
+            } else if (deleteStale && policy.writesDeadLetter()) {
+                Files.deleteIfExists(deadLetterPath());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write the dead-letter file of " + fileName, e);
+        }
+    }
+}
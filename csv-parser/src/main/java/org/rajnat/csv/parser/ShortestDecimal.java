@@ -0,0 +1,381 @@
+package org.rajnat.csv.parser;
+
+import java.math.BigInteger;
+
+/**
+ * Writes doubles and floats as ASCII into a byte array, with the same characters as
+ * {@link Double#toString(double)} and {@link Float#toString(float)}, without creating Strings.
+ * <p>
+ * The digits are the shortest decimal that rounds back to the value, picked with the Schubfach
+ * algorithm of Raffaello Giulietti ("The Schubfach way to render doubles", 2020), which the JDK uses
+ * for these methods since JDK 19. Values from 10<sup>-3</sup> to 10<sup>7</sup> are written as plain
+ * decimals and others in computerized scientific notation, such as {@code 1.0E-5}. The algorithm
+ * multiplies by 126-bit approximations of powers of ten, computed once when the class is loaded.
+ */
+final class ShortestDecimal {
+    /** The most characters a double is written with, as in {@code -2.2250738585072014E-308}. */
+    static final int MAX_CHARS = 24;
+
+    private static final int DOUBLE_P = 53;
+    private static final int DOUBLE_W = 11;
+    private static final int DOUBLE_Q_MIN = -1074;
+    private static final long DOUBLE_C_MIN = 1L << DOUBLE_P - 1;
+    private static final long DOUBLE_C_TINY = 3;
+    private static final long DOUBLE_T_MASK = DOUBLE_C_MIN - 1;
+    private static final int DOUBLE_BQ_MASK = (1 << DOUBLE_W) - 1;
+
+    private static final int FLOAT_P = 24;
+    private static final int FLOAT_W = 8;
+    private static final int FLOAT_Q_MIN = -149;
+    private static final int FLOAT_C_MIN = 1 << FLOAT_P - 1;
+    private static final int FLOAT_C_TINY = 8;
+    private static final int FLOAT_T_MASK = FLOAT_C_MIN - 1;
+    private static final int FLOAT_BQ_MASK = (1 << FLOAT_W) - 1;
+
+    private static final long MASK_63 = (1L << 63) - 1;
+    private static final long MASK_32 = (1L << 32) - 1;
+
+    /** The exponents of the powers of ten 10<sup>-k</sup> needed by doubles, which cover floats. */
+    private static final int K_MIN = -324;
+    private static final int K_MAX = 292;
+    private static final long[] G = powersOfTen();
+
+    private static final long[] POWERS_OF_TEN = new long[18];
+
+    static {
+        long power = 1;
+        for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = power;
+            power *= 10;
+        }
+    }
+
+    private static final byte[] NAN = {'N', 'a', 'N'};
+    private static final byte[] INFINITY = {'I', 'n', 'f', 'i', 'n', 'i', 't', 'y'};
+
+    private ShortestDecimal() {
+    }
+
+    /**
+     * Writes a double as {@link Double#toString(double)} does.
+     *
+     * @param value the value
+     * @param buffer the array to write to, with room for {@link #MAX_CHARS} bytes at {@code offset}
+     * @param offset the index of the first byte to write
+     * @return the index after the last byte written
+     */
+    static int write(double value, byte[] buffer, int offset) {
+        long bits = Double.doubleToRawLongBits(value);
+        long t = bits & DOUBLE_T_MASK;
+        int bq = (int) (bits >>> DOUBLE_P - 1) & DOUBLE_BQ_MASK;
+        if (bq == DOUBLE_BQ_MASK) {
+            return t != 0 ? copy(NAN, buffer, offset) : copy(INFINITY, buffer, sign(bits < 0, buffer, offset));
+        }
+        int i = sign(bits < 0, buffer, offset);
+        if (bq != 0) {
+            int mq = -DOUBLE_Q_MIN + 1 - bq;
+            long c = DOUBLE_C_MIN | t;
+            if (0 < mq & mq < DOUBLE_P) {
+                // Integers below 2^53 are their own shortest decimal
+                long f = c >> mq;
+                if (f << mq == c) {
+                    return chars(f, 0, buffer, i);
+                }
+            }
+            return toDecimal(-mq, c, 0, buffer, i);
+        }
+        if (t != 0) {
+            // Subnormal values with few significant bits get one more digit to pick from
+            return t < DOUBLE_C_TINY
+                    ? toDecimal(DOUBLE_Q_MIN, 10 * t, -1, buffer, i)
+                    : toDecimal(DOUBLE_Q_MIN, t, 0, buffer, i);
+        }
+        return chars(0, 0, buffer, i);
+    }
+
+    /**
+     * Writes a float as {@link Float#toString(float)} does.
+     *
+     * @param value the value
+     * @param buffer the array to write to, with room for {@link #MAX_CHARS} bytes at {@code offset}
+     * @param offset the index of the first byte to write
+     * @return the index after the last byte written
+     */
+    static int write(float value, byte[] buffer, int offset) {
+        int bits = Float.floatToRawIntBits(value);
+        int t = bits & FLOAT_T_MASK;
+        int bq = (bits >>> FLOAT_P - 1) & FLOAT_BQ_MASK;
+        if (bq == FLOAT_BQ_MASK) {
+            return t != 0 ? copy(NAN, buffer, offset) : copy(INFINITY, buffer, sign(bits < 0, buffer, offset));
+        }
+        int i = sign(bits < 0, buffer, offset);
+        if (bq != 0) {
+            int mq = -FLOAT_Q_MIN + 1 - bq;
+            int c = FLOAT_C_MIN | t;
+            if (0 < mq & mq < FLOAT_P) {
+                int f = c >> mq;
+                if (f << mq == c) {
+                    return chars(f, 0, buffer, i);
+                }
+            }
+            return toDecimal(-mq, c, 0, buffer, i);
+        }
+        if (t != 0) {
+            return t < FLOAT_C_TINY
+                    ? toDecimal(FLOAT_Q_MIN, 10 * t, -1, buffer, i)
+                    : toDecimal(FLOAT_Q_MIN, t, 0, buffer, i);
+        }
+        return chars(0, 0, buffer, i);
+    }
+
+    /**
+     * Picks the shortest decimal of the double {@code c 2^q}, as in section 9 of the paper.
+     */
+    private static int toDecimal(int q, long c, int dk, byte[] buffer, int offset) {
+        int out = (int) c & 0x1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != DOUBLE_C_MIN | q == DOUBLE_Q_MIN) {
+            cbl = cb - 2;
+            k = floorLog10Pow2(q);
+        } else {
+            // The gap below a power of two is half the gap above it
+            cbl = cb - 1;
+            k = floorLog10ThreeQuartersPow2(q);
+        }
+        int h = q + floorLog2Pow10(-k) + 2;
+        long g1 = g1(k);
+        long g0 = g0(k);
+
+        long vb = roundOdd(g1, g0, cb << h);
+        long vbl = roundOdd(g1, g0, cbl << h);
+        long vbr = roundOdd(g1, g0, cbr << h);
+
+        long s = vb >> 2;
+        if (s >= 100) {
+            // Try one digit less first
+            long sp10 = 10 * Math.multiplyHigh(s, 115_292_150_460_684_698L << 4);
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) {
+                return chars(upin ? sp10 : tp10, k, buffer, offset);
+            }
+        }
+        long t = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (t << 2) + out <= vbr;
+        if (uin != win) {
+            return chars(uin ? s : t, k + dk, buffer, offset);
+        }
+        // Both candidates round back to the value: take the closer one, the even one on ties
+        long cmp = vb - (s + t << 1);
+        return chars(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk, buffer, offset);
+    }
+
+    /**
+     * Picks the shortest decimal of the float {@code c 2^q}.
+     */
+    private static int toDecimal(int q, int c, int dk, byte[] buffer, int offset) {
+        int out = c & 0x1;
+        long cb = (long) c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != FLOAT_C_MIN | q == FLOAT_Q_MIN) {
+            cbl = cb - 2;
+            k = floorLog10Pow2(q);
+        } else {
+            cbl = cb - 1;
+            k = floorLog10ThreeQuartersPow2(q);
+        }
+        int h = q + floorLog2Pow10(-k) + 33;
+        long g = g1(k) + 1;
+
+        int vb = roundOdd(g, cb << h);
+        int vbl = roundOdd(g, cbl << h);
+        int vbr = roundOdd(g, cbr << h);
+
+        int s = vb >> 2;
+        if (s >= 100) {
+            int sp10 = 10 * (int) (s * 1_717_986_919L >>> 34);
+            int tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) {
+                return chars(upin ? sp10 : tp10, k, buffer, offset);
+            }
+        }
+        int t = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (t << 2) + out <= vbr;
+        if (uin != win) {
+            return chars(uin ? s : t, k + dk, buffer, offset);
+        }
+        int cmp = vb - (s + t << 1);
+        return chars(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk, buffer, offset);
+    }
+
+    /**
+     * @return the product of {@code g 2^-127} and {@code cp}, rounded to odd
+     */
+    private static long roundOdd(long g1, long g0, long cp) {
+        long x1 = Math.multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = Math.multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    /**
+     * @return the product of {@code g 2^-95} and {@code cp}, rounded to odd
+     */
+    private static int roundOdd(long g, long cp) {
+        long x1 = Math.multiplyHigh(g, cp);
+        long vbp = x1 >>> 31;
+        return (int) (vbp | (x1 & MASK_32) + MASK_32 >>> 32);
+    }
+
+    /**
+     * Writes the decimal {@code f 10^e} in the format of {@link Double#toString(double)}.
+     */
+    private static int chars(long f, int e, byte[] buffer, int offset) {
+        if (f == 0) {
+            buffer[offset] = '0';
+            buffer[offset + 1] = '.';
+            buffer[offset + 2] = '0';
+            return offset + 3;
+        }
+        while (f % 10 == 0) {
+            f /= 10;
+            e++;
+        }
+        int digits = 1;
+        while (digits < POWERS_OF_TEN.length && f >= POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        // The value is 0.f 10^point
+        int point = digits + e;
+        int i = offset;
+        if (point > 0 && point <= 7) {
+            if (digits <= point) {
+                i = digits(f, digits, buffer, i);
+                for (int zeros = point - digits; zeros > 0; zeros--) {
+                    buffer[i++] = '0';
+                }
+                buffer[i++] = '.';
+                buffer[i++] = '0';
+            } else {
+                long power = POWERS_OF_TEN[digits - point];
+                i = digits(f / power, point, buffer, i);
+                buffer[i++] = '.';
+                i = digits(f % power, digits - point, buffer, i);
+            }
+        } else if (point > -3 && point <= 0) {
+            buffer[i++] = '0';
+            buffer[i++] = '.';
+            for (int zeros = -point; zeros > 0; zeros--) {
+                buffer[i++] = '0';
+            }
+            i = digits(f, digits, buffer, i);
+        } else {
+            long power = POWERS_OF_TEN[digits - 1];
+            buffer[i++] = (byte) ('0' + f / power);
+            buffer[i++] = '.';
+            i = digits == 1 ? zero(buffer, i) : digits(f % power, digits - 1, buffer, i);
+            buffer[i++] = 'E';
+            int exponent = point - 1;
+            if (exponent < 0) {
+                buffer[i++] = '-';
+                exponent = -exponent;
+            }
+            i = digits(exponent, exponent >= 100 ? 3 : exponent >= 10 ? 2 : 1, buffer, i);
+        }
+        return i;
+    }
+
+    /**
+     * Writes the last {@code count} digits of a value, with leading zeros.
+     */
+    private static int digits(long value, int count, byte[] buffer, int offset) {
+        for (int i = offset + count - 1; i >= offset; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + count;
+    }
+
+    private static int zero(byte[] buffer, int offset) {
+        buffer[offset] = '0';
+        return offset + 1;
+    }
+
+    private static int sign(boolean negative, byte[] buffer, int offset) {
+        if (negative) {
+            buffer[offset++] = '-';
+        }
+        return offset;
+    }
+
+    private static int copy(byte[] chars, byte[] buffer, int offset) {
+        System.arraycopy(chars, 0, buffer, offset, chars.length);
+        return offset + chars.length;
+    }
+
+    /**
+     * @return floor(log10(2^e)), for |e| up to 5456721
+     */
+    private static int floorLog10Pow2(int e) {
+        return (int) (e * 661_971_961_083L >> 41);
+    }
+
+    /**
+     * @return floor(log10(3/4 2^e)), for |e| up to 5456721
+     */
+    private static int floorLog10ThreeQuartersPow2(int e) {
+        return (int) (e * 661_971_961_083L + -274_743_187_321L >> 41);
+    }
+
+    /**
+     * @return floor(log2(10^e)), for |e| up to 1838394
+     */
+    private static int floorLog2Pow10(int e) {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+
+    private static long g1(int k) {
+        return G[k - K_MIN << 1];
+    }
+
+    private static long g0(int k) {
+        return G[(k - K_MIN << 1) + 1];
+    }
+
+    /**
+     * Computes, for every k from {@link #K_MIN} to {@link #K_MAX}, the 126-bit integer
+     * g = floor(10^-k 2^-r) + 1 where r is such that 2^125 <= 10^-k 2^-r < 2^126, split into its
+     * upper and lower 63 bits.
+     */
+    private static long[] powersOfTen() {
+        long[] g = new long[K_MAX - K_MIN + 1 << 1];
+        BigInteger mask = BigInteger.ONE.shiftLeft(63).subtract(BigInteger.ONE);
+        for (int k = K_MIN; k <= K_MAX; k++) {
+            BigInteger beta;
+            if (k <= 0) {
+                BigInteger power = BigInteger.TEN.pow(-k);
+                int r = power.bitLength() - 126;
+                beta = r >= 0 ? power.shiftRight(r) : power.shiftLeft(-r);
+            } else {
+                BigInteger power = BigInteger.TEN.pow(k);
+                beta = BigInteger.ONE.shiftLeft(125 + power.bitLength()).divide(power);
+            }
+            BigInteger value = beta.add(BigInteger.ONE);
+            g[k - K_MIN << 1] = value.shiftRight(63).longValueExact();
+            g[(k - K_MIN << 1) + 1] = value.and(mask).longValue();
+        }
+        return g;
+    }
+}
@@ -0,0 +1,93 @@
+package org.rajnat.csv.parser;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Converts String fields through a bounded dictionary of the values already seen, so that repeated
+ * values share one String.
+ * <p>
+ * The dictionary is an open-addressing table keyed by a hash of the raw field bytes, so a repeated
+ * value is found without being decoded. Entries are immutable and published with racy writes: threads
+ * importing chunks in parallel may briefly decode the same value twice, but always get a correct
+ * String. Once more than {@code maxEntries} distinct values were seen, the dictionary stops adding
+ * and looking up values and decodes every field.
+ */
+final class StringDictionary implements CsvConverter<String> {
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final int MAX_ENTRIES = 1 << 28;
+
+    private record Entry(byte[] bytes, String value, int hash) {
+    }
+
+    private final int maxEntries;
+    private final Entry[] table;
+    private final int mask;
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile boolean saturated;
+
+    /**
+     * @param maxEntries the number of distinct values kept before falling back to plain Strings
+     * @throws IllegalArgumentException if {@code maxEntries} is not positive
+     */
+    StringDictionary(int maxEntries) {
+        if (maxEntries <= 0 || maxEntries > MAX_ENTRIES) {
+            throw new IllegalArgumentException("maxEntries must be between 1 and " + MAX_ENTRIES + ": " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        // At most half full, so probes stay short and always reach an empty slot
+        this.table = new Entry[Integer.highestOneBit(maxEntries * 2 - 1) << 1];
+        this.mask = table.length - 1;
+    }
+
+    @Override
+    public String parse(byte[] bytes, int offset, int length) {
+        if (saturated) {
+            return ByteParsers.decode(bytes, offset, length);
+        }
+        int hash = hash(bytes, offset, length);
+        for (int i = hash & mask; ; i = i + 1 & mask) {
+            Entry entry = table[i];
+            if (entry == null) {
+                return insert(i, bytes, offset, length, hash);
+            }
+            if (entry.hash == hash && Arrays.equals(entry.bytes, 0, entry.bytes.length, bytes, offset, offset + length)) {
+                return entry.value;
+            }
+        }
+    }
+
+    /**
+     * @return whether the dictionary fell back to plain Strings
+     */
+    boolean isSaturated() {
+        return saturated;
+    }
+
+    private String insert(int slot, byte[] bytes, int offset, int length, int hash) {
+        String value = ByteParsers.decode(bytes, offset, length);
+        if (size.incrementAndGet() > maxEntries) {
+            saturated = true;
+            return value;
+        }
+        table[slot] = new Entry(Arrays.copyOfRange(bytes, offset, offset + length), value, hash);
+        return value;
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        long h = length * MULTIPLIER;
+        int end = offset + length;
+        int i = offset;
+        for (; i + Long.BYTES <= end; i += Long.BYTES) {
+            h = (h + (long) LONGS.get(bytes, i)) * MULTIPLIER;
+        }
+        for (; i < end; i++) {
+            h = (h + (bytes[i] & 0xFF)) * MULTIPLIER;
+        }
+        return (int) (h ^ h >>> 32);
+    }
+}
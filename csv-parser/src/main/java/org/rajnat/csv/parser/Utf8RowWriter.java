@@ -0,0 +1,288 @@
+package org.rajnat.csv.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encodes rows straight into a reusable UTF-8 byte buffer.
+ * <p>
+ * Fields are separated by commas and quoted as in RFC 4180 only when they contain a comma, a quote
+ * or a line break, in which case quotes are doubled. Integers are formatted digit by digit and
+ * doubles and floats as their shortest round-trip decimal by {@link ShortestDecimal}, with the
+ * characters of {@link Double#toString(double)}, so the common field types are written without
+ * creating Strings. Rows end with the platform line separator.
+ */
+final class Utf8RowWriter implements CsvRowWriter {
+    private static final byte DELIMITER = ',';
+    private static final byte QUOTE = '"';
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] QUOTED_QUOTE = {QUOTE, QUOTE, QUOTE, QUOTE};
+    private static final byte[] LONG_MIN = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private static final long[] LONG_POWERS_OF_TEN = new long[19];
+
+    static {
+        long longPower = 1;
+        for (int i = 0; i < LONG_POWERS_OF_TEN.length; i++) {
+            LONG_POWERS_OF_TEN[i] = longPower;
+            longPower *= 10;
+        }
+    }
+
+    private byte[] buffer;
+    private ByteBuffer view;
+    private int size;
+    private boolean first = true;
+
+    Utf8RowWriter(int capacity) {
+        this.buffer = new byte[Math.max(capacity, 64)];
+        this.view = ByteBuffer.wrap(buffer);
+    }
+
+    /**
+     * Ends the current row with a line separator.
+     */
+    void endRow() {
+        writeRaw(LINE_SEPARATOR);
+        first = true;
+    }
+
+    /**
+     * @return the number of encoded bytes in the buffer
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Writes the encoded rows to a channel and empties the buffer.
+     *
+     * @param channel the channel receiving the bytes
+     * @throws IOException if writing fails
+     */
+    void drainTo(WritableByteChannel channel) throws IOException {
+        view.clear().limit(size);
+        while (view.hasRemaining()) {
+            channel.write(view);
+        }
+        clear();
+    }
+
+    /**
+     * Compresses the encoded rows into a gzip member and empties the buffer.
+     *
+     * @param member the member receiving the rows
+     */
+    void compressTo(GzipMember member) {
+        member.compress(buffer, size);
+        clear();
+    }
+
+    /**
+     * Drops the encoded rows.
+     */
+    void clear() {
+        size = 0;
+        first = true;
+    }
+
+    @Override
+    public void write(String value) {
+        delimit();
+        if (value == null) {
+            return;
+        }
+        boolean quoted = needsQuotes(value);
+        if (quoted) {
+            append(QUOTE);
+        }
+        int length = value.length();
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == QUOTE && quoted) {
+                    append(QUOTE);
+                }
+                append((byte) c);
+            } else {
+                i = appendNonAscii(value, i, c);
+            }
+        }
+        if (quoted) {
+            append(QUOTE);
+        }
+    }
+
+    @Override
+    public void write(Object value) {
+        write(value == null ? null : value.toString());
+    }
+
+    @Override
+    public void writeUtf8(byte[] value) {
+        delimit();
+        if (value == null) {
+            return;
+        }
+        boolean quoted = false;
+        for (byte b : value) {
+            if (b == DELIMITER || b == QUOTE || b == '\n' || b == '\r') {
+                quoted = true;
+                break;
+            }
+        }
+        if (!quoted) {
+            writeRaw(value);
+            return;
+        }
+        append(QUOTE);
+        for (byte b : value) {
+            if (b == QUOTE) {
+                append(QUOTE);
+            }
+            append(b);
+        }
+        append(QUOTE);
+    }
+
+    @Override
+    public void write(int value) {
+        delimit();
+        appendLong(value);
+    }
+
+    @Override
+    public void write(long value) {
+        delimit();
+        appendLong(value);
+    }
+
+    @Override
+    public void write(double value) {
+        delimit();
+        ensure(ShortestDecimal.MAX_CHARS);
+        size = ShortestDecimal.write(value, buffer, size);
+    }
+
+    @Override
+    public void write(float value) {
+        delimit();
+        ensure(ShortestDecimal.MAX_CHARS);
+        size = ShortestDecimal.write(value, buffer, size);
+    }
+
+    @Override
+    public void write(boolean value) {
+        delimit();
+        writeRaw(value ? TRUE : FALSE);
+    }
+
+    @Override
+    public void write(char value) {
+        delimit();
+        if (value == DELIMITER || value == '\n' || value == '\r') {
+            append(QUOTE);
+            append((byte) value);
+            append(QUOTE);
+        } else if (value == QUOTE) {
+            writeRaw(QUOTED_QUOTE);
+        } else if (value < 0x80) {
+            append((byte) value);
+        } else {
+            appendNonAscii(String.valueOf(value), 0, value);
+        }
+    }
+
+    private void appendFraction(long fraction, int digits) {
+        ensure(digits);
+        for (int i = size + digits - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        size += digits;
+    }
+
+    private void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeRaw(LONG_MIN);
+            return;
+        }
+        if (value < 0) {
+            append((byte) '-');
+            value = -value;
+        }
+        int digits = 1;
+        while (digits < LONG_POWERS_OF_TEN.length && value >= LONG_POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        appendFraction(value, digits);
+    }
+
+    /**
+     * Encodes a non-ASCII char, and the low surrogate following a high one.
+     *
+     * @return the index of the last char consumed
+     */
+    private int appendNonAscii(String value, int i, char c) {
+        ensure(4);
+        if (c < 0x800) {
+            buffer[size++] = (byte) (0xC0 | c >> 6);
+            buffer[size++] = (byte) (0x80 | c & 0x3F);
+        } else if (!Character.isSurrogate(c)) {
+            buffer[size++] = (byte) (0xE0 | c >> 12);
+            buffer[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+            buffer[size++] = (byte) (0x80 | c & 0x3F);
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(++i));
+            buffer[size++] = (byte) (0xF0 | codePoint >> 18);
+            buffer[size++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+            buffer[size++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+            buffer[size++] = (byte) (0x80 | codePoint & 0x3F);
+        } else {
+            buffer[size++] = '?'; // Unpaired surrogate, replaced like String.getBytes does
+        }
+        return i;
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == DELIMITER || c == QUOTE || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void delimit() {
+        if (first) {
+            first = false;
+        } else {
+            append(DELIMITER);
+        }
+    }
+
+    private void writeRaw(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void append(byte b) {
+        ensure(1);
+        buffer[size++] = b;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, size + extra));
+            view = ByteBuffer.wrap(buffer);
+        }
+    }
+}
@@ -1,13 +1,72 @@
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rajnat.csv.exception.CsvErrorLimitException;
+import org.rajnat.csv.exception.CsvParseException;
+import org.rajnat.csv.parser.ConverterRegistry;
+import org.rajnat.csv.parser.CsvBatchSize;
+import org.rajnat.csv.parser.CsvCodec;
+import org.rajnat.csv.parser.CsvConverter;
+import org.rajnat.csv.parser.CsvError;
+import org.rajnat.csv.parser.CsvErrorPolicy;
+import org.rajnat.csv.parser.CsvExecutors;
 import org.rajnat.csv.parser.CsvExporter;
+import org.rajnat.csv.parser.CsvFormat;
 import org.rajnat.csv.parser.CsvImporter;
+import org.rajnat.csv.parser.CsvIndex;
+import org.rajnat.csv.parser.CsvMetrics;
+import org.rajnat.csv.parser.CsvQuery;
+import org.rajnat.csv.parser.CsvStage;
+import org.rajnat.csv.parser.CsvStats;
+import org.rajnat.csv.parser.CsvTail;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class CsvParseTest {
 
@@ -41,4 +100,838 @@ public class CsvParseTest {
         List<Employee> importedEmployees = importedEmployeesFuture.get();
         assertEquals(employees, importedEmployees);
     }
+
+    @Test
+    public void testImportWithReorderedAndExtraColumns(@TempDir Path tempDir) throws Exception {
+        Path csv = tempDir.resolve("reordered.csv");
+        Files.write(csv, List.of(
+                "Salary,Notes,Contract Type,Name,Employee ID,Age",
+                "50000.0,ignored,FULLTIME,John Doe,1,30"));
+
+        CsvImporter importer = new CsvImporter();
+        List<Employee> imported = importer.importFromCsvAsync(csv.toString(), Employee.class).get();
+
+        Employee expected = new Employee();
+        expected.setId(1);
+        expected.setName("John Doe");
+        expected.setAge(30);
+        expected.setSalary(50000.0);
+        expected.setContractType(ContractType.FULLTIME);
+        assertEquals(List.of(expected), imported);
+    }
+
+    @Test
+    public void testImportStream(@TempDir Path tempDir) throws Exception {
+        List<Employee> employees = IntStream.range(0, 5000)
+                .mapToObj(CsvParseTest::employee)
+                .collect(Collectors.toList());
+        String fileName = tempDir.resolve("stream.csv").toString();
+        new CsvExporter().exportToCsv(employees, fileName).get();
+
+        CsvImporter importer = new CsvImporter();
+        try (Stream<Employee> stream = importer.importFromCsvStream(fileName, Employee.class).get()) {
+            assertEquals(employees, stream.collect(Collectors.toList()));
+        }
+        try (Stream<Employee> stream = importer.importFromCsvStream(fileName, Employee.class).get()) {
+            assertEquals(employees, stream.parallel().collect(Collectors.toList()));
+        }
+        try (Stream<Employee> stream = importer.importFromCsvStream(fileName, Employee.class).get()) {
+            assertEquals(employees.subList(0, 10), stream.limit(10).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testExportStream(@TempDir Path tempDir) throws Exception {
+        List<Employee> employees = IntStream.range(0, 5000)
+                .mapToObj(CsvParseTest::employee)
+                .collect(Collectors.toList());
+        CsvExporter exporter = new CsvExporter();
+        CsvImporter importer = new CsvImporter();
+
+        String inferred = tempDir.resolve("inferred.csv").toString();
+        exporter.exportToCsv(employees.stream(), inferred).get();
+        assertEquals(employees, importer.importFromCsvAsync(inferred, Employee.class).get());
+
+        String typed = tempDir.resolve("typed.csv").toString();
+        exporter.exportToCsv(IntStream.range(0, 5000).mapToObj(CsvParseTest::employee), Employee.class, typed).get();
+        assertEquals(employees, importer.importFromCsvAsync(typed, Employee.class).get());
+
+        String empty = tempDir.resolve("empty.csv").toString();
+        exporter.exportToCsv(Stream.<Employee>empty(), Employee.class, empty).get();
+        assertEquals(List.of("Employee ID,Name,Age,Salary,Contract Type"), Files.readAllLines(Path.of(empty)));
+
+        // Empty lists get the header of their class, or fail alike without one
+        String emptyList = tempDir.resolve("empty-list.csv").toString();
+        exporter.exportToCsv(List.<Employee>of(), Employee.class, emptyList).get();
+        assertEquals(List.of("Employee ID,Name,Age,Salary,Contract Type"), Files.readAllLines(Path.of(emptyList)));
+        String emptyParallel = tempDir.resolve("empty-parallel.csv").toString();
+        exporter.exportToCsvParallel(List.<Employee>of(), Employee.class, emptyParallel).get();
+        assertEquals(List.of("Employee ID,Name,Age,Salary,Contract Type"), Files.readAllLines(Path.of(emptyParallel)));
+        for (CompletableFuture<?> export : List.of(exporter.exportToCsv(List.of(), tempDir.resolve("none.csv").toString()),
+                exporter.exportToCsvParallel(List.of(), tempDir.resolve("none.csv").toString()))) {
+            ExecutionException e = assertThrows(ExecutionException.class, export::get);
+            assertInstanceOf(CsvParseException.class, e.getCause().getCause());
+        }
+        assertFalse(Files.exists(tempDir.resolve("none.csv")));
+    }
+
+    @Test
+    public void testImportQuotedFields(@TempDir Path tempDir) throws Exception {
+        List<Employee> expected = new ArrayList<>();
+        StringBuilder csv = new StringBuilder("\uFEFFEmployee ID,Name,Age,Salary,Contract Type\r\n");
+        String[] names = {"Doe, John", "Jane \"JJ\" Smith", "Multi\nLine", "", "Plain"};
+        String[] quoted = {"\"Doe, John\"", "\"Jane \"\"JJ\"\" Smith\"", "\"Multi\nLine\"", "\"\"", "Plain"};
+        for (int i = 0; i < 5000; i++) {
+            Employee employee = employee(i);
+            employee.setName(names[i % names.length]);
+            expected.add(employee);
+            csv.append(i).append(',').append(quoted[i % quoted.length]).append(',').append(employee.getAge())
+                    .append(',').append(employee.getSalary()).append(',').append(employee.getContractType())
+                    .append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        csv.append("\n");
+        Path file = tempDir.resolve("quoted.csv");
+        Files.writeString(file, csv);
+
+        CsvImporter importer = new CsvImporter();
+        assertEquals(expected, importer.importFromCsvAsync(file.toString(), Employee.class).get());
+
+        Path semicolons = tempDir.resolve("semicolons.csv");
+        Files.writeString(semicolons, "Name;Employee ID;Age;Salary;Contract Type\n'O\\'Brien; Pat';7;41;1.5;HOURLY");
+        Employee patrick = employee(7);
+        patrick.setName("O'Brien; Pat");
+        patrick.setAge(41);
+        patrick.setSalary(1.5);
+        patrick.setContractType(ContractType.HOURLY);
+        CsvImporter custom = new CsvImporter(CsvFormat.of(';', '\'', '\\'));
+        assertEquals(List.of(patrick), custom.importFromCsvAsync(semicolons.toString(), Employee.class).get());
+    }
+
+    @Test
+    public void testImportConvertsAllFieldTypes(@TempDir Path tempDir) throws Exception {
+        Path csv = tempDir.resolve("trades.csv");
+        Files.write(csv, List.of(
+                "Trade ID,Quantity,Flags,Price,Active,Side,Notional,Trade Date,Executed At,Venue,Currency,Status",
+                "9000000000,-12,7,19.25,true,B,12345.678901234567890,2024-02-29,2024-02-29T13:45:01,,EUR,F",
+                "-1,32767,-128,1.5E3,FALSE,S,-0.10,2023-12-31,2023-12-31T23:59:59.5,42,USD,x"));
+        List<Trade> expected = List.of(
+                Trade.of(9000000000L, (short) -12, (byte) 7, 19.25f, true, 'B', new BigDecimal("12345.678901234567890"),
+                        LocalDate.of(2024, 2, 29), LocalDateTime.of(2024, 2, 29, 13, 45, 1), null, Currency.getInstance("EUR"),
+                        Trade.Status.FILLED),
+                Trade.of(-1L, Short.MAX_VALUE, Byte.MIN_VALUE, 1500f, false, 'S', new BigDecimal("-0.10"),
+                        LocalDate.of(2023, 12, 31), LocalDateTime.of(2023, 12, 31, 23, 59, 59, 500_000_000), 42,
+                        Currency.getInstance("USD"), Trade.Status.CANCELLED));
+
+        ConverterRegistry converters = ConverterRegistry.defaults().with(Currency.class, (bytes, offset, length) ->
+                Currency.getInstance(new String(bytes, offset, length, StandardCharsets.US_ASCII)));
+        CsvImporter importer = new CsvImporter(CsvFormat.DEFAULT, converters);
+        assertEquals(expected, importer.importFromCsvAsync(csv.toString(), Trade.class).get());
+
+        String exported = tempDir.resolve("exported-trades.csv").toString();
+        new CsvExporter().exportToCsv(expected, exported).get();
+        assertEquals("-1,32767,-128,1500.0,false,S,-0.10,2023-12-31,2023-12-31T23:59:59.500,42,USD,X",
+                Files.readAllLines(Path.of(exported)).get(2));
+        assertEquals(expected, importer.importFromCsvAsync(exported, Trade.class).get());
+
+        // Doubles and floats are written as their shortest round-trip decimals, as Double.toString and Float.toString do
+        SplittableRandom random = new SplittableRandom(17);
+        double[] salaries = DoubleStream.concat(DoubleStream.of(0.0, -0.0, 1e7, 1e-3, 9.999e-4, 123456.789, Double.MIN_VALUE,
+                        Double.MAX_VALUE, Double.NaN, Double.NEGATIVE_INFINITY),
+                IntStream.range(0, 5000).mapToDouble(i -> i % 2 == 0 ? Double.longBitsToDouble(random.nextLong()) : random.nextDouble() * 1e6))
+                .toArray();
+        List<Employee> paid = IntStream.range(0, salaries.length).mapToObj(i -> {
+            Employee employee = employee(i);
+            employee.setSalary(salaries[i]);
+            return employee;
+        }).collect(Collectors.toList());
+        String doubles = tempDir.resolve("doubles.csv").toString();
+        new CsvExporter().exportToCsv(paid, doubles).get();
+        List<String> salaryLines = Files.readAllLines(Path.of(doubles));
+        for (int i = 0; i < salaries.length; i++) {
+            assertEquals(Double.toString(salaries[i]), salaryLines.get(i + 1).split(",")[3]);
+        }
+        assertEquals(paid, importer.importFromCsvAsync(doubles, Employee.class).get());
+        float[] prices = new float[5000];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = i % 2 == 0 ? Float.intBitsToFloat(random.nextInt()) : (float) random.nextDouble(1e5);
+        }
+        List<Trade> priced = IntStream.range(0, prices.length).mapToObj(i -> Trade.of(i, (short) 1, (byte) 1, prices[i], true, 'B', BigDecimal.ONE,
+                LocalDate.of(2024, 1, 1), LocalDateTime.of(2024, 1, 1, 0, 0), null, Currency.getInstance("EUR"), Trade.Status.NEW))
+                .collect(Collectors.toList());
+        String floats = tempDir.resolve("floats.csv").toString();
+        new CsvExporter().exportToCsv(priced, floats).get();
+        List<String> priceLines = Files.readAllLines(Path.of(floats));
+        for (int i = 0; i < prices.length; i++) {
+            assertEquals(Float.toString(prices[i]), priceLines.get(i + 1).split(",")[3]);
+        }
+    }
+
+    @Test
+    public void testEnumFromStringTakesPrecedence() {
+        // fromString is asked first; the case-insensitive labels only decode the values it rejects
+        CsvConverter<Shift> shifts = ConverterRegistry.enumConverter(Shift.class);
+        assertEquals(Shift.NIGHT, shifts.parse("late"));
+        assertEquals(Shift.NIGHT, shifts.parse("3"));
+        assertEquals(Shift.LATE, shifts.parse("LATE"));
+        assertEquals(Shift.EARLY, shifts.parse("Early"));
+        byte[] row = "x,late,y".getBytes(StandardCharsets.UTF_8);
+        assertEquals(Shift.NIGHT, shifts.parse(row, 2, 4));
+        assertThrows(IllegalArgumentException.class, () -> shifts.parse("-"));
+        assertThrows(IllegalArgumentException.class, () -> shifts.parse("Lunch"));
+
+        CsvConverter<Shift> labelled = ConverterRegistry.enumConverter(Shift.class, "E", "L", "N");
+        assertEquals(Shift.LATE, labelled.parse("l"));
+        assertEquals(Shift.NIGHT, labelled.parse("late"));
+        assertThrows(IllegalArgumentException.class, () -> labelled.parse("LATE"));
+    }
+
+    @Test
+    public void testImportParallel(@TempDir Path tempDir) throws Exception {
+        // Large enough for several chunks, with line breaks inside quoted fields around every cut
+        String[] names = {"Doe, John", "Jane \"JJ\" Smith", "Multi\nLine\n\"Name\"", "", "Plain"};
+        List<Employee> employees = IntStream.range(0, 120_000).mapToObj(i -> {
+            Employee employee = employee(i);
+            employee.setName(names[i % names.length] + i);
+            return employee;
+        }).collect(Collectors.toList());
+        StringBuilder csv = new StringBuilder("Employee ID,Name,Age,Salary,Contract Type\n");
+        for (Employee employee : employees) {
+            csv.append(employee.getId()).append(",\"").append(employee.getName().replace("\"", "\"\"")).append("\",")
+                    .append(employee.getAge()).append(',').append(employee.getSalary()).append(',')
+                    .append(employee.getContractType()).append('\n');
+        }
+        Path file = tempDir.resolve("parallel.csv");
+        Files.writeString(file, csv);
+
+        CsvImporter importer = new CsvImporter();
+        assertEquals(employees, importer.importFromCsvParallel(file.toString(), Employee.class).get());
+        try (Stream<Employee> stream = importer.importFromCsvParallelStream(file.toString(), Employee.class).get()) {
+            List<Employee> unordered = new ArrayList<>(stream.toList());
+            unordered.sort(Comparator.comparingInt(Employee::getId));
+            assertEquals(employees, unordered);
+        }
+    }
+
+    @Test
+    public void testVirtualThreadExecutor(@TempDir Path tempDir) throws Exception {
+        List<Employee> employees = IntStream.range(0, 100).mapToObj(CsvParseTest::employee).collect(Collectors.toList());
+        String fileName = tempDir.resolve("virtual.csv").toString();
+        new CsvExporter(CsvExecutors.virtualThreads()).exportToCsv(employees, fileName).get();
+
+        // Count the jobs running at once on top of the virtual-thread executor
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Executor limited = CsvExecutors.virtualThreads(4);
+        Executor counting = task -> limited.execute(() -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                task.run();
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+        CsvImporter importer = new CsvImporter(CsvFormat.DEFAULT, ConverterRegistry.defaults(), counting);
+        List<CompletableFuture<List<Employee>>> imports = IntStream.range(0, 200)
+                .mapToObj(i -> importer.importFromCsvAsync(fileName, Employee.class))
+                .collect(Collectors.toList());
+        for (CompletableFuture<List<Employee>> future : imports) {
+            assertEquals(employees, future.get());
+        }
+        assertTrue(maxRunning.get() <= 4);
+
+        CompletableFuture<List<Employee>> missing = importer.importFromCsvAsync(tempDir.resolve("missing.csv").toString(), Employee.class);
+        ExecutionException failure = assertThrows(ExecutionException.class, missing::get);
+        assertInstanceOf(UncheckedIOException.class, failure.getCause());
+    }
+
+    @Test
+    public void testGeneratedCodec(@TempDir Path tempDir) throws Exception {
+        Class<?> codecClass = Class.forName("Employee_CsvCodec");
+        CsvCodec<?> codec = (CsvCodec<?>) codecClass.getConstructor(ConverterRegistry.class).newInstance(ConverterRegistry.defaults());
+        assertEquals(List.of("Employee ID", "Name", "Age", "Salary", "Contract Type"), codec.headers());
+
+        List<Employee> employees = IntStream.range(0, 100).mapToObj(CsvParseTest::employee).collect(Collectors.toList());
+        String fileName = tempDir.resolve("generated.csv").toString();
+        new CsvExporter().exportToCsv(employees, fileName).get();
+        assertEquals(employees, new CsvImporter().importFromCsvAsync(fileName, Employee.class).get());
+
+        // Replacing a built-in converter falls back to reflective binding, which honours it
+        ConverterRegistry doubled = ConverterRegistry.defaults().with(int.class, (bytes, offset, length) ->
+                2 * Integer.parseInt(new String(bytes, offset, length, StandardCharsets.US_ASCII)));
+        List<Employee> imported = new CsvImporter(CsvFormat.DEFAULT, doubled).importFromCsvAsync(fileName, Employee.class).get();
+        assertEquals(2 * employees.get(7).getAge(), imported.get(7).getAge());
+    }
+
+    @Test
+    public void testImportQuery(@TempDir Path tempDir) throws Exception {
+        List<Employee> employees = IntStream.range(0, 3000).mapToObj(CsvParseTest::employee).collect(Collectors.toList());
+        List<String> lines = new ArrayList<>(List.of("Employee ID,Name,Age,Salary,Contract Type,Status"));
+        for (Employee employee : employees) {
+            lines.add(employee.getId() + ",\"" + employee.getName() + "\"," + employee.getAge() + "," + employee.getSalary()
+                    + "," + employee.getContractType() + "," + (employee.getId() % 2 == 0 ? "ACTIVE" : "RETIRED"));
+        }
+        Path file = tempDir.resolve("query.csv");
+        Files.write(file, lines);
+
+        // Filter on a column the class does not map and on a converted value, converting only two fields
+        CsvQuery query = CsvQuery.all()
+                .select("Employee ID", "Contract Type")
+                .whereEquals("Status", "ACTIVE")
+                .where("Age", ConverterRegistry.defaults().require(int.class), age -> age >= 50);
+        List<Employee> expected = employees.stream()
+                .filter(e -> e.getId() % 2 == 0 && e.getAge() >= 50)
+                .map(e -> {
+                    Employee projected = new Employee();
+                    projected.setId(e.getId());
+                    projected.setContractType(e.getContractType());
+                    return projected;
+                })
+                .collect(Collectors.toList());
+        assertFalse(expected.isEmpty());
+
+        CsvImporter importer = new CsvImporter();
+        assertEquals(expected, importer.importFromCsvAsync(file.toString(), Employee.class, query).get());
+        assertEquals(expected, importer.importFromCsvParallel(file.toString(), Employee.class, query).get());
+        try (Stream<Employee> stream = importer.importFromCsvStream(file.toString(), Employee.class, query).get()) {
+            assertEquals(expected, stream.parallel().collect(Collectors.toList()));
+        }
+
+        // Raw predicates see the unquoted bytes of the field
+        CsvQuery raw = CsvQuery.all().where("Name", (bytes, offset, length) -> bytes[offset + length - 1] == '7');
+        assertEquals(300, importer.importFromCsvAsync(file.toString(), Employee.class, raw).get().size());
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                importer.importFromCsvAsync(file.toString(), Employee.class, CsvQuery.all().whereEquals("Unknown", "x"))::get);
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+    }
+
+    @Test
+    public void testForEach(@TempDir Path tempDir) throws Exception {
+        List<Employee> employees = IntStream.range(0, 5000).mapToObj(CsvParseTest::employee).collect(Collectors.toList());
+        String fileName = tempDir.resolve("visit.csv").toString();
+        new CsvExporter().exportToCsv(employees, fileName).get();
+        double expected = employees.stream().mapToDouble(Employee::getSalary).sum();
+        CsvImporter importer = new CsvImporter();
+
+        // One instance is refilled for every row
+        DoubleAdder total = new DoubleAdder();
+        Set<Employee> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        assertEquals(5000L, importer.forEach(fileName, Employee.class, employee -> {
+            total.add(employee.getSalary());
+            instances.add(employee);
+        }).get());
+        assertEquals(expected, total.sum(), 1e-6);
+        assertEquals(1, instances.size());
+
+        DoubleAdder parallelTotal = new DoubleAdder();
+        assertEquals(5000L, importer.forEachParallel(fileName, Employee.class, employee -> parallelTotal.add(employee.getSalary())).get());
+        assertEquals(expected, parallelTotal.sum(), 1e-6);
+
+        DoubleAdder rowTotal = new DoubleAdder();
+        assertEquals(5000L, importer.forEachRow(fileName, row -> rowTotal.add(row.getDouble(3))).get());
+        assertEquals(expected, rowTotal.sum(), 1e-6);
+    }
+
+    @Test
+    public void testExportParallel(@TempDir Path tempDir) throws Exception {
+        List<Employee> employees = IntStream.range(0, 50_000).mapToObj(i -> {
+            Employee employee = employee(i);
+            employee.setName("Empl\u00f8y\u00e9 \u20ac" + i);
+            return employee;
+        }).collect(Collectors.toList());
+        Path sequential = tempDir.resolve("sequential.csv");
+        Path parallel = tempDir.resolve("parallel.csv");
+        CsvExporter exporter = new CsvExporter();
+        exporter.exportToCsv(employees, sequential.toString()).get();
+        exporter.exportToCsvParallel(employees, parallel.toString()).get();
+
+        assertArrayEquals(Files.readAllBytes(sequential), Files.readAllBytes(parallel));
+        assertEquals(employees, new CsvImporter().importFromCsvAsync(parallel.toString(), Employee.class).get());
+    }
+
+    @Test
+    public void testExportQuotesFields(@TempDir Path tempDir) throws Exception {
+        String[] names = {"Doe, John", "Jane \"JJ\" Smith", "Multi\r\nLine", "Z\u00fcrich \uD83D\uDE00", ""};
+        List<Employee> employees = IntStream.range(0, names.length).mapToObj(i -> {
+            Employee employee = employee(i);
+            employee.setName(names[i]);
+            employee.setSalary(new double[]{0.1, 1234567.89, 1e-5, 2.5e9, -0.0}[i]);
+            return employee;
+        }).collect(Collectors.toList());
+        Path file = tempDir.resolve("quoted-export.csv");
+        new CsvExporter().exportToCsv(employees, file.toString()).get();
+
+        String csv = Files.readString(file, StandardCharsets.UTF_8);
+        String separator = System.lineSeparator();
+        assertTrue(csv.contains(separator + "0,\"Doe, John\",20,0.1,FULLTIME" + separator), csv);
+        assertTrue(csv.contains(separator + "1,\"Jane \"\"JJ\"\" Smith\",21,1234567.89,PART_TIME" + separator), csv);
+        assertTrue(csv.contains(separator + "3,Z\u00fcrich \uD83D\uDE00,23,2.5E9,FULLTIME" + separator), csv);
+        assertTrue(csv.endsWith(separator + "4,,24,-0.0,PART_TIME" + separator), csv);
+        assertEquals(employees, new CsvImporter().importFromCsvAsync(file.toString(), Employee.class).get());
+    }
+
+    @Test
+    public void testCompressedFiles(@TempDir Path tempDir) throws Exception {
+        List<Employee> employees = IntStream.range(0, 30_000).mapToObj(CsvParseTest::employee).collect(Collectors.toList());
+        CsvExporter exporter = new CsvExporter();
+        CsvImporter importer = new CsvImporter();
+        Path plain = tempDir.resolve("plain.csv");
+        exporter.exportToCsv(employees, plain.toString()).get();
+        byte[] expected = Files.readAllBytes(plain);
+
+        // Parallel gzip export writes one member per chunk
+        String members = tempDir.resolve("members.csv.gz").toString();
+        exporter.exportToCsvParallel(employees, members).get();
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(Path.of(members)))) {
+            assertArrayEquals(expected, in.readAllBytes());
+        }
+        assertEquals(employees, importer.importFromCsvAsync(members, Employee.class).get());
+        assertEquals(employees, importer.importFromCsvParallel(members, Employee.class).get());
+
+        String gzip = tempDir.resolve("stream.csv.gz").toString();
+        exporter.exportToCsv(employees.stream(), Employee.class, gzip).get();
+        String zlib = tempDir.resolve("stream.csv.zz").toString();
+        exporter.exportToCsv(employees, zlib).get();
+        try (InputStream in = new InflaterInputStream(Files.newInputStream(Path.of(zlib)))) {
+            assertArrayEquals(expected, in.readAllBytes());
+        }
+        try (Stream<Employee> stream = importer.importFromCsvStream(zlib, Employee.class).get()) {
+            assertEquals(employees, stream.collect(Collectors.toList()));
+        }
+
+        // Gzip is detected from its magic bytes whatever the file is called
+        Path renamed = tempDir.resolve("renamed.csv");
+        Files.move(Path.of(gzip), renamed);
+        assertEquals(employees, importer.importFromCsvAsync(renamed.toString(), Employee.class).get());
+    }
+
+    @Test
+    public void testRowIndex(@TempDir Path tempDir) throws Exception {
+        List<Employee> employees = IntStream.range(0, 20_000).mapToObj(CsvParseTest::employee).collect(Collectors.toList());
+        String fileName = tempDir.resolve("indexed.csv").toString();
+        new CsvExporter().exportToCsv(employees, fileName).get();
+        CsvImporter importer = new CsvImporter();
+
+        // Ranges and resumed streams are read by skipping rows when there is no index
+        assertEquals(employees.subList(12_345, 12_400), importer.importRange(fileName, Employee.class, 12_345, 12_400).get());
+        assertFalse(Files.exists(Path.of(fileName + ".idx")));
+
+        // A full import with indexing enabled writes the sidecar index
+        assertEquals(employees, importer.withIndex(100).importFromCsvAsync(fileName, Employee.class).get());
+        CsvIndex index = CsvIndex.load(fileName, CsvFormat.DEFAULT).orElseThrow();
+        assertEquals(20_000, index.rowCount());
+        assertEquals(100, index.interval());
+
+        assertEquals(employees.subList(12_345, 12_400), importer.importRange(fileName, Employee.class, 12_345, 12_400).get());
+        assertEquals(employees.subList(19_990, 20_000), importer.importRange(fileName, Employee.class, 19_990, 30_000).get());
+        assertEquals(List.of(), importer.importRange(fileName, Employee.class, 25_000, 26_000).get());
+        try (Stream<Employee> stream = importer.importFromCsvStream(fileName, Employee.class, 15_000).get()) {
+            assertEquals(employees.subList(15_000, 20_000), stream.collect(Collectors.toList()));
+        }
+        assertEquals(employees, importer.importFromCsvParallel(fileName, Employee.class).get());
+        assertEquals(index.rowCount(), importer.buildIndex(fileName, 7).get().rowCount());
+        assertEquals(7, CsvIndex.load(fileName, CsvFormat.DEFAULT).orElseThrow().interval());
+        assertThrows(IllegalArgumentException.class, () -> importer.importRange(fileName, Employee.class, 10, 5));
+
+        // Changing the file invalidates the index
+        Files.writeString(Path.of(fileName), "1,Late,30,1.0,FULLTIME" + System.lineSeparator(), StandardOpenOption.APPEND);
+        assertTrue(CsvIndex.load(fileName, CsvFormat.DEFAULT).isEmpty());
+        assertEquals(employees.subList(19_999, 20_000), importer.importRange(fileName, Employee.class, 19_999, 20_000).get());
+    }
+
+    @Test
+    public void testTail(@TempDir Path tempDir) throws Exception {
+        Path path = tempDir.resolve("appended.csv");
+        String nl = System.lineSeparator();
+        Files.writeString(path, "Employee ID,Name,Age,Salary,Contract Type" + nl + "1,Ann,30,100.0,FULLTIME" + nl + "2,Bo");
+        CsvImporter importer = new CsvImporter();
+
+        try (CsvTail<Employee> tail = importer.tail(path.toString(), Employee.class)) {
+            assertEquals(List.of(1), tail.poll().stream().map(Employee::getId).toList());
+            assertEquals(List.of(), tail.poll());
+            // The record that was being written is imported once it is complete
+            Files.writeString(path, "b,41,200.0,HOURLY" + nl + "3,\"Cy" + nl, StandardOpenOption.APPEND);
+            assertEquals(List.of(2), tail.poll().stream().map(Employee::getId).toList());
+            Files.writeString(path, "\",52,300.0,PART_TIME" + nl, StandardOpenOption.APPEND);
+            List<Employee> rows = tail.poll();
+            assertEquals(1, rows.size());
+            assertEquals("Cy" + nl, rows.get(0).getName());
+            assertEquals(Files.size(path), tail.offset());
+        }
+
+        // Resume from a saved offset and follow the file as it grows
+        long offset = Files.size(path);
+        BlockingQueue<Employee> received = new LinkedBlockingQueue<>();
+        try (CsvTail<Employee> tail = importer.tail(path.toString(), Employee.class, offset)) {
+            CompletableFuture<Long> following = tail.follow(received::add);
+            for (int i = 4; i < 7; i++) {
+                Files.writeString(path, i + ",Dee,25,10.0,HOURLY" + nl, StandardOpenOption.APPEND);
+                assertEquals(i, received.poll(10, TimeUnit.SECONDS).getId());
+            }
+            tail.close();
+            assertEquals(3, following.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testColumnarCache(@TempDir Path tempDir) throws Exception {
+        Path cacheDir = tempDir.resolve("cache");
+        Path csv = tempDir.resolve("trades.csv");
+        List<String> lines = new ArrayList<>(List.of("Trade ID,Quantity,Flags,Price,Active,Side,Notional,Trade Date,Executed At,Venue,Currency,Status"));
+        List<Trade> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            lines.add("9000000000,-12,7,19.25,true,B,12345.678901234567890,2024-02-29,2024-02-29T13:45:01,,EUR,F");
+            lines.add("-1,32767,-128,1.5E3,FALSE,S,-0.10,2023-12-31,2023-12-31T23:59:59.5,42,USD,x");
+            lines.add("bad,1,1,1,true,B,1,2024-01-01,2024-01-01T00:00,,EUR,F");
+            expected.add(Trade.of(9000000000L, (short) -12, (byte) 7, 19.25f, true, 'B', new BigDecimal("12345.678901234567890"),
+                    LocalDate.of(2024, 2, 29), LocalDateTime.of(2024, 2, 29, 13, 45, 1), null, Currency.getInstance("EUR"),
+                    Trade.Status.FILLED));
+            expected.add(Trade.of(-1L, Short.MAX_VALUE, Byte.MIN_VALUE, 1500f, false, 'S', new BigDecimal("-0.10"),
+                    LocalDate.of(2023, 12, 31), LocalDateTime.of(2023, 12, 31, 23, 59, 59, 500_000_000), 42,
+                    Currency.getInstance("USD"), Trade.Status.CANCELLED));
+            expected.add(null);
+        }
+        Files.write(csv, lines);
+        ConverterRegistry converters = ConverterRegistry.defaults().with(Currency.class, (bytes, offset, length) ->
+                Currency.getInstance(new String(bytes, offset, length, StandardCharsets.US_ASCII)));
+        CsvImporter importer = new CsvImporter(CsvFormat.DEFAULT, converters).withCache(cacheDir);
+
+        assertEquals(expected, importer.importFromCsvAsync(csv.toString(), Trade.class).get());
+        try (Stream<Path> images = Files.list(cacheDir)) {
+            assertEquals(1, images.filter(p -> p.toString().endsWith(".cols")).count());
+        }
+        assertEquals(expected, importer.importFromCsvAsync(csv.toString(), Trade.class).get());
+        assertEquals(expected, importer.importFromCsvParallel(csv.toString(), Trade.class).get());
+
+        // Strings come from the dictionary of the image and are shared between rows
+        List<Employee> employees = IntStream.range(0, 100).mapToObj(CsvParseTest::employee).collect(Collectors.toList());
+        employees.forEach(e -> e.setName("Team " + e.getId() % 10));
+        Path people = tempDir.resolve("people.csv");
+        new CsvExporter().exportToCsv(employees, people.toString()).get();
+        CsvImporter cached = new CsvImporter().withCache(cacheDir);
+        assertEquals(employees, cached.importFromCsvAsync(people.toString(), Employee.class).get());
+        List<Employee> loaded = cached.importFromCsvAsync(people.toString(), Employee.class).get();
+        assertEquals(employees, loaded);
+        assertTrue(loaded.get(3).getName() == loaded.get(13).getName());
+
+        // Content changes are detected even when the size and modification time are kept
+        FileTime modified = Files.getLastModifiedTime(people);
+        Files.writeString(people, Files.readString(people).replace("Team 3", "Team 4"));
+        Files.setLastModifiedTime(people, modified);
+        employees.stream().filter(e -> e.getName().equals("Team 3")).forEach(e -> e.setName("Team 4"));
+        assertEquals(employees, cached.importFromCsvAsync(people.toString(), Employee.class).get());
+    }
+
+    @Test
+    public void testStringDedup(@TempDir Path tempDir) throws Exception {
+        List<TeamMember> members = IntStream.range(0, 20_000).mapToObj(i -> new TeamMember(i, "Member " + i, "Team " + i % 10))
+                .collect(Collectors.toList());
+        Path teams = tempDir.resolve("teams.csv");
+        new CsvExporter().exportToCsv(members, teams.toString()).get();
+
+        // Generated codec, reflective binding and parallel chunks all share the values of the column
+        ConverterRegistry reflective = ConverterRegistry.defaults().with(String.class, (bytes, offset, length) ->
+                new String(bytes, offset, length, StandardCharsets.UTF_8));
+        for (CsvImporter importer : List.of(new CsvImporter(), new CsvImporter(CsvFormat.DEFAULT, ConverterRegistry.defaults().with(BigDecimal.class,
+                (bytes, offset, length) -> new BigDecimal(new String(bytes, offset, length, StandardCharsets.US_ASCII)))))) {
+            for (List<TeamMember> loaded : List.of(importer.importFromCsvAsync(teams.toString(), TeamMember.class).get(),
+                    importer.importFromCsvParallel(teams.toString(), TeamMember.class).get())) {
+                assertEquals(members, loaded);
+                Set<String> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+                loaded.forEach(m -> distinct.add(m.getTeam()));
+                assertEquals(10, distinct.size());
+            }
+        }
+        // A registry replacing the String conversion decodes every value itself
+        List<TeamMember> plain = new CsvImporter(CsvFormat.DEFAULT, reflective).importFromCsvAsync(teams.toString(), TeamMember.class).get();
+        assertEquals(members, plain);
+        assertFalse(plain.get(3).getTeam() == plain.get(13).getTeam());
+
+        // Once a column has too many distinct values its Strings are decoded plainly
+        CsvConverter<String> dictionary = ConverterRegistry.stringDictionary(4);
+        byte[] bytes = "a,b,c,d,e,a".getBytes(StandardCharsets.US_ASCII);
+        String a = dictionary.parse(bytes, 0, 1);
+        assertTrue(a == dictionary.parse(bytes, 10, 1));
+        for (int i = 2; i <= 8; i += 2) {
+            dictionary.parse(bytes, i, 1);
+        }
+        assertEquals("a", dictionary.parse(bytes, 10, 1));
+        assertFalse(a == dictionary.parse(bytes, 10, 1));
+    }
+
+    @Test
+    public void testPipeline(@TempDir Path tempDir) throws Exception {
+        List<Employee> employees = IntStream.range(0, 50_000).mapToObj(CsvParseTest::employee).collect(Collectors.toList());
+        // Records spanning blocks and outgrowing the bytes of a batch
+        employees.get(7).setName("Line\nbreak, \"quoted\"");
+        employees.get(40_000).setName("x".repeat(200_000));
+        String fileName = tempDir.resolve("pipeline.csv").toString();
+        String gzip = tempDir.resolve("pipeline.csv.gz").toString();
+        CsvExporter exporter = new CsvExporter();
+        exporter.exportToCsv(employees, fileName).get();
+        exporter.exportToCsv(employees, gzip).get();
+
+        CsvImporter importer = new CsvImporter().withPipeline(3);
+        assertEquals(employees, importer.importFromCsvAsync(fileName, Employee.class).get());
+        assertEquals(employees, importer.importFromCsvAsync(gzip, Employee.class).get());
+        assertEquals(employees, new CsvImporter().importFromCsvParallel(gzip, Employee.class).get());
+
+        CsvQuery query = CsvQuery.all().where("Age", ConverterRegistry.defaults().require(int.class), age -> age == 33);
+        List<Employee> expected = employees.stream().filter(e -> e.getAge() == 33).collect(Collectors.toList());
+        assertEquals(expected, importer.withPipeline(1).importFromCsvAsync(gzip, Employee.class, query).get());
+
+        List<Integer> ids = Collections.synchronizedList(new ArrayList<>());
+        assertEquals(50_000L, new CsvImporter().forEachParallel(gzip, Employee.class, employee -> ids.add(employee.getId())).get());
+        assertEquals(IntStream.range(0, 50_000).boxed().collect(Collectors.toList()), ids);
+
+        // The read stage indexes plain files like a sequential import
+        assertEquals(employees, importer.withIndex(1000).importFromCsvAsync(fileName, Employee.class).get());
+        assertEquals(50_000, CsvIndex.load(fileName, CsvFormat.DEFAULT).orElseThrow().rowCount());
+
+        // The stages run as tasks of a configurable executor
+        AtomicInteger stages = new AtomicInteger();
+        Executor executor = CsvExecutors.virtualThreads();
+        CsvImporter counted = new CsvImporter().withPipeline(2, task -> {
+            stages.incrementAndGet();
+            executor.execute(task);
+        });
+        assertEquals(employees, counted.importFromCsvAsync(gzip, Employee.class).get());
+        assertEquals(4, stages.get());
+
+        assertThrows(IllegalArgumentException.class, () -> importer.withPipeline(0));
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                importer.importFromCsvAsync(tempDir.resolve("missing.csv").toString(), Employee.class)::get);
+        assertInstanceOf(UncheckedIOException.class, failure.getCause());
+    }
+
+    @Test
+    public void testMetrics(@TempDir Path tempDir) throws Exception {
+        List<Employee> employees = IntStream.range(0, 20_000).mapToObj(CsvParseTest::employee).collect(Collectors.toList());
+        Path path = tempDir.resolve("metered.csv");
+        String fileName = path.toString();
+        BlockingQueue<CsvStats> completed = new LinkedBlockingQueue<>();
+        Map<CsvStage, LongAdder> batchRows = new ConcurrentHashMap<>();
+        CsvMetrics metrics = new CsvMetrics() {
+            @Override
+            public void batch(String file, CsvStage stage, int rows, long nanos, int queueDepth) {
+                batchRows.computeIfAbsent(stage, s -> new LongAdder()).add(rows);
+            }
+
+            @Override
+            public void completed(CsvStats stats) {
+                completed.add(stats);
+            }
+        };
+
+        new CsvExporter().withMetrics(metrics).exportToCsv(employees, fileName).get();
+        CsvStats export = completed.remove();
+        assertEquals(CsvStats.Operation.EXPORT, export.operation());
+        assertEquals(20_000, export.rows());
+        assertEquals(Files.size(path), export.bytes());
+        assertTrue(export.nanos(CsvStage.ENCODE) > 0 && export.nanos(CsvStage.WRITE) > 0);
+        Files.writeString(path, "x,Bad,1,1.0,FULLTIME" + System.lineSeparator(), StandardOpenOption.APPEND);
+
+        // Every import path reports the same totals; pipelines and parallel imports also report batches
+        CsvImporter importer = new CsvImporter().withMetrics(metrics);
+        importer.importFromCsvAsync(fileName, Employee.class).get();
+        importer.withPipeline(2).importFromCsvAsync(fileName, Employee.class).get();
+        importer.importFromCsvParallel(fileName, Employee.class).get();
+        importer.forEach(fileName, Employee.class, employee -> { }).get();
+        for (int i = 0; i < 4; i++) {
+            CsvStats stats = completed.remove();
+            assertEquals(CsvStats.Operation.IMPORT, stats.operation());
+            assertEquals(fileName, stats.fileName());
+            assertEquals(20_001, stats.rows());
+            assertEquals(1, stats.failedRows());
+            assertEquals(Files.size(path), stats.bytes());
+            assertTrue(stats.nanos(CsvStage.TOKENIZE) > 0 && stats.nanos(CsvStage.MAP) > 0, stats.toString());
+            assertTrue(stats.rowsPerSecond() > 0);
+        }
+        assertEquals(2 * 20_001, batchRows.get(CsvStage.TOKENIZE).sum());
+        assertEquals(2 * 20_001, batchRows.get(CsvStage.MAP).sum());
+
+        String gzip = tempDir.resolve("metered.csv.gz").toString();
+        new CsvExporter().withMetrics(metrics).exportToCsvParallel(employees, gzip).get();
+        assertEquals(export.bytes(), completed.remove().bytes());
+        assertEquals(20_000, batchRows.get(CsvStage.WRITE).sum());
+        assertTrue(completed.isEmpty());
+
+        // Without a listener the totals are still recorded as Flight Recorder events
+        Path dump = tempDir.resolve("csv.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.rajnat.csv.File");
+            recording.start();
+            new CsvImporter().importFromCsvAsync(fileName, Employee.class).get();
+            recording.stop();
+            recording.dump(dump);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump).stream()
+                .filter(e -> e.getEventType().getName().equals("org.rajnat.csv.File"))
+                .toList();
+        assertEquals(1, events.size());
+        assertEquals("IMPORT", events.get(0).getString("operation"));
+        assertEquals(20_001, events.get(0).getLong("rows"));
+        assertEquals(1, events.get(0).getLong("failedRows"));
+    }
+
+    @Test
+    public void testErrorPolicy(@TempDir Path tempDir) throws Exception {
+        List<Employee> employees = IntStream.range(0, 1000).mapToObj(CsvParseTest::employee).collect(Collectors.toList());
+        Path path = tempDir.resolve("errors.csv");
+        String fileName = path.toString();
+        new CsvExporter().exportToCsv(employees, fileName).get();
+        // Every hundredth row has an invalid ID
+        List<String> lines = new ArrayList<>(Files.readAllLines(path));
+        long[] offsets = new long[lines.size()];
+        for (int i = 1; i < lines.size(); i++) {
+            offsets[i] = offsets[i - 1] + lines.get(i - 1).length() + System.lineSeparator().length();
+            if (i % 100 == 0) {
+                lines.set(i, "x" + lines.get(i));
+            }
+        }
+        Files.write(path, lines);
+
+        List<CsvError> errors = Collections.synchronizedList(new ArrayList<>());
+        CsvImporter importer = new CsvImporter().withErrorPolicy(CsvErrorPolicy.defaults().skipFailed().onError(errors::add));
+        List<Employee> imported = importer.importFromCsvAsync(fileName, Employee.class).get();
+        assertEquals(990, imported.size());
+        assertFalse(imported.contains(null));
+        assertEquals(10, errors.size());
+        CsvError first = errors.get(0);
+        assertEquals(fileName, first.fileName());
+        assertEquals(99, first.row());
+        assertEquals(offsets[100], first.offset());
+        assertEquals("x99", first.fields().get(0));
+        assertInstanceOf(NumberFormatException.class, first.cause());
+        assertEquals(0, first.cause().getStackTrace().length);
+
+        // Pipelined, parallel and streamed imports drop the same rows
+        errors.clear();
+        assertEquals(990, importer.withPipeline(2).importFromCsvAsync(fileName, Employee.class).get().size());
+        assertEquals(LongStream.range(0, 10).map(i -> i * 100 + 99).boxed().toList(), errors.stream().map(CsvError::row).toList());
+        errors.clear();
+        assertEquals(990, importer.importFromCsvParallel(fileName, Employee.class).get().size());
+        assertEquals(10, errors.size());
+        try (Stream<Employee> stream = importer.importFromCsvStream(fileName, Employee.class).get()) {
+            assertEquals(990, stream.count());
+        }
+        // Parallel streams map batches after the reader reached the end of the file
+        errors.clear();
+        try (Stream<Employee> stream = importer.importFromCsvStream(fileName, Employee.class).get()) {
+            assertEquals(990, stream.parallel().toList().size());
+            assertEquals(LongStream.range(0, 10).map(i -> i * 100 + 99).boxed().toList(),
+                    errors.stream().map(CsvError::row).sorted().toList());
+        }
+        assertEquals(10, new CsvImporter().importFromCsvAsync(fileName, Employee.class).get().stream().filter(e -> e == null).count());
+
+        // The dead-letter file keeps the input columns, so that fixed rows can be imported again
+        Path rejected = tempDir.resolve("errors.csv" + CsvErrorPolicy.DEAD_LETTER_SUFFIX);
+        CsvImporter deadLetter = new CsvImporter().withErrorPolicy(CsvErrorPolicy.defaults().deadLetter().logFirst(0));
+        deadLetter.importFromCsvAsync(fileName, Employee.class).get();
+        List<String> rejectedLines = Files.readAllLines(rejected);
+        assertEquals(11, rejectedLines.size());
+        assertEquals("Row,Offset,Error," + lines.get(0), rejectedLines.get(0));
+        assertTrue(rejectedLines.get(1).startsWith("99," + offsets[100] + ",\"java.lang.NumberFormatException: "), rejectedLines.get(1));
+        assertTrue(rejectedLines.get(1).endsWith(lines.get(100)), rejectedLines.get(1));
+        Files.write(rejected, rejectedLines.stream().map(line -> line.replace(",x", ",")).toList());
+        assertEquals(10, new CsvImporter().importFromCsvAsync(rejected.toString(), Employee.class).get().stream().filter(e -> e != null).count());
+        Path valid = tempDir.resolve("valid.csv");
+        new CsvExporter().exportToCsv(employees, valid.toString()).get();
+        Files.writeString(tempDir.resolve("valid.csv" + CsvErrorPolicy.DEAD_LETTER_SUFFIX), "stale");
+        deadLetter.importFromCsvAsync(valid.toString(), Employee.class).get();
+        assertFalse(Files.exists(tempDir.resolve("valid.csv" + CsvErrorPolicy.DEAD_LETTER_SUFFIX)));
+
+        // Imports abort after too many failed rows or above a share of them
+        CsvImporter abortAfter = new CsvImporter().withErrorPolicy(CsvErrorPolicy.defaults().abortAfter(5));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> abortAfter.importFromCsvAsync(fileName, Employee.class).get());
+        assertInstanceOf(CsvErrorLimitException.class, e.getCause());
+        e = assertThrows(ExecutionException.class, () -> abortAfter.withPipeline(2).importFromCsvAsync(fileName, Employee.class).get());
+        assertInstanceOf(CsvErrorLimitException.class, e.getCause());
+        e = assertThrows(ExecutionException.class, () -> abortAfter.forEachParallel(fileName, Employee.class, employee -> { }).get());
+        assertInstanceOf(CsvErrorLimitException.class, e.getCause());
+        assertEquals(990, new CsvImporter().withErrorPolicy(CsvErrorPolicy.defaults().abortAbove(0.02, 100))
+                .forEach(fileName, Employee.class, employee -> { }).get());
+        CsvImporter abortAbove = new CsvImporter().withErrorPolicy(CsvErrorPolicy.defaults().abortAbove(0.005, 100));
+        e = assertThrows(ExecutionException.class, () -> abortAbove.forEach(fileName, Employee.class, employee -> { }).get());
+        assertInstanceOf(CsvErrorLimitException.class, e.getCause());
+        e = assertThrows(ExecutionException.class, () -> abortAbove.importFromCsvParallel(fileName, Employee.class).get());
+        assertInstanceOf(CsvErrorLimitException.class, e.getCause());
+
+        // Floating-point, decimal and date-time fields that only the JDK parsers reject fail without a stack trace too
+        Path salaries = tempDir.resolve("salaries.csv");
+        Files.write(salaries, List.of(lines.get(0), "1,Ann,30,abc,FULLTIME", "2,Bob,31,n/a,FULLTIME", "3,Cid,32,1e400e,FULLTIME",
+                "4,Dee,33,1250.5,FULLTIME"));
+        errors.clear();
+        List<Employee> paid = importer.importFromCsvAsync(salaries.toString(), Employee.class).get();
+        assertEquals(List.of(4), paid.stream().map(Employee::getId).toList());
+        Path trades = tempDir.resolve("trades.csv");
+        String trade = "1,2,3,19.25,true,B,1.5,2024-02-29,2024-02-29T13:45:01,,EUR,F";
+        Files.write(trades, List.of("Trade ID,Quantity,Flags,Price,Active,Side,Notional,Trade Date,Executed At,Venue,Currency,Status", trade,
+                trade.replace("19.25", "n/a"), trade.replace("19.25", "abc"), trade.replace("1.5", "1.2.3"),
+                trade.replace("1.5", "x"), trade.replace("2024-02-29,", "2024-13-45,"), trade.replace("2024-02-29,", "2023-02-29,"),
+                trade.replace("2024-02-29,", "29/02/2024,"), trade.replace("T13:45:01", "T25:00:00"), trade.replace("T13:45:01", "T13:45")
+                        .replace("2024-02-29T", "2024-02-30T")));
+        ConverterRegistry currencies = ConverterRegistry.defaults().with(Currency.class, (bytes, offset, length) ->
+                Currency.getInstance(new String(bytes, offset, length, StandardCharsets.US_ASCII)));
+        List<Trade> traded = new CsvImporter(CsvFormat.DEFAULT, currencies).withErrorPolicy(CsvErrorPolicy.defaults().skipFailed().onError(errors::add))
+                .importFromCsvAsync(trades.toString(), Trade.class).get();
+        assertEquals(1, traded.size());
+        assertEquals(12, errors.size());
+        for (CsvError error : errors) {
+            assertEquals(0, error.cause().getStackTrace().length, error.cause().toString());
+        }
+    }
+
+    @Test
+    public void testBatches(@TempDir Path tempDir) throws Exception {
+        List<Employee> employees = IntStream.range(0, 2500).mapToObj(CsvParseTest::employee).collect(Collectors.toList());
+        String fileName = tempDir.resolve("batches.csv").toString();
+        new CsvExporter().exportToCsv(employees, fileName).get();
+        CsvImporter importer = new CsvImporter();
+
+        // Batches are collected in one recycled list, also when a pipeline maps the rows ahead
+        for (CsvImporter batched : List.of(importer, importer.withPipeline(2))) {
+            List<Integer> sizes = new ArrayList<>();
+            List<Employee> rows = new ArrayList<>();
+            Set<List<?>> containers = Collections.newSetFromMap(new IdentityHashMap<>());
+            assertEquals(2500, batched.forEachBatch(fileName, Employee.class, 1000, batch -> {
+                sizes.add(batch.size());
+                rows.addAll(batch);
+                containers.add(batch);
+            }).get());
+            assertEquals(List.of(1000, 1000, 500), sizes);
+            assertEquals(employees, rows);
+            assertEquals(1, containers.size());
+        }
+
+        // A byte budget ends batches before they reach their number of rows
+        List<Integer> sizes = new ArrayList<>();
+        importer.forEachBatch(fileName, Employee.class, CsvQuery.all(), CsvBatchSize.rows(1000).withMaxBytes(10_000),
+                batch -> sizes.add(batch.size())).get();
+        assertEquals(2500, sizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(sizes.size() > 3 && sizes.stream().allMatch(size -> size > 0 && size < 1000), sizes.toString());
+
+        try (Stream<List<Employee>> batches = importer.importBatches(fileName, Employee.class, 1000).get()) {
+            List<List<Employee>> list = batches.toList();
+            assertEquals(List.of(1000, 1000, 500), list.stream().map(List::size).toList());
+            assertEquals(employees, list.stream().flatMap(List::stream).toList());
+        }
+        // Batch lists grow with their rows instead of being allocated for the maximum number of them
+        try (Stream<List<Employee>> batches = importer.importBatches(fileName, Employee.class, Integer.MAX_VALUE).get()) {
+            assertEquals(List.of(employees), batches.toList());
+        }
+        assertEquals(2500, importer.forEachBatch(fileName, Employee.class, CsvQuery.all(),
+                CsvBatchSize.rows(Integer.MAX_VALUE - 8).withMaxBytes(4 << 20), batch -> { }).get());
+        assertThrows(IllegalArgumentException.class, () -> importer.importBatches(fileName, Employee.class, 0));
+    }
+
+    private static Employee employee(int i) {
+        Employee employee = new Employee();
+        employee.setId(i);
+        employee.setName("Employee " + i);
+        employee.setAge(20 + i % 40);
+        employee.setSalary(40000.0 + i * 12.5);
+        employee.setContractType(ContractType.values()[i % ContractType.values().length]);
+        return employee;
+    }
 }
@@ -0,0 +1,18 @@
+public enum Shift {
+    EARLY,
+    LATE,
+    NIGHT;
+
+    /**
+     * Reads the codes of the old rota export, which wrote the night shift as "late" in lower case.
+     */
+    public static Shift fromString(String value) {
+        return switch (value) {
+            case "1" -> EARLY;
+            case "2" -> LATE;
+            case "3", "late" -> NIGHT;
+            case "-" -> throw new IllegalArgumentException("No shift");
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,48 @@
+import org.rajnat.csv.parser.CsvField;
+
+import java.util.Objects;
+
+public class TeamMember {
+
+    @CsvField(name = "Member ID", order = 1)
+    private int id;
+
+    @CsvField(name = "Name", order = 2)
+    private String name;
+
+    @CsvField(name = "Team", order = 3, dedup = true)
+    private String team;
+
+    public TeamMember() {
+    }
+
+    public TeamMember(int id, String name, String team) {
+        this.id = id;
+        this.name = name;
+        this.team = team;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTeam() {
+        return team;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        TeamMember member = (TeamMember) o;
+        return id == member.id && Objects.equals(name, member.name) && Objects.equals(team, member.team);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name, team);
+    }
+}
@@ -0,0 +1,94 @@
+
+import org.rajnat.csv.parser.CsvField;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.Objects;
+
+public class Trade {
+
+    public enum Status {
+        NEW,
+        FILLED,
+        CANCELLED
+    }
+
+    @CsvField(name = "Trade ID", order = 1)
+    private long id;
+
+    @CsvField(name = "Quantity", order = 2)
+    private short quantity;
+
+    @CsvField(name = "Flags", order = 3)
+    private byte flags;
+
+    @CsvField(name = "Price", order = 4)
+    private float price;
+
+    @CsvField(name = "Active", order = 5)
+    private boolean active;
+
+    @CsvField(name = "Side", order = 6)
+    private char side;
+
+    @CsvField(name = "Notional", order = 7)
+    private BigDecimal notional;
+
+    @CsvField(name = "Trade Date", order = 8)
+    private LocalDate tradeDate;
+
+    @CsvField(name = "Executed At", order = 9)
+    private LocalDateTime executedAt;
+
+    @CsvField(name = "Venue", order = 10)
+    private Integer venue;
+
+    @CsvField(name = "Currency", order = 11)
+    private Currency currency;
+
+    @CsvField(name = "Status", order = 12, enumValues = {"N", "F", "X"})
+    private Status status;
+
+    public static Trade of(long id, short quantity, byte flags, float price, boolean active, char side,
+                           BigDecimal notional, LocalDate tradeDate, LocalDateTime executedAt, Integer venue,
+                           Currency currency, Status status) {
+        Trade trade = new Trade();
+        trade.id = id;
+        trade.quantity = quantity;
+        trade.flags = flags;
+        trade.price = price;
+        trade.active = active;
+        trade.side = side;
+        trade.notional = notional;
+        trade.tradeDate = tradeDate;
+        trade.executedAt = executedAt;
+        trade.venue = venue;
+        trade.currency = currency;
+        trade.status = status;
+        return trade;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        Trade trade = (Trade) o;
+        return id == trade.id && quantity == trade.quantity && flags == trade.flags
+                && Float.compare(price, trade.price) == 0 && active == trade.active && side == trade.side
+                && Objects.equals(notional, trade.notional) && Objects.equals(tradeDate, trade.tradeDate)
+                && Objects.equals(executedAt, trade.executedAt) && Objects.equals(venue, trade.venue)
+                && Objects.equals(currency, trade.currency) && status == trade.status;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, quantity, flags, price, active, side, notional, tradeDate, executedAt, venue, currency, status);
+    }
+
+    @Override
+    public String toString() {
+        return "Trade{" + id + ", " + quantity + ", " + flags + ", " + price + ", " + active + ", " + side + ", "
+                + notional + ", " + tradeDate + ", " + executedAt + ", " + venue + ", " + currency + ", " + status + "}";
+    }
+}
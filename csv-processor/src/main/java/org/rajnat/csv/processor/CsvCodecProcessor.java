@@ -0,0 +1,476 @@
+package org.rajnat.csv.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/**
+ * Generates a {@code CsvCodec} for every class with {@code @CsvField} annotated fields.
+ * <p>
+ * The codec of {@code com.example.Outer.Inner} is the class {@code com.example.Outer_Inner_CsvCodec}.
+ * It creates instances with the no-arg constructor and accesses every column directly, or through its
+ * getter and setter when the field is private, so rows are mapped with straight-line code instead of
+ * reflection. Primitive and String columns are parsed from the raw field bytes, enum columns through
+ * lookup tables and all other columns through the converters of the {@code ConverterRegistry}.
+ * String columns deduplicated with {@code CsvDedup} or {@code CsvField.dedup} get their own
+ * dictionary converter.
+ * <p>
+ * Classes that cannot be mapped this way, because they are generic, inaccessible, lack a no-arg
+ * constructor or have a column without accessors, are skipped with a note and keep using reflection.
+ * A {@code reflect-config.json} is written next to each codec so that it is found in a GraalVM native image.
+ */
+@SupportedAnnotationTypes(CsvCodecProcessor.CSV_FIELD)
+public class CsvCodecProcessor extends AbstractProcessor {
+    static final String PARSER_PACKAGE = "org.rajnat.csv.parser";
+    static final String CSV_FIELD = PARSER_PACKAGE + ".CsvField";
+    private static final String NO_ENUM = PARSER_PACKAGE + ".NoEnum";
+    private static final String CSV_DEDUP = PARSER_PACKAGE + ".CsvDedup";
+    private static final String SUFFIX = "_CsvCodec";
+
+    private enum Kind { PRIMITIVE, STRING, ENUM, OBJECT }
+
+    /**
+     * A column of the generated codec.
+     *
+     * @param name the header name
+     * @param order the column order
+     * @param type the field type
+     * @param kind how the column is converted
+     * @param enumType the canonical name of the enum class of an enum column
+     * @param labels the enumValues of an enum column, or empty to use the constant names
+     * @param dedup the dictionary size of a deduplicated String column, or 0
+     * @param getter the expression reading the column from {@code value}
+     * @param setter the statement assigning {@code %s} to the column of {@code value}
+     */
+    private record Column(String name, int order, TypeMirror type, Kind kind, String enumType, List<String> labels,
+                          int dedup, String getter, String setter) {
+    }
+
+    private static final class SkipException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        SkipException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement csvField = processingEnv.getElementUtils().getTypeElement(CSV_FIELD);
+        if (csvField == null) {
+            return false;
+        }
+        Set<TypeElement> types = new LinkedHashSet<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(csvField)) {
+            if (element.getKind() == ElementKind.FIELD && !element.getModifiers().contains(Modifier.STATIC)) {
+                types.add((TypeElement) element.getEnclosingElement());
+            }
+        }
+        for (TypeElement type : types) {
+            try {
+                generate(type, columns(type, csvField));
+            } catch (SkipException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                        format("No CSV codec generated for %s, it is mapped reflectively: %s", type.getQualifiedName(), e.getMessage()), type);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        format("Failed to write the CSV codec of %s: %s", type.getQualifiedName(), e.getMessage()), type);
+            }
+        }
+        return false;
+    }
+
+    private List<Column> columns(TypeElement type, TypeElement csvField) throws SkipException {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new SkipException("it is not a concrete class");
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            throw new SkipException("it is generic");
+        }
+        if (type.getNestingKind() != NestingKind.TOP_LEVEL
+                && (type.getNestingKind() != NestingKind.MEMBER || !type.getModifiers().contains(Modifier.STATIC))) {
+            throw new SkipException("it is an inner or local class");
+        }
+        if (!isAccessible(type, pkg)) {
+            throw new SkipException("it is not accessible from its package");
+        }
+        boolean constructor = ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+                .anyMatch(c -> c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE));
+        if (!constructor) {
+            throw new SkipException("it has no accessible no-arg constructor");
+        }
+
+        Integer dedup = dedupEntries(type);
+        List<Column> columns = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            AnnotationMirror annotation = annotation(field, csvField);
+            if (annotation != null && !field.getModifiers().contains(Modifier.STATIC)) {
+                columns.add(column(type, pkg, field, annotation, dedup));
+            }
+        }
+        // Stable, so columns of the same order keep their declaration order like the reflective schema
+        columns.sort(Comparator.comparingInt(Column::order));
+        return columns;
+    }
+
+    /**
+     * @return the maxEntries of the CsvDedup annotation of a class, or null if it is not annotated
+     */
+    private Integer dedupEntries(TypeElement type) {
+        TypeElement csvDedup = processingEnv.getElementUtils().getTypeElement(CSV_DEDUP);
+        AnnotationMirror annotation = csvDedup == null ? null : annotation(type, csvDedup);
+        if (annotation == null) {
+            return null;
+        }
+        return (Integer) value(processingEnv.getElementUtils().getElementValuesWithDefaults(annotation), "maxEntries").getValue();
+    }
+
+    /**
+     * @return the default maxEntries of CsvDedup, used by columns opting in with CsvField.dedup
+     */
+    private int defaultDedupEntries() {
+        TypeElement csvDedup = processingEnv.getElementUtils().getTypeElement(CSV_DEDUP);
+        for (ExecutableElement method : ElementFilter.methodsIn(csvDedup.getEnclosedElements())) {
+            if (method.getSimpleName().contentEquals("maxEntries")) {
+                return (Integer) method.getDefaultValue().getValue();
+            }
+        }
+        throw new IllegalStateException("Missing annotation value maxEntries");
+    }
+
+    private Column column(TypeElement type, PackageElement pkg, VariableElement field, AnnotationMirror annotation, Integer dedup) throws SkipException {
+        Types types = processingEnv.getTypeUtils();
+        Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+                processingEnv.getElementUtils().getElementValuesWithDefaults(annotation);
+        String name = (String) value(values, "name").getValue();
+        int order = (Integer) value(values, "order").getValue();
+        TypeMirror enumClass = (TypeMirror) value(values, "enumClass").getValue();
+        List<String> labels = new ArrayList<>();
+        for (Object label : (List<?>) value(values, "enumValues").getValue()) {
+            labels.add((String) ((AnnotationValue) label).getValue());
+        }
+
+        boolean fieldDedup = (Boolean) value(values, "dedup").getValue();
+
+        String fieldName = field.getSimpleName().toString();
+        if (field.getModifiers().contains(Modifier.FINAL)) {
+            throw new SkipException(format("field %s is final", fieldName));
+        }
+        TypeMirror fieldType = field.asType();
+        Kind kind;
+        String enumType = null;
+        if (!NO_ENUM.equals(types.erasure(enumClass).toString())) {
+            if (!types.isAssignable(enumClass, fieldType)) {
+                throw new SkipException(format("field %s cannot hold values of %s", fieldName, enumClass));
+            }
+            kind = Kind.ENUM;
+            enumType = enumType(enumClass, labels, pkg, fieldName);
+        } else if (fieldType.getKind().isPrimitive()) {
+            kind = Kind.PRIMITIVE;
+        } else if (fieldType.getKind() != TypeKind.DECLARED || !((DeclaredType) fieldType).getTypeArguments().isEmpty()) {
+            throw new SkipException(format("field %s has the unsupported type %s", fieldName, fieldType));
+        } else if (types.erasure(fieldType).toString().equals("java.lang.String")) {
+            kind = Kind.STRING;
+        } else if (types.asElement(fieldType).getKind() == ElementKind.ENUM) {
+            kind = Kind.ENUM;
+            enumType = enumType(fieldType, labels, pkg, fieldName);
+        } else if (!isAccessible((TypeElement) types.asElement(fieldType), pkg)) {
+            throw new SkipException(format("the type of field %s is not accessible", fieldName));
+        } else {
+            kind = Kind.OBJECT;
+        }
+        if (kind != Kind.ENUM && !labels.isEmpty()) {
+            throw new SkipException(format("field %s declares enumValues but is not an enum", fieldName));
+        }
+
+        boolean direct = !field.getModifiers().contains(Modifier.PRIVATE);
+        String property = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+        String getter;
+        String setter;
+        if (direct) {
+            getter = "value." + fieldName;
+            setter = "value." + fieldName + " = %s;";
+        } else {
+            String getterName = accessor(type, fieldType, "get" + property, fieldType.getKind() == TypeKind.BOOLEAN ? "is" + property : null);
+            String setterName = mutator(type, fieldType, "set" + property);
+            if (getterName == null || setterName == null) {
+                throw new SkipException(format("private field %s has no accessible getter and setter", fieldName));
+            }
+            getter = "value." + getterName + "()";
+            setter = "value." + setterName + "(%s);";
+        }
+        int dictionary = kind != Kind.STRING ? 0 : dedup != null ? dedup : fieldDedup ? defaultDedupEntries() : 0;
+        return new Column(name, order, fieldType, kind, enumType, List.copyOf(labels), dictionary, getter, setter);
+    }
+
+    private String enumType(TypeMirror enumMirror, List<String> labels, PackageElement pkg, String fieldName) throws SkipException {
+        TypeElement enumElement = (TypeElement) processingEnv.getTypeUtils().asElement(enumMirror);
+        if (!isAccessible(enumElement, pkg)) {
+            throw new SkipException(format("the enum of field %s is not accessible", fieldName));
+        }
+        long constants = enumElement.getEnclosedElements().stream().filter(e -> e.getKind() == ElementKind.ENUM_CONSTANT).count();
+        if (!labels.isEmpty() && labels.size() != constants) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    format("Expected %d enumValues for %s but found %d", constants, enumElement.getQualifiedName(), labels.size()));
+            throw new SkipException(format("field %s has invalid enumValues", fieldName));
+        }
+        return enumElement.getQualifiedName().toString();
+    }
+
+    private static AnnotationMirror annotation(Element element, TypeElement annotationType) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().asElement().equals(annotationType)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private static AnnotationValue value(Map<? extends ExecutableElement, ? extends AnnotationValue> values, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue();
+            }
+        }
+        throw new IllegalStateException("Missing annotation value " + name);
+    }
+
+    /**
+     * @return true if the generated codec, which lives in {@code pkg}, can refer to the type
+     */
+    private boolean isAccessible(TypeElement type, PackageElement pkg) {
+        PackageElement typePackage = processingEnv.getElementUtils().getPackageOf(type);
+        for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            Set<Modifier> modifiers = e.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)
+                    || !modifiers.contains(Modifier.PUBLIC) && !typePackage.equals(pkg)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String accessor(TypeElement type, TypeMirror fieldType, String name, String alternative) {
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            String methodName = method.getSimpleName().toString();
+            if ((methodName.equals(name) || methodName.equals(alternative)) && method.getParameters().isEmpty()
+                    && isInstanceMember(method) && processingEnv.getTypeUtils().isSameType(method.getReturnType(), fieldType)) {
+                return methodName;
+            }
+        }
+        return null;
+    }
+
+    private String mutator(TypeElement type, TypeMirror fieldType, String name) {
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == 1 && isInstanceMember(method)
+                    && processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), fieldType)) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isInstanceMember(Element element) {
+        return !element.getModifiers().contains(Modifier.STATIC) && !element.getModifiers().contains(Modifier.PRIVATE);
+    }
+
+    private void generate(TypeElement type, List<Column> columns) throws IOException {
+        Elements elements = processingEnv.getElementUtils();
+        PackageElement pkg = elements.getPackageOf(type);
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(type).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)).replace('$', '_') + SUFFIX;
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        String typeName = type.getQualifiedName().toString();
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("// Generated by ").append(CsvCodecProcessor.class.getName()).append(" from ").append(typeName).append('\n')
+                .append("public final class ").append(simpleName)
+                .append(" implements ").append(PARSER_PACKAGE).append(".CsvCodec<").append(typeName).append("> {\n");
+
+        source.append("    private static final java.util.List<String> HEADERS = java.util.List.of(");
+        for (int j = 0; j < columns.size(); j++) {
+            source.append(j == 0 ? "" : ", ").append(elements.getConstantExpression(columns.get(j).name()));
+        }
+        source.append(");\n");
+        for (int j = 0; j < columns.size(); j++) {
+            Column column = columns.get(j);
+            if (column.kind() == Kind.ENUM && !column.labels().isEmpty()) {
+                source.append("    private static final String[] LABELS_").append(j).append(" = {");
+                appendLabels(source, column.labels());
+                source.append("};\n");
+            }
+        }
+        // Enum columns are written from their UTF-8 labels, encoded once
+        boolean hasEnums = false;
+        for (int j = 0; j < columns.size(); j++) {
+            Column column = columns.get(j);
+            if (column.kind() == Kind.ENUM) {
+                hasEnums = true;
+                source.append("    private static final byte[][] ENCODED_").append(j).append(" = encode(")
+                        .append(column.labels().isEmpty()
+                                ? "java.util.Arrays.stream(" + column.enumType() + ".values()).map(Enum::name).toArray(String[]::new)"
+                                : "LABELS_" + j)
+                        .append(");\n");
+            }
+        }
+        source.append('\n');
+        for (int j = 0; j < columns.size(); j++) {
+            Column column = columns.get(j);
+            if (column.kind() == Kind.ENUM || column.kind() == Kind.OBJECT || column.dedup() > 0) {
+                source.append("    private final ").append(PARSER_PACKAGE).append(".CsvConverter<").append(converted(column))
+                        .append("> converter").append(j).append(";\n");
+            }
+        }
+
+        // Constructor
+        source.append("\n    public ").append(simpleName).append('(').append(PARSER_PACKAGE).append(".ConverterRegistry registry) {\n");
+        for (int j = 0; j < columns.size(); j++) {
+            Column column = columns.get(j);
+            if (column.kind() == Kind.ENUM) {
+                source.append("        this.converter").append(j).append(" = ").append(PARSER_PACKAGE)
+                        .append(".ConverterRegistry.enumConverter(").append(column.enumType()).append(".class");
+                if (!column.labels().isEmpty()) {
+                    source.append(", ");
+                    appendLabels(source, column.labels());
+                }
+                source.append(");\n");
+            } else if (column.kind() == Kind.OBJECT) {
+                source.append("        this.converter").append(j).append(" = registry == null ? null : registry.require(")
+                        .append(converted(column)).append(".class);\n");
+            } else if (column.dedup() > 0) {
+                source.append("        this.converter").append(j).append(" = ").append(PARSER_PACKAGE)
+                        .append(".ConverterRegistry.stringDictionary(").append(column.dedup()).append(");\n");
+            }
+        }
+        source.append("    }\n\n");
+
+        source.append("    @Override\n    public java.util.List<String> headers() {\n        return HEADERS;\n    }\n\n");
+
+        // Read
+        source.append("    @Override\n    public ").append(typeName).append(" read(").append(PARSER_PACKAGE)
+                .append(".CsvRow row, int[] columns) {\n")
+                .append("        return read(row, columns, new ").append(typeName).append("());\n    }\n\n");
+        source.append("    @Override\n    public ").append(typeName).append(" read(").append(PARSER_PACKAGE)
+                .append(".CsvRow row, int[] columns, ").append(typeName).append(" value) {\n")
+                .append("        int size = row.size();\n")
+                .append("        int c;\n");
+        for (int j = 0; j < columns.size(); j++) {
+            Column column = columns.get(j);
+            source.append("        if ((c = columns[").append(j).append("]) >= 0 && c < size) {\n")
+                    .append("            ").append(format(column.setter(), readExpression(column, j))).append('\n')
+                    .append("        }\n");
+        }
+        source.append("        return value;\n    }\n\n");
+
+        // Write
+        source.append("    @Override\n    public void write(").append(typeName).append(" value, ").append(PARSER_PACKAGE)
+                .append(".CsvRowWriter writer) {\n");
+        for (int j = 0; j < columns.size(); j++) {
+            Column column = columns.get(j);
+            switch (column.kind()) {
+                case PRIMITIVE, STRING -> source.append("        writer.write(").append(column.getter()).append(");\n");
+                case OBJECT -> source.append("        writer.write((Object) ").append(column.getter()).append(");\n");
+                case ENUM -> {
+                    String local = "enum" + j;
+                    // enumClass may narrow the declared type of the field
+                    boolean narrowed = !column.enumType().equals(processingEnv.getTypeUtils().erasure(column.type()).toString());
+                    source.append("        ").append(column.enumType()).append(' ').append(local).append(" = ")
+                            .append(narrowed ? "(" + column.enumType() + ") " : "").append(column.getter()).append(";\n")
+                            .append("        writer.writeUtf8(").append(local).append(" == null ? null : ENCODED_").append(j)
+                            .append('[').append(local).append(".ordinal()]);\n");
+                }
+            }
+        }
+        source.append("    }\n");
+        if (hasEnums) {
+            source.append("\n    private static byte[][] encode(String[] labels) {\n")
+                    .append("        byte[][] encoded = new byte[labels.length][];\n")
+                    .append("        for (int i = 0; i < labels.length; i++) {\n")
+                    .append("            encoded[i] = labels[i].getBytes(java.nio.charset.StandardCharsets.UTF_8);\n")
+                    .append("        }\n")
+                    .append("        return encoded;\n")
+                    .append("    }\n");
+        }
+        source.append("}\n");
+
+        Filer filer = processingEnv.getFiler();
+        try (Writer writer = filer.createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(source.toString());
+        }
+        try (Writer writer = filer.createResource(StandardLocation.CLASS_OUTPUT, "",
+                "META-INF/native-image/org.rajnat.csv/" + qualifiedName + "/reflect-config.json", type).openWriter()) {
+            writer.write(reflectConfig(qualifiedName));
+        }
+    }
+
+    private String converted(Column column) {
+        return column.kind() == Kind.ENUM ? column.enumType() : processingEnv.getTypeUtils().erasure(column.type()).toString();
+    }
+
+    private String readExpression(Column column, int j) {
+        return switch (column.kind()) {
+            case STRING -> column.dedup() > 0 ? "row.get(c, converter" + j + ")" : "row.getString(c)";
+            case ENUM, OBJECT -> "row.get(c, converter" + j + ")";
+            case PRIMITIVE -> {
+                String primitive = column.type().getKind().name().toLowerCase();
+                yield "row.get" + Character.toUpperCase(primitive.charAt(0)) + primitive.substring(1) + "(c)";
+            }
+        };
+    }
+
+    private void appendLabels(StringBuilder source, List<String> labels) {
+        for (int i = 0; i < labels.size(); i++) {
+            source.append(i == 0 ? "" : ", ").append(processingEnv.getElementUtils().getConstantExpression(labels.get(i)));
+        }
+    }
+
+    private static String reflectConfig(String codecName) {
+        return "[\n"
+                + "  {\n"
+                + "    \"name\": \"" + codecName + "\",\n"
+                + "    \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": [\"" + PARSER_PACKAGE + ".ConverterRegistry\"]}]\n"
+                + "  }\n"
+                + "]\n";
+    }
+}